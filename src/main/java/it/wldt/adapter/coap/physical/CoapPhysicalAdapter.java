@@ -1,8 +1,21 @@
 package it.wldt.adapter.coap.physical;
 
+import it.wldt.adapter.coap.physical.action.ActionRoute;
+import it.wldt.adapter.coap.physical.configuration.CoapDeviceConfigurationData;
 import it.wldt.adapter.coap.physical.configuration.CoapPhysicalAdapterConfiguration;
+import it.wldt.adapter.coap.physical.configuration.CoapPhysicalAdapterConfigurationChanges;
+import it.wldt.adapter.coap.physical.configuration.CoapPhysicalAdapterConfigurationException;
+import it.wldt.adapter.coap.physical.discovery.DiscoveryCache;
+import it.wldt.adapter.coap.physical.discovery.DiscoverySnapshot;
+import it.wldt.adapter.coap.physical.discovery.MulticastDiscovery;
+import it.wldt.adapter.coap.physical.discovery.ResourceDirectoryDiscovery;
+import it.wldt.adapter.coap.physical.discovery.ResourceLink;
+import it.wldt.adapter.coap.physical.discovery.WellKnownCoreDiscovery;
 import it.wldt.adapter.coap.physical.model.PhysicalAssetResource;
 import it.wldt.adapter.coap.physical.model.PhysicalAssetResourceListener;
+import it.wldt.adapter.coap.physical.observation.ObservationWatchdog;
+import it.wldt.adapter.coap.physical.polling.PollingPriority;
+import it.wldt.adapter.coap.physical.polling.PollingScheduler;
 import it.wldt.adapter.physical.*;
 import it.wldt.adapter.physical.event.PhysicalAssetActionWldtEvent;
 import it.wldt.adapter.physical.event.PhysicalAssetEventWldtEvent;
@@ -10,8 +23,6 @@ import it.wldt.adapter.physical.event.PhysicalAssetPropertyWldtEvent;
 import it.wldt.core.event.WldtEvent;
 import it.wldt.exception.EventBusException;
 import it.wldt.exception.PhysicalAdapterException;
-import org.eclipse.californium.core.CoapClient;
-import org.eclipse.californium.core.WebLink;
 import org.eclipse.californium.core.coap.MediaTypeRegistry;
 import org.eclipse.californium.elements.exception.ConnectorException;
 import org.slf4j.Logger;
@@ -19,7 +30,18 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
+import java.util.stream.Collectors;
 
 /**
  * CoAP Physical Adapter implementation.
@@ -33,6 +55,31 @@ public class CoapPhysicalAdapter
         implements PhysicalAssetResourceListener {
     private static final Logger logger = LoggerFactory.getLogger(CoapPhysicalAdapter.class);
 
+    private static final long DRAIN_CHECK_INTERVAL = 20;
+
+    private static final Set<String> ADAPTIVE_POLLING_KEYS = new HashSet<>(Arrays.asList(
+            "adaptivePollingSupport", "adaptivePollingMinInterval", "adaptivePollingMaxInterval", "adaptivePollingBackoffFactor"));
+    private static final Set<String> POLLING_KEYS = new HashSet<>(Arrays.asList(
+            "autoUpdateInterval", "customAutoUpdateIntervals", "resourceTypeAutoUpdateIntervals",
+            "customPollingPriorities", "resourceTypePollingPriorities"));
+    private static final Set<String> REDISCOVERY_KEYS = new HashSet<>(Arrays.asList(
+            "ignoredResources", "preferredContentFormat", "discoveryFilters"));
+
+    // Replaced by the configuration reload, which runs on a polling thread
+    private volatile ObservationWatchdog observationWatchdog;
+    private ExecutorService startupExecutor;
+    // Runs one rediscovery at a time, away from the polling threads
+    private ExecutorService rediscoveryExecutor;
+    private volatile PollingScheduler.PeriodicTask rediscoveryTask;
+    private PollingScheduler.PeriodicTask reloadTask;
+    // Set while a configuration reload is applied, so that two reloads never overlap
+    private final AtomicBoolean reloading = new AtomicBoolean();
+
+    private volatile Map<String, ActionRoute> actionRoutingTable = Collections.emptyMap();
+
+    // Completed once the resources found at startup are described, cancelled when the adapter stops
+    private volatile CompletableFuture<Void> startupDescribed = new CompletableFuture<>();
+
     /**
      * Constructs a new CoapPhysicalAdapter with the given ID and configuration.
      *
@@ -62,15 +109,10 @@ public class CoapPhysicalAdapter
         logger.info("{} - CoAP physical adapter received incoming physical action", super.getId());
 
         try {
-            String resourceName = getConfiguration().getResourceKeyNameAssociationMap().get(physicalActionEvent.getActionKey());
-            Optional<PhysicalAssetResource> resource = getConfiguration().getResources().stream().filter(res -> res.getName().equals(resourceName)).findFirst();
+            ActionRoute route = actionRoutingTable.get(physicalActionEvent.getActionKey());
 
-            if (resource.isPresent()) {
-                if (getConfiguration().getCustomActionEventTranslators().containsKey(resource.get().getName())) {
-                    resource.get().sendAction(getConfiguration().getCustomActionEventTranslators().get(resource.get().getName()).apply(physicalActionEvent));
-                } else {
-                    resource.get().sendAction(getConfiguration().getDefaultActionEventTranslator().apply(physicalActionEvent));
-                }
+            if (route != null) {
+                route.getResource().sendActionAsync(route.getTranslator().apply(physicalActionEvent));
                 logger.info("{} - CoAP physical adapter invoked action on resource", super.getId());
             } else {
                 logger.warn("{} - CoAP physical adapter received action to unregistered resource", super.getId());
@@ -87,7 +129,8 @@ public class CoapPhysicalAdapter
      *- Checks the presence of resources; if no resources are found, notifies that the adapter is unbound.
      *- Starts listening to the found resources.
      *- Generates the physical asset description (PAD) containing properties, events, and actions of the resources.
-     *If enabled, handles observability and automatic updates for resources.
+     *- Starts the observation or polling of the resources, with a bounded number of pending observe requests.
+     *If early binding is enabled, the adapter is notified as bound before the observations are established.
      * Once the method has performed all its operations without errors, it notifies that the adapter is successfully bound.
      * If any errors occur during execution, appropriate logs are recorded, and the adapter is notified as unbound.
      */
@@ -95,12 +138,17 @@ public class CoapPhysicalAdapter
     public void onAdapterStart() {
         logger.info("{} - CoAP physical adapter starting", super.getId());
 
+        getConfiguration().openSharedComponents();
+        startupDescribed = new CompletableFuture<>();
+        createRediscoveryExecutor();
+
         // Resource discovery
 
         try {
-            discoverResources();
+            getConfiguration().getResources().addAll(discoverResources(true, ConcurrentHashMap.newKeySet(), getStartupExecutor()));
         } catch (Exception e) {
             logger.error("{} - CoAP physical adapter failed to discover resources", super.getId(), e);
+            shutdownStartupExecutor();
             notifyPhysicalAdapterUnBound("CoAP physical adapter failed to discover resources");
             return;
         }
@@ -109,6 +157,7 @@ public class CoapPhysicalAdapter
 
         if (getConfiguration().getResources().isEmpty()) {
             logger.error("{} - CoAP physical adapter has no resources", super.getId());
+            shutdownStartupExecutor();
             notifyPhysicalAdapterUnBound("CoAP physical adapter has no resources");
             return;
         }
@@ -116,57 +165,108 @@ public class CoapPhysicalAdapter
         // Adapter starting process
 
         logger.info("{} - CoAP physical adapter generating Physical Asset Description (PAD)", super.getId());
-        getConfiguration().getResources().forEach(resource -> {
-            // -- Add adapter as listener --
+        getConfiguration().getResources().forEach(this::describeResource);
 
-            if (getConfiguration().getResourceNotificationsSupport()) {
-                resource.addListener(this, ListenerType.ALL);
-            } else if (getConfiguration().getCustomResourceNotificationsMap() != null && getConfiguration().getCustomResourceNotificationsMap().containsKey(resource.getName())) {
-                resource.addListener(this, getConfiguration().getCustomResourceNotificationsMap().get(resource.getName()));
-            }
+        rebuildActionRoutingTable();
+        startupDescribed.complete(null);
 
-            // -- Create the Physical Asset Description (PAD) --
+        if (getConfiguration().isObservabilityEnabled() && getConfiguration().isObservationWatchdogEnabled()) {
+            observationWatchdog = new ObservationWatchdog(getConfiguration());
+            observationWatchdog.start();
+        }
 
-            String wldtKey = resource.getResourceType().trim().isEmpty() ? resource.getName() : resource.getResourceType().concat(".").concat(resource.getName());
-            getConfiguration().getResourceKeyNameAssociationMap().put(wldtKey, resource.getName());
+        scheduleRediscovery();
 
-            // Add properties & events
+        if (getConfiguration().getYamlFile() != null && getConfiguration().getConfigurationReloadInterval() > 0) {
+            reloadTask = getConfiguration().getPollingScheduler().scheduleWithFixedDelay(
+                    this::reloadConfiguration,
+                    getConfiguration().getConfigurationReloadInterval(),
+                    getConfiguration().getConfigurationReloadInterval());
+        }
 
-            getConfiguration().getPhysicalAssetDescription().getProperties().add(new PhysicalAssetProperty<>(wldtKey, 0.0));
-            getConfiguration().getPhysicalAssetDescription().getEvents().add(new PhysicalAssetEvent(wldtKey, getConfiguration().getEventType(resource.getName())));
+        // Start observation & polling
 
-            // Add actions
+        if (getConfiguration().isEarlyBindingEnabled()) {
+            notifyBound();
+            getStartupExecutor().execute(() -> {
+                startResources();
+                shutdownStartupExecutor();
+            });
+        } else {
+            startResources();
+            shutdownStartupExecutor();
+            notifyBound();
+        }
+    }
 
-            String contentType = null;
-            String actionType = null;
-            if (resource.isPostSupported() && resource.isPutSupported()) {
-                contentType = getConfiguration().getActuatorActionContentType(resource.getName());
-                actionType = getConfiguration().getActuatorActionType(resource.getName());
-            } else if (resource.isPutSupported()) {
-                contentType = getConfiguration().getPutActionContentType(resource.getName());
-                actionType = getConfiguration().getPutActionType(resource.getName());
-            } else if (resource.isPostSupported()) {
-                contentType = getConfiguration().getPostActionContentType(resource.getName());
-                actionType = getConfiguration().getPostActionType(resource.getName());
-            }
+    /**
+     * Adds the adapter as listener of a resource, and adds the resource properties, events, actions and relationships
+     * to the Physical Asset Description.
+     * @param resource The resource to describe.
+     */
+    private void describeResource(PhysicalAssetResource resource) {
+        // -- Add adapter as listener --
 
-            if (contentType != null && actionType != null) {
-                getConfiguration().getPhysicalAssetDescription().getActions().add(new PhysicalAssetAction(wldtKey, actionType, contentType));
-            }
+        if (getConfiguration().getResourceNotificationsSupport()) {
+            resource.addListener(this, ListenerType.ALL);
+        } else if (getConfiguration().getCustomResourceNotificationsMap() != null && getConfiguration().getCustomResourceNotificationsMap().containsKey(resource.getName())) {
+            resource.addListener(this, getConfiguration().getCustomResourceNotificationsMap().get(resource.getName()));
+        }
 
-            // -- Start observation & polling (adds relationships) --
+        // -- Create the Physical Asset Description (PAD) --
 
-            if (getConfiguration().isObservabilityEnabled() && resource.isObservable()) {
-                resource.startObservation();
+        String wldtKey = resource.getWldtKey();
+        getConfiguration().getResourceKeyNameAssociationMap().put(wldtKey, resource.getName());
 
-                getConfiguration().getPhysicalAssetDescription().getRelationships().add(new PhysicalAssetRelationship<>(wldtKey, "observation"));
-            } else if (getConfiguration().isAutoUpdateTimerEnabled()) {
-                resource.startAutoUpdate(getConfiguration().getAutoUpdateInterval());
+        // Add properties & events
 
-                getConfiguration().getPhysicalAssetDescription().getRelationships().add(new PhysicalAssetRelationship<>(wldtKey, "polling"));
-            }
-        });
+        getConfiguration().getPhysicalAssetDescription().getProperties().add(new PhysicalAssetProperty<>(wldtKey, 0.0));
+        getConfiguration().getPhysicalAssetDescription().getEvents().add(new PhysicalAssetEvent(wldtKey, getConfiguration().getEventType(resource.getName())));
+
+        // Add actions
+
+        String contentType = null;
+        String actionType = null;
+        if (resource.isPostSupported() && resource.isPutSupported()) {
+            contentType = getConfiguration().getActuatorActionContentType(resource.getName());
+            actionType = getConfiguration().getActuatorActionType(resource.getName());
+        } else if (resource.isPutSupported()) {
+            contentType = getConfiguration().getPutActionContentType(resource.getName());
+            actionType = getConfiguration().getPutActionType(resource.getName());
+        } else if (resource.isPostSupported()) {
+            contentType = getConfiguration().getPostActionContentType(resource.getName());
+            actionType = getConfiguration().getPostActionType(resource.getName());
+        }
+
+        if (contentType != null && actionType != null) {
+            getConfiguration().getPhysicalAssetDescription().getActions().add(new PhysicalAssetAction(wldtKey, actionType, contentType));
+        }
+
+        // -- Add observation & polling relationships --
 
+        if (getConfiguration().isObservabilityEnabled() && resource.isObservable()) {
+            getConfiguration().getPhysicalAssetDescription().getRelationships().add(new PhysicalAssetRelationship<>(wldtKey, "observation"));
+        } else if (getConfiguration().isAutoUpdateTimerEnabled()) {
+            getConfiguration().getPhysicalAssetDescription().getRelationships().add(new PhysicalAssetRelationship<>(wldtKey, "polling"));
+        }
+    }
+
+    /**
+     * Removes the properties, events, actions and relationships of a resource from the Physical Asset Description.
+     * @param resource The resource to remove.
+     */
+    private void removeResourceDescription(PhysicalAssetResource resource) {
+        String wldtKey = resource.getWldtKey();
+        PhysicalAssetDescription description = getConfiguration().getPhysicalAssetDescription();
+
+        getConfiguration().getResourceKeyNameAssociationMap().remove(wldtKey);
+        description.getProperties().removeIf(property -> wldtKey.equals(property.getKey()));
+        description.getEvents().removeIf(event -> wldtKey.equals(event.getKey()));
+        description.getActions().removeIf(action -> wldtKey.equals(action.getKey()));
+        description.getRelationships().removeIf(relationship -> wldtKey.equals(relationship.getName()));
+    }
+
+    private void notifyBound() {
         try {
             notifyPhysicalAdapterBound(getConfiguration().getPhysicalAssetDescription());
         } catch (PhysicalAdapterException | EventBusException e) {
@@ -175,15 +275,441 @@ public class CoapPhysicalAdapter
     }
 
     /**
-     * Stops the CoAP physical adapter and clears all the registered resources.
+     * Starts the observation or the polling of every resource.
+     * At most {@code startupConcurrency} observe requests are waiting for their first response at the same time,
+     * and the method returns once every observe request has been answered or has failed.
+     */
+    private void startResources() {
+        int concurrency = getConfiguration().getStartupConcurrency();
+        Semaphore registrations = new Semaphore(concurrency);
+
+        try {
+            for (PhysicalAssetResource resource : getConfiguration().getResources()) {
+                if (getConfiguration().isObservabilityEnabled() && resource.isObservable()) {
+                    registrations.acquire();
+                    startResource(resource).whenComplete((result, error) -> registrations.release());
+                } else {
+                    startResource(resource);
+                }
+            }
+
+            registrations.acquire(concurrency);
+            logger.info("{} - CoAP physical adapter started {} resources", super.getId(), getConfiguration().getResources().size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("{} - CoAP physical adapter startup interrupted", super.getId());
+        }
+    }
+
+    /**
+     * Starts the observation of a resource if it is observable, or its polling otherwise.
+     * @param resource The resource to start.
+     * @return The future completed once the observe request gets its first response or fails, already completed for polled resources.
+     */
+    private CompletableFuture<Void> startResource(PhysicalAssetResource resource) {
+        if (getConfiguration().isObservabilityEnabled() && resource.isObservable()) {
+            return resource.startObservation();
+        }
+
+        if (getConfiguration().isAutoUpdateTimerEnabled()) {
+            resource.startAutoUpdate(getConfiguration().getAutoUpdateInterval(resource.getName(), resource.getResourceType()));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Returns the executor running the discoveries and the background startup, created at the first invocation.
+     * @return The startup executor.
+     */
+    private synchronized ExecutorService getStartupExecutor() {
+        if (startupExecutor == null) {
+            startupExecutor = createDiscoveryExecutor("startup");
+        }
+        return startupExecutor;
+    }
+
+    /**
+     * Creates an executor running discoveries, with at most {@code startupConcurrency} daemon threads.
+     * @param purpose The purpose of the executor, used in the thread names.
+     * @return The new executor, which the caller is expected to shut down.
+     */
+    private ExecutorService createDiscoveryExecutor(String purpose) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(getConfiguration().getStartupConcurrency(), runnable -> {
+            Thread thread = new Thread(runnable, String.format("coap-pa-%s-%s-%d", purpose, super.getId(), threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private synchronized void shutdownStartupExecutor() {
+        if (startupExecutor != null) {
+            startupExecutor.shutdown();
+            startupExecutor = null;
+        }
+    }
+
+    /**
+     * Stops the CoAP physical adapter, cancels the polling of every resource and clears all the registered resources.
      */
     @Override
     public void onAdapterStop() {
+        startupDescribed.cancel(false);
+
+        synchronized (this) {
+            if (startupExecutor != null) {
+                startupExecutor.shutdownNow();
+                startupExecutor = null;
+            }
+        }
+
+        if (observationWatchdog != null) {
+            observationWatchdog.stop();
+            observationWatchdog = null;
+        }
+
+        if (reloadTask != null) {
+            reloadTask.cancel();
+            reloadTask = null;
+        }
+
+        synchronized (this) {
+            if (rediscoveryTask != null) {
+                rediscoveryTask.cancel();
+                rediscoveryTask = null;
+            }
+            if (rediscoveryExecutor != null) {
+                rediscoveryExecutor.shutdownNow();
+                rediscoveryExecutor = null;
+            }
+        }
+
+        List<PhysicalAssetResource> resources = new ArrayList<>(getConfiguration().getResources());
+        resources.forEach(PhysicalAssetResource::stop);
+
+        // An interrupted stop skips the waits, but still releases everything
+        boolean interrupted = false;
+
+        try {
+            if (!drainExchanges(resources, getConfiguration().getShutdownTimeout())) {
+                logger.warn("{} - CoAP physical adapter stopping with exchanges still in flight", super.getId());
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+
+        resources.forEach(PhysicalAssetResource::close);
+
+        try {
+            if (!getConfiguration().shutdownSharedComponents(interrupted ? 0 : getConfiguration().getShutdownTimeout())) {
+                logger.warn("{} - CoAP physical adapter threads did not terminate within the shutdown timeout", super.getId());
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
         getConfiguration().getResources().clear();
+        getConfiguration().clearPhysicalAssetDescription();
+        actionRoutingTable = Collections.emptyMap();
+
+        logger.info("{} - CoAP physical adapter stopped", super.getId());
+    }
+
+    /**
+     * Waits for the GET requests and actions already sent by the stopped resources to complete.
+     * @param resources The stopped resources.
+     * @param timeout The maximum time (in milliseconds) to wait.
+     * @return true if every exchange completed, false if the timeout elapsed.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    private boolean drainExchanges(List<PhysicalAssetResource> resources, long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+
+        while (resources.stream().anyMatch(PhysicalAssetResource::hasPendingExchanges)) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(DRAIN_CHECK_INTERVAL);
+        }
+
+        return true;
+    }
+
+    /**
+     * Schedules the periodic rediscovery of the resources, replacing the previous schedule if any.
+     */
+    private synchronized void scheduleRediscovery() {
+        if (rediscoveryTask != null) {
+            rediscoveryTask.cancel();
+            rediscoveryTask = null;
+        }
+
+        if (rediscoveryExecutor != null && getConfiguration().getResourceDiscoverySupport() && getConfiguration().getRediscoveryInterval() > 0) {
+            rediscoveryTask = getConfiguration().getPollingScheduler().scheduleWithFixedDelay(
+                    this::rediscoverResources,
+                    getConfiguration().getRediscoveryInterval(),
+                    getConfiguration().getRediscoveryInterval(),
+                    rediscoveryExecutor);
+        }
+    }
+
+    /**
+     * Creates the single-thread executor running the rediscoveries, which block while waiting for the servers.
+     */
+    private synchronized void createRediscoveryExecutor() {
+        if (rediscoveryExecutor != null) {
+            rediscoveryExecutor.shutdownNow();
+        }
+
+        rediscoveryExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, String.format("coap-pa-rediscovery-%s", super.getId()));
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a rediscovery after the one in progress, if any. Ignored once the adapter is stopped.
+     */
+    private synchronized void requestRediscovery() {
+        if (rediscoveryExecutor == null) {
+            return;
+        }
+
+        try {
+            rediscoveryExecutor.execute(this::rediscoverResources);
+        } catch (RejectedExecutionException e) {
+            logger.debug("{} - CoAP physical adapter rediscovery discarded, the adapter is stopping", super.getId());
+        }
+    }
+
+    /**
+     * Reloads the YAML configuration file if it changed, and applies the changed keys to the running resources.
+     * Only the polled resources whose interval or priority changed are rescheduled, the observations are registered
+     * again only if the preferred content format changed, the observation watchdog and the rediscovery are restarted
+     * only if their interval changed, and a change in the resource selection triggers a
+     * rediscovery which starts and stops only the affected resources.
+     * An invalid file is rejected as a whole and the current configuration is kept.
+     * The periodic task is re-armed only once a reload ends, and a reload requested while another one is still being
+     * applied is skipped, the file being checked again at the next run.
+     */
+    private void reloadConfiguration() {
+        if (!reloading.compareAndSet(false, true)) {
+            logger.debug("{} - CoAP physical adapter configuration reload skipped, the previous one is still running", super.getId());
+            return;
+        }
+
+        try {
+            applyConfigurationReload();
+        } finally {
+            reloading.set(false);
+        }
+    }
+
+    private void applyConfigurationReload() {
+        CoapPhysicalAdapterConfigurationChanges changes;
+
+        try {
+            changes = getConfiguration().reloadYaml();
+        } catch (IOException | CoapPhysicalAdapterConfigurationException e) {
+            logger.warn("{} - CoAP physical adapter failed to reload the configuration file, keeping the current configuration", super.getId(), e);
+            return;
+        }
+
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        if (!changes.getIgnoredKeys().isEmpty()) {
+            logger.warn("{} - CoAP physical adapter ignored the reloaded keys {}, which require a restart", super.getId(), changes.getIgnoredKeys());
+        }
+
+        Set<String> appliedKeys = changes.getAppliedKeys();
+        if (appliedKeys.isEmpty()) {
+            return;
+        }
+
+        logger.info("{} - CoAP physical adapter applying the reloaded keys {}", super.getId(), appliedKeys);
+
+        boolean adaptivePollingChanged = appliedKeys.stream().anyMatch(ADAPTIVE_POLLING_KEYS::contains);
+        if (adaptivePollingChanged || appliedKeys.stream().anyMatch(POLLING_KEYS::contains)) {
+            restartPolling(adaptivePollingChanged);
+        }
+
+        if (appliedKeys.contains("preferredContentFormat")) {
+            // The observe relations are keyed by content format, so they are registered again with the new Accept
+            getConfiguration().getResources().forEach(PhysicalAssetResource::refreshObservation);
+        }
+
+        if (appliedKeys.contains("observationWatchdogInterval")) {
+            restartObservationWatchdog();
+        }
+
+        if (appliedKeys.contains("rediscoveryInterval")) {
+            scheduleRediscovery();
+        }
+
+        if (appliedKeys.stream().anyMatch(REDISCOVERY_KEYS::contains)) {
+            if (getConfiguration().getResourceDiscoverySupport()) {
+                requestRediscovery();
+            } else {
+                logger.warn("{} - CoAP physical adapter cannot apply the reloaded resource selection without resource discovery", super.getId());
+            }
+        }
+    }
+
+    /**
+     * Restarts the polling of the resources which are primarily polled and whose interval or priority changed.
+     * The fallback polling of an observed resource keeps the interval it was started with until the observation is recovered.
+     * @param all If every polled resource should be restarted, since the adaptive polling settings changed.
+     */
+    private void restartPolling(boolean all) {
+        int restarted = 0;
+
+        for (PhysicalAssetResource resource : getConfiguration().getResources()) {
+            if (!resource.isAutoUpdateActive() || resource.isObservationActive() || resource.isFallbackPollingActive()) {
+                continue;
+            }
+
+            long interval = getConfiguration().getAutoUpdateInterval(resource.getName(), resource.getResourceType());
+            PollingPriority priority = getConfiguration().getPollingPriority(resource.getName(), resource.getResourceType());
+
+            if (all || interval != resource.getAutoUpdateInterval() || priority != resource.getPollingPriority()) {
+                resource.startAutoUpdate(interval);
+                restarted++;
+            }
+        }
+
+        logger.info("{} - CoAP physical adapter rescheduled the polling of {} resources", super.getId(), restarted);
+    }
+
+    /**
+     * Restarts the observation watchdog with the reloaded interval.
+     */
+    private void restartObservationWatchdog() {
+        if (observationWatchdog != null) {
+            observationWatchdog.stop();
+            observationWatchdog = null;
+        }
+
+        if (getConfiguration().isObservabilityEnabled() && getConfiguration().isObservationWatchdogEnabled()) {
+            observationWatchdog = new ObservationWatchdog(getConfiguration());
+            observationWatchdog.start();
+        }
+    }
+
+    /**
+     * Discovers the resources again and applies the differences with the current ones.
+     * The removed resources are stopped and the added ones are started, leaving every other observation and polling
+     * untouched, and the updated Physical Asset Description is published.
+     * The resources of a server whose discovery failed are kept, and the discovered resources which are not added
+     * are closed, since each of them holds its own client.
+     * It runs on the single rediscovery thread, so that two rediscoveries never overlap, and its parallel discoveries
+     * run on their own executor, so that they cannot interfere with a startup still in progress.
+     */
+    private void rediscoverResources() {
+        Set<String> failedServers = ConcurrentHashMap.newKeySet();
+        Set<PhysicalAssetResource> discoveredResources;
+        ExecutorService executor = createDiscoveryExecutor("rediscovery");
+
+        try {
+            discoveredResources = discoverResources(false, failedServers, executor);
+        } catch (Exception e) {
+            logger.warn("{} - CoAP physical adapter failed to rediscover resources", super.getId(), e);
+            return;
+        } finally {
+            executor.shutdown();
+        }
+
+        if (getConfiguration().getResourceDirectoryUri() != null && failedServers.contains(getConfiguration().getResourceDirectoryUri())) {
+            discoveredResources.forEach(PhysicalAssetResource::close);
+            return;
+        }
+
+        synchronized (this) {
+            Map<String, PhysicalAssetResource> currentResources = new HashMap<>();
+            getConfiguration().getResources().forEach(resource -> currentResources.put(getResourceIdentity(resource), resource));
+
+            Map<String, PhysicalAssetResource> newResources = new HashMap<>();
+            discoveredResources.forEach(resource -> newResources.put(getResourceIdentity(resource), resource));
+
+            List<PhysicalAssetResource> removedResources = new ArrayList<>();
+            currentResources.forEach((identity, resource) -> {
+                if (!newResources.containsKey(identity) && !failedServers.contains(resource.getServerConnectionString())) {
+                    removedResources.add(resource);
+                }
+            });
+
+            List<PhysicalAssetResource> addedResources = new ArrayList<>();
+            newResources.forEach((identity, resource) -> {
+                if (!currentResources.containsKey(identity)) {
+                    addedResources.add(resource);
+                }
+            });
+
+            Set<PhysicalAssetResource> keptResources = Collections.newSetFromMap(new IdentityHashMap<>());
+            keptResources.addAll(addedResources);
+            discoveredResources.stream()
+                    .filter(resource -> !keptResources.contains(resource))
+                    .forEach(PhysicalAssetResource::close);
+
+            if (removedResources.isEmpty() && addedResources.isEmpty()) {
+                return;
+            }
+
+            logger.info("{} - CoAP physical adapter rediscovery found {} new and {} removed resources", super.getId(), addedResources.size(), removedResources.size());
+
+            removedResources.forEach(resource -> {
+                resource.stop();
+                resource.close();
+                removeResourceDescription(resource);
+                getConfiguration().getResources().remove(resource);
+            });
+
+            addedResources.forEach(resource -> {
+                getConfiguration().getResources().add(resource);
+                describeResource(resource);
+                startResource(resource);
+            });
+
+            rebuildActionRoutingTable();
+
+            try {
+                updatePhysicalAssetDescription(getConfiguration().getPhysicalAssetDescription());
+            } catch (PhysicalAdapterException | EventBusException e) {
+                logger.error("{} - CoAP physical adapter failed to publish the updated Physical Asset Description", super.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * @return The identity of a resource across discoveries, which changes if any of its described capabilities changes.
+     */
+    private static String getResourceIdentity(PhysicalAssetResource resource) {
+        return String.format("%s|%s|%s|%b|%b|%b",
+                resource.getServerConnectionString(),
+                resource.getWldtKey(),
+                resource.getContentType(),
+                resource.isObservable(),
+                resource.isPostSupported(),
+                resource.isPutSupported());
+    }
+
+    /**
+     * Builds the table routing each WLDT action key to its resource and action translator, and replaces the current one.
+     * The table is immutable, so it can be read by the incoming actions without any lock while it is being rebuilt.
+     */
+    private void rebuildActionRoutingTable() {
+        actionRoutingTable = ActionRoute.createRoutingTable(getConfiguration());
     }
 
    /**
-    * Discovers resources available on the CoAP server.
+    * Discovers resources available on the CoAP server, or on every device of a multi-device adapter.
+    * The devices are discovered in parallel, up to the configured startup concurrency.
     * <p>
     * This method performs resource discovery by either using a custom resource discovery function,
     * if provided, or by querying the CoAP server directly. It processes the discovered resources,
@@ -193,11 +719,15 @@ public class CoapPhysicalAdapter
     * are explicitly ignored.
     * </p>
     *
+    * @param useCache true to create the resources from the discovery cache when possible.
+    * @param failedServers The set collecting the servers, or the resource directory, whose discovery failed.
+    * @param executor The executor running the parallel discoveries and the cache revalidations.
+    * @return The discovered resources.
     * @throws Exception if an error occurs during resource discovery
     */
-    private void discoverResources() throws Exception {
+    private Set<PhysicalAssetResource> discoverResources(boolean useCache, Set<String> failedServers, ExecutorService executor) throws Exception {
         if (!getConfiguration().getResourceDiscoverySupport()) {
-            return;
+            return new HashSet<>();
         }
 
         logger.info("{} - CoAP physical adapter starting resource discovery", super.getId());
@@ -206,54 +736,246 @@ public class CoapPhysicalAdapter
 
         if (getConfiguration().getCustomResourceDiscoveryFunction() != null) {
             discoveredResources = getConfiguration().getCustomResourceDiscoveryFunction().get();
-        } else {
-            CoapClient client = new CoapClient(getConfiguration().getServerConnectionString());
+        } else if (getConfiguration().getResourceDirectoryUri() != null) {
+            discoveredResources = discoverResourceDirectory(failedServers);
+        } else if (getConfiguration().getMulticastDiscoveryAddress() != null) {
+            discoveredResources = discoverMulticast(executor);
+        } else if (getConfiguration().isMultiDeviceEnabled()) {
+            List<Future<Set<PhysicalAssetResource>>> discoveries = new ArrayList<>();
+            for (CoapDeviceConfigurationData device : getConfiguration().getDevices()) {
+                discoveries.add(executor.submit(() -> discoverResources(device, useCache, failedServers, executor)));
+            }
+
             discoveredResources = new HashSet<>();
+            for (Future<Set<PhysicalAssetResource>> discovery : discoveries) {
+                discoveredResources.addAll(discovery.get());
+            }
+        } else {
+            discoveredResources = discoverResources(null, useCache, failedServers, executor);
+        }
 
-            try {
-                Set<WebLink> links = client.discover();
-
-                links.forEach(link -> {
-                    // Get basic resource information
-                    String uri = link.getURI().replaceFirst("/", "");
-                    String resourceType = Optional.ofNullable(link.getAttributes().getFirstAttributeValue("rt")).orElse("");
-                    int contentType = link.getAttributes().getAttributeValues("ct").contains(Integer.toString(getConfiguration().getPreferredContentFormat())) ?
-                            getConfiguration().getPreferredContentFormat() :
-                            MediaTypeRegistry.UNDEFINED;
-                    String resourceInterface = link.getAttributes().getFirstAttributeValue("if");
-                    boolean observable = link.getAttributes().containsAttribute("obs");
-
-                    // Check POST & PUT support
-                    boolean postSupport = resourceInterface.equals("core.a");
-                    boolean putSupport = resourceInterface.equals("core.a") || resourceInterface.equals("core.p");
-
-                    // Set translators
-                    BiFunction<String, byte[], List<? extends WldtEvent<?>>> propertyTranslator = getConfiguration().getCustomPropertyBodyTranslators().containsKey(uri) ?
-                            getConfiguration().getCustomPropertyBodyTranslators().get(uri) :
-                            getConfiguration().getDefaultPropertyBodyTranslator();
-
-                    BiFunction<String, String, List<? extends WldtEvent<?>>> eventTranslator = getConfiguration().getCustomEventTranslatorsMap().containsKey(uri) ?
-                            getConfiguration().getCustomEventTranslatorsMap().get(uri) :
-                            getConfiguration().getDefaultEventTranslator();
-
-                    // Add resources
-                    discoveredResources.add(new PhysicalAssetResource(
-                            getConfiguration(),
-                            uri,
-                            resourceType,
-                            contentType,
-                            propertyTranslator,
-                            postSupport,
-                            putSupport,
-                            eventTranslator,
-                            observable));
-                });
-            } catch (ConnectorException | IOException e) {
-                logger.error("{} - CoAP physical adapter failed to discover resources", super.getId(), e);
+        return discoveredResources;
+    }
+
+    /**
+     * Discovers the resources available on a single CoAP server.
+     * If the discovery cache is enabled and holds a snapshot of the server, the resources are created from it
+     * and the snapshot is revalidated in the background.
+     * @param device The device to query, or null to query the server of a single-device adapter.
+     * @param useCache true to create the resources from the discovery cache when possible.
+     * @param failedServers The set collecting the servers whose discovery failed.
+     * @param executor The executor running the revalidation of the cached snapshot.
+     * @return The discovered resources, empty if the discovery failed.
+     */
+    private Set<PhysicalAssetResource> discoverResources(CoapDeviceConfigurationData device, boolean useCache, Set<String> failedServers, ExecutorService executor) {
+        String server = device == null ? getConfiguration().getServerConnectionString() : device.getServerConnectionString();
+
+        WellKnownCoreDiscovery discovery = createWellKnownCoreDiscovery(server);
+        DiscoveryCache cache = getConfiguration().getDiscoveryCache();
+        DiscoverySnapshot cachedSnapshot = getCachedSnapshot(cache, useCache, server);
+
+        if (cachedSnapshot != null) {
+            logger.info("{} - CoAP physical adapter loaded {} resources of {} from the discovery cache", super.getId(), cachedSnapshot.getLinks().size(), server);
+            executor.execute(() -> revalidateDiscoverySnapshot(discovery, cache, server, cachedSnapshot));
+            return createResources(device, cachedSnapshot.getLinks());
+        }
+
+        try {
+            DiscoverySnapshot snapshot = discovery.discover(null);
+            if (cache != null) {
+                cache.put(server, withDiscoverySelection(snapshot));
             }
+            return createResources(device, snapshot.getLinks());
+        } catch (ConnectorException | IOException e) {
+            logger.error("{} - CoAP physical adapter failed to discover resources on {}", super.getId(), server, e);
+            failedServers.add(server);
+            return new HashSet<>();
+        }
+    }
+
+    /**
+     * Creates the {@code /.well-known/core} discovery of a server, with the configured filters and block size.
+     */
+    private WellKnownCoreDiscovery createWellKnownCoreDiscovery(String server) {
+        return new WellKnownCoreDiscovery(
+                getConfiguration().getEndpointManager().createDiscoveryClient(server),
+                getConfiguration().getDiscoveryFilters(),
+                getConfiguration().getDiscoveryBlockSize(),
+                link -> !getConfiguration().getIgnoredResources().contains(link.getName()));
+    }
+
+    /**
+     * Discovers the servers of the local network segment with a multicast {@code /.well-known/core} request.
+     * The responses are processed in parallel on the given executor as soon as they arrive.
+     * @param executor The executor parsing the responses.
+     * @return The resources of every server that responded within the gathering window.
+     * @throws InterruptedException If the thread is interrupted while gathering the responses.
+     * @throws ExecutionException If the gathering fails.
+     */
+    private Set<PhysicalAssetResource> discoverMulticast(ExecutorService executor) throws InterruptedException, ExecutionException {
+        MulticastDiscovery discovery = new MulticastDiscovery(
+                getConfiguration().getEndpointManager().getDiscoveryEndpoint(),
+                getConfiguration().getMulticastDiscoveryAddress(),
+                getConfiguration().getMulticastDiscoveryPort(),
+                getConfiguration().getMulticastDiscoveryWindow(),
+                getConfiguration().getDiscoveryFilters(),
+                link -> !getConfiguration().getIgnoredResources().contains(link.getName()),
+                this::createWellKnownCoreDiscovery,
+                executor,
+                getConfiguration().getPollingScheduler());
+
+        Map<String, List<ResourceLink>> links = discovery.discover().get();
+        logger.info("{} - CoAP physical adapter multicast discovery found {} servers", super.getId(), links.size());
+
+        Set<PhysicalAssetResource> discoveredResources = new HashSet<>();
+        links.forEach((server, serverLinks) -> discoveredResources.addAll(createResources(getDevice(server), serverLinks)));
+
+        return discoveredResources;
+    }
+
+    /**
+     * Discovers the resources of every server registered in the configured resource directory.
+     * @param failedServers The set collecting the resource directory if the lookup failed.
+     * @return The discovered resources, empty if the lookup failed.
+     */
+    private Set<PhysicalAssetResource> discoverResourceDirectory(Set<String> failedServers) {
+        ResourceDirectoryDiscovery discovery = new ResourceDirectoryDiscovery(
+                getConfiguration().getEndpointManager().createClient(getConfiguration().getResourceDirectoryUri()),
+                getConfiguration().getResourceDirectoryPageSize(),
+                getConfiguration().getResourceDirectoryFilters());
+
+        Set<PhysicalAssetResource> discoveredResources = new HashSet<>();
+
+        try {
+            discovery.lookup().forEach((server, links) -> discoveredResources.addAll(createResources(getDevice(server), links.stream()
+                    .filter(link -> !getConfiguration().getIgnoredResources().contains(link.getName()))
+                    .collect(Collectors.toList()))));
+        } catch (ConnectorException | IOException e) {
+            logger.error("{} - CoAP physical adapter failed to look up resources on {}", super.getId(), getConfiguration().getResourceDirectoryUri(), e);
+            failedServers.add(getConfiguration().getResourceDirectoryUri());
         }
 
-        getConfiguration().getResources().addAll(discoveredResources);
+        return discoveredResources;
+    }
+
+    /**
+     * Returns the device with the given connection string.
+     * A server which is not configured as a device is managed as a new device, named after its normalized address and port.
+     * @param server The server connection string.
+     * @return The device, or null if the server is the one of a single-device adapter.
+     */
+    private CoapDeviceConfigurationData getDevice(String server) {
+        CoapDeviceConfigurationData implicitDevice = CoapDeviceConfigurationData.fromServerConnectionString(server);
+        String normalizedServer = implicitDevice.getServerConnectionString();
+
+        if (!getConfiguration().isMultiDeviceEnabled() && normalizedServer.equals(getConfiguration().getServerConnectionString())) {
+            return null;
+        }
+
+        for (CoapDeviceConfigurationData device : getConfiguration().getDevices()) {
+            if (normalizedServer.equals(device.getServerConnectionString())) {
+                return device;
+            }
+        }
+
+        return implicitDevice;
+    }
+
+    /**
+     * Revalidates a cached discovery snapshot with a conditional request on the ETag it was received with.
+     * A changed resource set replaces the cached snapshot and triggers a rediscovery, which adds and removes the changed
+     * resources once the resources created from the cache are in place.
+     */
+    private void revalidateDiscoverySnapshot(WellKnownCoreDiscovery discovery, DiscoveryCache cache, String server, DiscoverySnapshot cachedSnapshot) {
+        try {
+            DiscoverySnapshot snapshot = discovery.discover(cachedSnapshot.getETagBytes());
+
+            if (snapshot == null) {
+                logger.debug("{} - CoAP physical adapter discovery cache of {} is still valid", super.getId(), server);
+                return;
+            }
+
+            cache.put(server, withDiscoverySelection(snapshot));
+
+            if (!new HashSet<>(snapshot.getLinks()).equals(new HashSet<>(cachedSnapshot.getLinks()))) {
+                logger.warn("{} - CoAP physical adapter discovery cache of {} was outdated and has been updated", super.getId(), server);
+                startupDescribed.thenRun(this::requestRediscovery);
+            }
+        } catch (ConnectorException | IOException e) {
+            logger.warn("{} - CoAP physical adapter failed to revalidate the discovery cache of {}", super.getId(), server, e);
+        }
+    }
+
+    /**
+     * Returns the cached snapshot of a server, provided it was discovered with the current discovery filters and
+     * ignored resources: a snapshot discovered with another selection may contain excluded resources, or miss new ones.
+     * @return The cached snapshot, or null if it cannot be used.
+     */
+    private DiscoverySnapshot getCachedSnapshot(DiscoveryCache cache, boolean useCache, String server) {
+        DiscoverySnapshot cachedSnapshot = cache == null || !useCache ? null : cache.get(server);
+
+        if (cachedSnapshot != null && !cachedSnapshot.matchesSelection(getConfiguration().getDiscoveryFilters(), getConfiguration().getIgnoredResources())) {
+            logger.info("{} - CoAP physical adapter ignored the discovery cache of {}: the resource selection changed", super.getId(), server);
+            return null;
+        }
+
+        return cachedSnapshot;
+    }
+
+    /**
+     * Records in a snapshot the discovery filters and ignored resources it was discovered with.
+     */
+    private DiscoverySnapshot withDiscoverySelection(DiscoverySnapshot snapshot) {
+        return snapshot.withSelection(getConfiguration().getDiscoveryFilters(), getConfiguration().getIgnoredResources());
+    }
+
+    /**
+     * Creates the resources described by the given links.
+     * @param device The device hosting the resources, or null for the server of a single-device adapter.
+     * @param links The resource links.
+     * @return The created resources.
+     */
+    private Set<PhysicalAssetResource> createResources(CoapDeviceConfigurationData device, List<ResourceLink> links) {
+        Set<PhysicalAssetResource> resources = new HashSet<>();
+
+        links.forEach(link -> {
+            // Get basic resource information
+            String uri = link.getName();
+            String resourceType = link.getResourceType();
+            int contentType = link.getContentTypes().contains(Integer.toString(getConfiguration().getPreferredContentFormat())) ?
+                    getConfiguration().getPreferredContentFormat() :
+                    MediaTypeRegistry.UNDEFINED;
+            String resourceInterface = link.getResourceInterface();
+            boolean observable = link.isObservable();
+
+            // Check POST & PUT support
+            boolean postSupport = "core.a".equals(resourceInterface);
+            boolean putSupport = "core.a".equals(resourceInterface) || "core.p".equals(resourceInterface);
+
+            // Set translators
+            BiFunction<String, byte[], List<? extends WldtEvent<?>>> propertyTranslator = getConfiguration().getCustomPropertyBodyTranslators().containsKey(uri) ?
+                    getConfiguration().getCustomPropertyBodyTranslators().get(uri) :
+                    getConfiguration().getDefaultPropertyBodyTranslator();
+
+            BiFunction<String, String, List<? extends WldtEvent<?>>> eventTranslator = getConfiguration().getCustomEventTranslatorsMap().containsKey(uri) ?
+                    getConfiguration().getCustomEventTranslatorsMap().get(uri) :
+                    getConfiguration().getDefaultEventTranslator();
+
+            // Add resources
+            resources.add(new PhysicalAssetResource(
+                    getConfiguration(),
+                    device,
+                    uri,
+                    resourceType,
+                    contentType,
+                    propertyTranslator,
+                    postSupport,
+                    putSupport,
+                    eventTranslator,
+                    observable));
+        });
+
+        return resources;
     }
 
     /**
@@ -0,0 +1,246 @@
+package it.wldt.adapter.coap.physical.action;
+
+import org.eclipse.californium.core.CoapResponse;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.Request;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Queue of the actions of a single resource.
+ * Actions are sent in submission order, with at most the configured number of exchanges in progress at the same time,
+ * so that a burst of actions towards an unreachable actuator only waits for that actuator.
+ * <p>
+ * When coalescing is enabled, a PUT request queued right after another pending PUT replaces it, since a set-point
+ * supersedes the previous one: only the newest value is sent, and the futures of the superseded requests are
+ * completed with its response. Any other request is sent exactly once and in order.
+ * </p>
+ * <p>
+ * The number of pending actions is bounded: once the capacity is reached, either the new action is rejected or the
+ * oldest pending one is dropped, according to the {@link ActionQueueOverflowPolicy}. In both cases the future of the
+ * discarded action is completed exceptionally with a {@link RejectedExecutionException}.
+ * </p>
+ */
+public class ActionQueue {
+    private final int maxConcurrentActions;
+    private final int capacity;
+    private final ActionQueueOverflowPolicy overflowPolicy;
+    private final boolean coalescing;
+    private final Function<Request, CompletableFuture<CoapResponse>> sender;
+
+    private final Deque<PendingAction> pendingActions = new ArrayDeque<>();
+    private int inFlightActions;
+    private boolean shutdown;
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * Creates a new action queue.
+     * @param maxConcurrentActions The maximum number of exchanges in progress at the same time.
+     * @param capacity The maximum number of pending actions.
+     * @param overflowPolicy The behaviour when the capacity is reached.
+     * @param coalescing true to replace a pending PUT request with a newer one.
+     * @param sender The function sending a request and returning the future of its response.
+     */
+    public ActionQueue(int maxConcurrentActions, int capacity, ActionQueueOverflowPolicy overflowPolicy, boolean coalescing,
+                       Function<Request, CompletableFuture<CoapResponse>> sender) {
+        this.maxConcurrentActions = maxConcurrentActions;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.coalescing = coalescing;
+        this.sender = sender;
+    }
+
+    /**
+     * Queues an action request, sending it as soon as the concurrency limit allows it.
+     * @param request The action request.
+     * @return The future completed with the response of the request, or with the response of the PUT request
+     * which superseded it.
+     */
+    public CompletableFuture<CoapResponse> submit(Request request) {
+        CompletableFuture<CoapResponse> future = new CompletableFuture<>();
+        PendingAction discardedAction = null;
+        boolean rejected = false;
+
+        submittedCount.incrementAndGet();
+
+        synchronized (this) {
+            PendingAction lastAction = pendingActions.peekLast();
+
+            if (shutdown) {
+                rejected = true;
+            } else if (coalescing && request.getCode() == CoAP.Code.PUT &&
+                lastAction != null && lastAction.request.getCode() == CoAP.Code.PUT) {
+                lastAction.request = request;
+                lastAction.futures.add(future);
+                coalescedCount.incrementAndGet();
+            } else if (pendingActions.size() >= capacity && overflowPolicy == ActionQueueOverflowPolicy.REJECT_NEW) {
+                rejected = true;
+            } else {
+                if (pendingActions.size() >= capacity) {
+                    discardedAction = pendingActions.pollFirst();
+                }
+                pendingActions.addLast(new PendingAction(request, future));
+            }
+        }
+
+        if (rejected) {
+            rejectedCount.incrementAndGet();
+            future.completeExceptionally(new RejectedExecutionException(isShutdown() ? "CoAP action queue is shut down" : "CoAP action queue is full"));
+        }
+        if (discardedAction != null) {
+            droppedCount.incrementAndGet();
+            discardedAction.completeExceptionally(new RejectedExecutionException("CoAP action dropped from full queue"));
+        }
+
+        drain();
+
+        return future;
+    }
+
+    /**
+     * Discards the pending actions and rejects the following ones, completing their futures exceptionally with a
+     * {@link CancellationException}. The actions already sent are left to complete.
+     */
+    public void shutdown() {
+        List<PendingAction> discardedActions;
+
+        synchronized (this) {
+            shutdown = true;
+            discardedActions = new ArrayList<>(pendingActions);
+            pendingActions.clear();
+        }
+
+        discardedActions.forEach(action -> action.completeExceptionally(new CancellationException("CoAP action queue shut down")));
+    }
+
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * @return The number of actions waiting to be sent.
+     */
+    public synchronized int getPendingActions() {
+        return pendingActions.size();
+    }
+
+    /**
+     * @return The number of actions sent and still waiting for their response.
+     */
+    public synchronized int getInFlightActions() {
+        return inFlightActions;
+    }
+
+    /**
+     * @return The number of actions submitted to the queue.
+     */
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    /**
+     * @return The number of requests actually sent.
+     */
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    /**
+     * @return The number of PUT requests superseded by a newer one before being sent.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return The number of pending actions discarded to make room for newer ones.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return The number of actions rejected because the queue was full.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Sends the pending actions allowed by the concurrency limit.
+     * The requests are sent outside the lock, since a sender may complete the exchange on the calling thread.
+     */
+    private void drain() {
+        List<PendingAction> startedActions = new ArrayList<>();
+
+        synchronized (this) {
+            while (inFlightActions < maxConcurrentActions && !pendingActions.isEmpty()) {
+                inFlightActions++;
+                startedActions.add(pendingActions.pollFirst());
+            }
+        }
+
+        startedActions.forEach(this::send);
+    }
+
+    private void send(PendingAction action) {
+        sentCount.incrementAndGet();
+
+        CompletableFuture<CoapResponse> exchange;
+        try {
+            exchange = sender.apply(action.request);
+        } catch (Exception e) {
+            exchange = new CompletableFuture<>();
+            exchange.completeExceptionally(e);
+        }
+
+        exchange.whenComplete((response, error) -> {
+            synchronized (this) {
+                inFlightActions--;
+            }
+
+            if (error != null) {
+                action.completeExceptionally(error);
+            } else {
+                action.complete(response);
+            }
+
+            drain();
+        });
+    }
+
+    /**
+     * Action waiting to be sent, together with the futures of the requests it superseded.
+     * The fields are only modified while holding the queue lock, and the action is no longer modified once sent.
+     */
+    private static class PendingAction {
+        private Request request;
+        private final List<CompletableFuture<CoapResponse>> futures = new ArrayList<>();
+
+        private PendingAction(Request request, CompletableFuture<CoapResponse> future) {
+            this.request = request;
+            this.futures.add(future);
+        }
+
+        private void complete(CoapResponse response) {
+            futures.forEach(future -> future.complete(response));
+        }
+
+        private void completeExceptionally(Throwable error) {
+            futures.forEach(future -> future.completeExceptionally(error));
+        }
+    }
+}
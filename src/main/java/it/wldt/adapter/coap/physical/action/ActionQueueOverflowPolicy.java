@@ -0,0 +1,15 @@
+package it.wldt.adapter.coap.physical.action;
+
+/**
+ * What the {@link ActionQueue} does when the pending actions of a resource reach the queue capacity.
+ */
+public enum ActionQueueOverflowPolicy {
+    /**
+     * The new action is rejected.
+     */
+    REJECT_NEW,
+    /**
+     * The oldest pending action is discarded to make room for the new one.
+     */
+    DROP_OLDEST
+}
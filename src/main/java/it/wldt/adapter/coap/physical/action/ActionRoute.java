@@ -0,0 +1,53 @@
+package it.wldt.adapter.coap.physical.action;
+
+import it.wldt.adapter.coap.physical.configuration.CoapPhysicalAdapterConfiguration;
+import it.wldt.adapter.coap.physical.model.PhysicalAssetResource;
+import it.wldt.adapter.physical.event.PhysicalAssetActionWldtEvent;
+import org.eclipse.californium.core.coap.Request;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Entry of the action routing table of the adapter.
+ * It associates a WLDT action key with the resource receiving the action and the translator already resolved for it.
+ */
+public class ActionRoute {
+    private final PhysicalAssetResource resource;
+    private final Function<PhysicalAssetActionWldtEvent<?>, Request> translator;
+
+    public ActionRoute(PhysicalAssetResource resource, Function<PhysicalAssetActionWldtEvent<?>, Request> translator) {
+        this.resource = resource;
+        this.translator = translator;
+    }
+
+    public PhysicalAssetResource getResource() {
+        return resource;
+    }
+
+    public Function<PhysicalAssetActionWldtEvent<?>, Request> getTranslator() {
+        return translator;
+    }
+
+    /**
+     * Builds the table routing the WLDT action key of each configured resource to the resource and its action translator:
+     * the custom translator of the resource if any, the default one otherwise.
+     * @param configuration The adapter configuration providing the resources and the translators.
+     * @return The immutable routing table.
+     */
+    public static Map<String, ActionRoute> createRoutingTable(CoapPhysicalAdapterConfiguration configuration) {
+        Map<String, ActionRoute> routes = new HashMap<>();
+
+        configuration.getResources().forEach(resource -> {
+            Function<PhysicalAssetActionWldtEvent<?>, Request> translator = configuration.getCustomActionEventTranslators().containsKey(resource.getName()) ?
+                    configuration.getCustomActionEventTranslators().get(resource.getName()) :
+                    configuration.getDefaultActionEventTranslator();
+
+            routes.put(resource.getWldtKey(), new ActionRoute(resource, translator));
+        });
+
+        return Collections.unmodifiableMap(routes);
+    }
+}
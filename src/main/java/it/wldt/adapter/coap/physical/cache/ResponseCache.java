@@ -0,0 +1,213 @@
+package it.wldt.adapter.coap.physical.cache;
+
+import org.eclipse.californium.core.CoapResponse;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.OptionSet;
+import org.eclipse.californium.core.coap.Response;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adapter-wide cache of the responses to the GET requests of the resources, fresh until their Max-Age expires.
+ * <p>
+ * Only the responses carrying an explicit Max-Age option are cached, since the CoAP default of 60 seconds is not a
+ * freshness guarantee given by the server. Both the number of entries and the total size of their payloads are
+ * bounded: when either bound is exceeded the least recently used entries are evicted, while expired entries are
+ * removed as soon as they are looked up.
+ * </p>
+ */
+public class ResponseCache {
+    private final int capacity;
+    private final long maxBytes;
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Creates a new response cache, bounded by the number of its entries only.
+     * @param capacity The maximum number of cached responses.
+     */
+    public ResponseCache(int capacity) {
+        this(capacity, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a new response cache.
+     * @param capacity The maximum number of cached responses.
+     * @param maxBytes The maximum total size (in bytes) of the cached payloads.
+     */
+    public ResponseCache(int capacity, long maxBytes) {
+        this.capacity = capacity;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cached response of a resource if it is still fresh.
+     * @param key The key of the resource.
+     * @return The fresh response, or null if the resource has no fresh cached response.
+     */
+    public synchronized CoapResponse get(String key) {
+        CachedResponse cached = entries.get(key);
+
+        if (cached != null && cached.expiration - System.nanoTime() <= 0) {
+            remove(key);
+            cached = null;
+        }
+
+        if (cached == null) {
+            missCount++;
+            return null;
+        }
+
+        hitCount++;
+        return cached.response;
+    }
+
+    /**
+     * Caches the response of a resource, if it is successful, carries a positive Max-Age and fits in the cache.
+     * @param key The key of the resource.
+     * @param response The received response.
+     */
+    public synchronized void put(String key, CoapResponse response) {
+        Long maxAge = getMaxAge(response);
+        remove(key);
+
+        if (maxAge == null || maxAge <= 0 || response.getCode() != CoAP.ResponseCode.CONTENT || getSize(response) > maxBytes) {
+            return;
+        }
+
+        entries.put(key, new CachedResponse(response, getExpiration(maxAge)));
+        bytes += getSize(response);
+
+        Iterator<CachedResponse> eldest = entries.values().iterator();
+        while (entries.size() > capacity || bytes > maxBytes) {
+            bytes -= getSize(eldest.next().response);
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Extends the freshness of the cached response of a resource after the server confirmed it with a 2.03 Valid response.
+     * @param key The key of the resource.
+     * @param response The received Valid response.
+     * @return A 2.05 Content response rebuilt from the cached one, carrying the Max-Age and ETag of the Valid response,
+     * or null if the resource has no cached response.
+     */
+    public synchronized CoapResponse revalidate(String key, CoapResponse response) {
+        CachedResponse cached = entries.get(key);
+        Long maxAge = getMaxAge(response);
+
+        if (cached == null) {
+            return null;
+        }
+        if (maxAge == null || maxAge <= 0) {
+            remove(key);
+        } else {
+            cached.expiration = getExpiration(maxAge);
+        }
+
+        Response content = new Response(CoAP.ResponseCode.CONTENT);
+        content.setOptions(new OptionSet(cached.response.getOptions()));
+        content.setPayload(cached.response.getPayload());
+        if (maxAge == null) {
+            content.getOptions().removeMaxAge();
+        } else {
+            content.getOptions().setMaxAge(maxAge);
+        }
+        if (!response.getOptions().getETags().isEmpty()) {
+            content.getOptions().clearETags().addETag(response.getOptions().getETags().get(0));
+        }
+        return new CoapResponse(content) { };
+    }
+
+    /**
+     * Removes the cached response of a resource, e.g. after an action changed its state.
+     * @param key The key of the resource.
+     */
+    public synchronized void invalidate(String key) {
+        remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return The total size (in bytes) of the cached payloads.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return The number of cached responses, including the expired ones which were not looked up yet.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The number of lookups served by a fresh cached response.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return The number of lookups which found no fresh cached response.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return The number of fresh responses evicted because the cache was full.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    private void remove(String key) {
+        CachedResponse removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= getSize(removed.response);
+        }
+    }
+
+    private static long getSize(CoapResponse response) {
+        return response.getPayload() == null ? 0 : response.getPayload().length;
+    }
+
+    private static Long getMaxAge(CoapResponse response) {
+        return response.getOptions().hasMaxAge() ? response.getOptions().getMaxAge() : null;
+    }
+
+    private static long getExpiration(long maxAge) {
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(maxAge);
+    }
+
+    private static class CachedResponse {
+        private final CoapResponse response;
+        private long expiration;
+
+        private CachedResponse(CoapResponse response, long expiration) {
+            this.response = response;
+            this.expiration = expiration;
+        }
+    }
+}
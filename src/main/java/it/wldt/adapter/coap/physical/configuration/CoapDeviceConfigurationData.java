@@ -0,0 +1,102 @@
+package it.wldt.adapter.coap.physical.configuration;
+
+import org.eclipse.californium.core.coap.CoAP;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+
+/**
+ * Serializable configuration of a single CoAP device managed by a multi-device CoAP physical adapter.
+ * The identifier is used to namespace the WLDT keys of the device resources.
+ */
+public class CoapDeviceConfigurationData {
+    private String id;
+    private String ip;
+    private int port;
+
+    public CoapDeviceConfigurationData() { }
+
+    public CoapDeviceConfigurationData(String id, String ip, int port) {
+        this.id = id;
+        this.ip = ip;
+        this.port = port;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    public void setIp(String ip) {
+        this.ip = ip;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public String getServerConnectionString() {
+        return toServerConnectionString(ip, port);
+    }
+
+    /**
+     * Creates the configuration of a server which is not configured as a device, e.g. one found by the multicast discovery
+     * or in a resource directory. The device is named after the normalized address and port of the server, so that
+     * every spelling of the same IPv6 address gives the same identifier, e.g. {@code [0:0:0:0:0:0:0:1]-5683}.
+     * @param server The server connection string, e.g. {@code coap://[::1]:5683}.
+     * @return The device configuration.
+     */
+    public static CoapDeviceConfigurationData fromServerConnectionString(String server) {
+        URI uri = URI.create(server);
+        String host = normalizeHost(uri.getHost());
+        int port = uri.getPort() < 0 ? CoAP.DEFAULT_COAP_PORT : uri.getPort();
+
+        return new CoapDeviceConfigurationData(String.format("%s-%d", isIpv6Literal(host) ? "[" + host + "]" : host, port), host, port);
+    }
+
+    /**
+     * Builds the connection string of a server, enclosing an IPv6 address in brackets.
+     * IPv6 addresses are normalized, so that the connection strings of the same server can be compared.
+     * @param host The server address or host name, optionally enclosed in brackets if it is an IPv6 address.
+     * @param port The server port.
+     * @return The server connection string.
+     */
+    public static String toServerConnectionString(String host, int port) {
+        String normalizedHost = normalizeHost(host);
+        return String.format("coap://%s:%d", isIpv6Literal(normalizedHost) ? "[" + normalizedHost + "]" : normalizedHost, port);
+    }
+
+    private static String normalizeHost(String host) {
+        if (host == null) {
+            return null;
+        }
+
+        String literal = host.startsWith("[") && host.endsWith("]") ? host.substring(1, host.length() - 1) : host;
+        if (!isIpv6Literal(literal)) {
+            return literal;
+        }
+
+        try {
+            // A literal address is parsed without any name lookup
+            return InetAddress.getByName(literal).getHostAddress();
+        } catch (UnknownHostException e) {
+            return literal;
+        }
+    }
+
+    private static boolean isIpv6Literal(String host) {
+        return host != null && host.contains(":");
+    }
+}
@@ -1,18 +1,38 @@
 package it.wldt.adapter.coap.physical.configuration;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import it.wldt.adapter.coap.physical.action.ActionQueueOverflowPolicy;
+import it.wldt.adapter.coap.physical.cache.ResponseCache;
+import it.wldt.adapter.coap.physical.discovery.DiscoveryCache;
+import it.wldt.adapter.coap.physical.dispatch.NotificationDispatcher;
+import it.wldt.adapter.coap.physical.dispatch.NotificationDropPolicy;
+import it.wldt.adapter.coap.physical.network.CoapEndpointManager;
 import it.wldt.adapter.coap.physical.model.PhysicalAssetResource;
 import it.wldt.adapter.coap.physical.model.PhysicalAssetResourceListener;
+import it.wldt.adapter.coap.physical.polling.InFlightRequestLimiter;
+import it.wldt.adapter.coap.physical.polling.PollingPhasePolicy;
+import it.wldt.adapter.coap.physical.polling.PollingPriority;
+import it.wldt.adapter.coap.physical.polling.PollingScheduler;
 import it.wldt.adapter.physical.PhysicalAssetDescription;
 import it.wldt.adapter.physical.event.PhysicalAssetActionWldtEvent;
 import it.wldt.core.event.WldtEvent;
 import org.eclipse.californium.core.CoapResponse;
 import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.config.CoapConfig;
+import org.eclipse.californium.elements.config.Configuration;
+import org.eclipse.californium.elements.config.UdpConfig;
 
 import java.io.*;
 import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -24,7 +44,7 @@ import java.util.function.Supplier;
 public class CoapPhysicalAdapterConfiguration {
     private final PhysicalAssetDescription pad = new PhysicalAssetDescription();
 
-    private Set<PhysicalAssetResource> resources = new HashSet<>();
+    private Set<PhysicalAssetResource> resources = ConcurrentHashMap.newKeySet();
     private final Map<String, String> resourceKeyNameAssociationMap = new HashMap<>();
 
     CoapPhysicalAdapterConfigurationData configurationData;
@@ -48,6 +68,40 @@ public class CoapPhysicalAdapterConfiguration {
     private Function<Request, CoapResponse> customPropertyRequestFunction;  // WLDT property (GET request)
     private Function<Request, CoapResponse> customActionRequestFunction;    // WLDT action (POST/PUT request)
 
+    // SHARED POLLING SCHEDULER
+    private PollingScheduler pollingScheduler;
+    private InFlightRequestLimiter inFlightRequestLimiter;
+
+    // ACTION EXECUTOR
+    private ExecutorService actionExecutor;
+
+    // RESPONSE CACHE
+    private ResponseCache responseCache;
+
+    // NOTIFICATION DISPATCH
+    private NotificationDispatcher notificationDispatcher;
+
+    // SHARED ENDPOINTS
+    private CoapEndpointManager endpointManager;
+
+    // DISCOVERY CACHE
+    private DiscoveryCache discoveryCache;
+
+    // Set once the shared components are shut down, so that late callbacks cannot create them again
+    private boolean closed;
+
+    // YAML SOURCE
+    private static final Set<String> RELOADABLE_KEYS = new HashSet<>(Arrays.asList(
+            "autoUpdateInterval", "customAutoUpdateIntervals", "resourceTypeAutoUpdateIntervals",
+            "customPollingPriorities", "resourceTypePollingPriorities", "pollingJitter", "asyncPollingSupport",
+            "adaptivePollingSupport", "adaptivePollingMinInterval", "adaptivePollingMaxInterval", "adaptivePollingBackoffFactor",
+            "conditionalPollingSupport", "observationWatchdogInterval", "observationDeadline", "observationFallbackPollingSupport",
+            "ignoredResources", "preferredContentFormat", "discoveryFilters", "rediscoveryInterval"));
+
+    private File yamlFile;
+    private long yamlLastModified;
+    private long yamlLength;
+    private JsonNode yamlSnapshot;
 
     protected CoapPhysicalAdapterConfiguration(String ip, int port) {
         this.configurationData = new CoapPhysicalAdapterConfigurationData(ip, port);
@@ -64,11 +118,25 @@ public class CoapPhysicalAdapterConfiguration {
      * @throws IOException If an error occurs while reading the YAML file.
      */
     public static CoapPhysicalAdapterConfigurationBuilder fromYaml(File yamlConfig) throws IOException {
+        long lastModified = yamlConfig.lastModified();
+        long length = yamlConfig.length();
+        CoapPhysicalAdapterConfigurationData configurationData = readYaml(yamlConfig);
+
+        CoapPhysicalAdapterConfigurationBuilder builder = new CoapPhysicalAdapterConfigurationBuilder(configurationData);
+        builder.configuration.yamlFile = yamlConfig;
+        builder.configuration.yamlLastModified = lastModified;
+        builder.configuration.yamlLength = length;
+        builder.configuration.yamlSnapshot = new ObjectMapper().valueToTree(configurationData);
+
+        return builder;
+    }
+
+    private static CoapPhysicalAdapterConfigurationData readYaml(File yamlConfig) throws IOException {
         try(InputStream inputStream = Files.newInputStream(yamlConfig.toPath())) {
             ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
             mapper.findAndRegisterModules();
 
-            return new CoapPhysicalAdapterConfigurationBuilder(mapper.readValue(inputStream, CoapPhysicalAdapterConfigurationData.class));
+            return mapper.readValue(inputStream, CoapPhysicalAdapterConfigurationData.class);
         }
     }
 
@@ -91,7 +159,21 @@ public class CoapPhysicalAdapterConfiguration {
     }
 
     public String getServerConnectionString() {
-        return String.format("coap://%s:%d", configurationData.getIp(), configurationData.getPort());
+        return CoapDeviceConfigurationData.toServerConnectionString(configurationData.getIp(), configurationData.getPort());
+    }
+
+    /**
+     * @return The devices managed by the adapter, empty if the adapter only manages the server set in the constructor.
+     */
+    public List<CoapDeviceConfigurationData> getDevices() {
+        return configurationData.getDevices();
+    }
+
+    /**
+     * @return true if the adapter manages a list of devices instead of a single server.
+     */
+    public boolean isMultiDeviceEnabled() {
+        return !configurationData.getDevices().isEmpty();
     }
 
     public boolean getResourceDiscoverySupport() {
@@ -133,6 +215,205 @@ public class CoapPhysicalAdapterConfiguration {
         return pad;
     }
 
+    /**
+     * Removes every property, event, action and relationship from the Physical Asset Description, together with the
+     * resource keys, so that the adapter can be started again with the same configuration.
+     */
+    public void clearPhysicalAssetDescription() {
+        pad.getProperties().clear();
+        pad.getEvents().clear();
+        pad.getActions().clear();
+        pad.getRelationships().clear();
+        resourceKeyNameAssociationMap.clear();
+    }
+
+    public int getStartupConcurrency() {
+        return configurationData.getStartupConcurrency();
+    }
+
+    public long getShutdownTimeout() {
+        return configurationData.getShutdownTimeout();
+    }
+
+    public boolean isEarlyBindingEnabled() {
+        return configurationData.getEarlyBindingSupport();
+    }
+
+    public long getConfigurationReloadInterval() {
+        return configurationData.getConfigurationReloadInterval();
+    }
+
+    /**
+     * @return The YAML file the configuration was created from, or null if it was created with the builder.
+     */
+    public File getYamlFile() {
+        return yamlFile;
+    }
+
+    /**
+     * Reads the YAML file again if it changed since the last read, and applies to the live configuration the changed
+     * keys which can be applied while the adapter is running: polling intervals and priorities, adaptive and conditional
+     * polling, observation watchdog, ignored resources, preferred content format, discovery filters and rediscovery
+     * interval. The other changed keys are ignored, and the builder settings of the keys not changed in the file are kept.
+     * @return The applied and ignored keys, empty if the file did not change.
+     * @throws IOException If the file cannot be read.
+     * @throws CoapPhysicalAdapterConfigurationException If the new configuration is not valid, in which case nothing is applied.
+     */
+    public synchronized CoapPhysicalAdapterConfigurationChanges reloadYaml() throws IOException, CoapPhysicalAdapterConfigurationException {
+        Set<String> appliedKeys = new TreeSet<>();
+        Set<String> ignoredKeys = new TreeSet<>();
+
+        if (yamlFile == null || yamlFile.lastModified() == yamlLastModified && yamlFile.length() == yamlLength) {
+            return new CoapPhysicalAdapterConfigurationChanges(appliedKeys, ignoredKeys);
+        }
+
+        long lastModified = yamlFile.lastModified();
+        long length = yamlFile.length();
+        CoapPhysicalAdapterConfigurationData reloadedData = readYaml(yamlFile);
+
+        // The file is not read again until its next change, even if the new content is invalid
+        yamlLastModified = lastModified;
+        yamlLength = length;
+
+        new CoapPhysicalAdapterConfigurationBuilder(reloadedData).validateData();
+
+        JsonNode reloadedSnapshot = new ObjectMapper().valueToTree(reloadedData);
+        Iterator<String> keys = reloadedSnapshot.fieldNames();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (!Objects.equals(yamlSnapshot.get(key), reloadedSnapshot.get(key))) {
+                (RELOADABLE_KEYS.contains(key) ? appliedKeys : ignoredKeys).add(key);
+            }
+        }
+
+        appliedKeys.forEach(key -> applyReloadedKey(key, reloadedData));
+        yamlSnapshot = reloadedSnapshot;
+
+        return new CoapPhysicalAdapterConfigurationChanges(appliedKeys, ignoredKeys);
+    }
+
+    /**
+     * Copies a reloaded key into the live configuration data.
+     * Collections are replaced rather than modified, since they may be read concurrently by the polling threads.
+     */
+    private void applyReloadedKey(String key, CoapPhysicalAdapterConfigurationData reloadedData) {
+        switch (key) {
+            case "autoUpdateInterval":
+                configurationData.setAutoUpdateInterval(reloadedData.getAutoUpdateInterval());
+                break;
+            case "customAutoUpdateIntervals":
+                configurationData.setCustomAutoUpdateIntervals(new TreeMap<>(reloadedData.getCustomAutoUpdateIntervals()));
+                break;
+            case "resourceTypeAutoUpdateIntervals":
+                configurationData.setResourceTypeAutoUpdateIntervals(new TreeMap<>(reloadedData.getResourceTypeAutoUpdateIntervals()));
+                break;
+            case "customPollingPriorities":
+                configurationData.setCustomPollingPriorities(new TreeMap<>(reloadedData.getCustomPollingPriorities()));
+                break;
+            case "resourceTypePollingPriorities":
+                configurationData.setResourceTypePollingPriorities(new TreeMap<>(reloadedData.getResourceTypePollingPriorities()));
+                break;
+            case "pollingJitter":
+                configurationData.setPollingJitter(reloadedData.getPollingJitter());
+                break;
+            case "asyncPollingSupport":
+                configurationData.setAsyncPollingSupport(reloadedData.getAsyncPollingSupport());
+                break;
+            case "adaptivePollingSupport":
+                configurationData.setAdaptivePollingSupport(reloadedData.getAdaptivePollingSupport());
+                break;
+            case "adaptivePollingMinInterval":
+                configurationData.setAdaptivePollingMinInterval(reloadedData.getAdaptivePollingMinInterval());
+                break;
+            case "adaptivePollingMaxInterval":
+                configurationData.setAdaptivePollingMaxInterval(reloadedData.getAdaptivePollingMaxInterval());
+                break;
+            case "adaptivePollingBackoffFactor":
+                configurationData.setAdaptivePollingBackoffFactor(reloadedData.getAdaptivePollingBackoffFactor());
+                break;
+            case "conditionalPollingSupport":
+                configurationData.setConditionalPollingSupport(reloadedData.getConditionalPollingSupport());
+                break;
+            case "observationWatchdogInterval":
+                configurationData.setObservationWatchdogInterval(reloadedData.getObservationWatchdogInterval());
+                break;
+            case "observationDeadline":
+                configurationData.setObservationDeadline(reloadedData.getObservationDeadline());
+                break;
+            case "observationFallbackPollingSupport":
+                configurationData.setObservationFallbackPollingSupport(reloadedData.getObservationFallbackPollingSupport());
+                break;
+            case "ignoredResources":
+                configurationData.setIgnoredResources(new ArrayList<>(reloadedData.getIgnoredResources()));
+                break;
+            case "preferredContentFormat":
+                configurationData.setPreferredContentFormat(reloadedData.getPreferredContentFormat());
+                break;
+            case "discoveryFilters":
+                configurationData.setDiscoveryFilters(new TreeMap<>(reloadedData.getDiscoveryFilters()));
+                break;
+            case "rediscoveryInterval":
+                configurationData.setRediscoveryInterval(reloadedData.getRediscoveryInterval());
+                break;
+            default:
+                break;
+        }
+    }
+
+    public long getRediscoveryInterval() {
+        return configurationData.getRediscoveryInterval();
+    }
+
+    public Map<String, String> getDiscoveryFilters() {
+        return configurationData.getDiscoveryFilters();
+    }
+
+    public int getDiscoveryBlockSize() {
+        return configurationData.getDiscoveryBlockSize();
+    }
+
+    public String getDiscoveryCacheFile() {
+        return configurationData.getDiscoveryCacheFile();
+    }
+
+    /**
+     * Returns the on-disk discovery cache, loaded at the first invocation.
+     * @return The discovery cache, or null if no cache file is configured.
+     */
+    public synchronized DiscoveryCache getDiscoveryCache() {
+        if (configurationData.getDiscoveryCacheFile() == null) {
+            return null;
+        }
+        if (discoveryCache == null) {
+            discoveryCache = new DiscoveryCache(new File(configurationData.getDiscoveryCacheFile()));
+        }
+        return discoveryCache;
+    }
+
+    public String getMulticastDiscoveryAddress() {
+        return configurationData.getMulticastDiscoveryAddress();
+    }
+
+    public int getMulticastDiscoveryPort() {
+        return configurationData.getMulticastDiscoveryPort();
+    }
+
+    public long getMulticastDiscoveryWindow() {
+        return configurationData.getMulticastDiscoveryWindow();
+    }
+
+    public String getResourceDirectoryUri() {
+        return configurationData.getResourceDirectoryUri();
+    }
+
+    public int getResourceDirectoryPageSize() {
+        return configurationData.getResourceDirectoryPageSize();
+    }
+
+    public Map<String, String> getResourceDirectoryFilters() {
+        return configurationData.getResourceDirectoryFilters();
+    }
+
     public List<String> getIgnoredResources() {
         return configurationData.getIgnoredResources();
     }
@@ -145,6 +426,154 @@ public class CoapPhysicalAdapterConfiguration {
         return configurationData.getCustomResourceNotificationsMap();
     }
 
+    /**
+     * Checks whether the duplicate payloads of a resource have to be suppressed,
+     * looking for a value configured for the resource name and falling back to the default one.
+     * @param resourceName The resource name.
+     * @return true if the change filter is enabled for the resource.
+     */
+    public boolean isChangeFilterEnabled(String resourceName) {
+        return this.configurationData.getCustomChangeFilterSupportMap().containsKey(resourceName) ?
+                this.configurationData.getCustomChangeFilterSupportMap().get(resourceName) :
+                this.configurationData.getChangeFilterSupport();
+    }
+
+    public long getChangeFilterHeartbeatInterval() {
+        return configurationData.getChangeFilterHeartbeatInterval();
+    }
+
+    public int getNotificationDispatchThreads() {
+        return configurationData.getNotificationDispatchThreads();
+    }
+
+    public int getNotificationDispatchQueueCapacity() {
+        return configurationData.getNotificationDispatchQueueCapacity();
+    }
+
+    public NotificationDropPolicy getNotificationDispatchDropPolicy() {
+        return configurationData.getNotificationDispatchDropPolicy();
+    }
+
+    /**
+     * Returns the dispatcher used to handle the received responses and notifications outside the Californium threads.
+     * The dispatcher is created at the first invocation, or after a previous one has been shut down.
+     * Once the shared components are shut down, the last dispatcher is returned, which discards every dispatched task.
+     * @return The shared notification dispatcher, or null if the dispatch stage is disabled.
+     */
+    public synchronized NotificationDispatcher getNotificationDispatcher() {
+        if (configurationData.getNotificationDispatchThreads() <= 0) {
+            return null;
+        }
+        if (!closed && (notificationDispatcher == null || notificationDispatcher.isShutdown())) {
+            notificationDispatcher = new NotificationDispatcher(
+                    configurationData.getNotificationDispatchThreads(),
+                    configurationData.getNotificationDispatchQueueCapacity(),
+                    configurationData.getNotificationDispatchDropPolicy());
+        }
+        return notificationDispatcher;
+    }
+
+    /**
+     * Shuts down the notification dispatcher, discarding the pending notifications.
+     */
+    public synchronized void shutdownNotificationDispatcher() {
+        if (notificationDispatcher != null) {
+            notificationDispatcher.shutdown();
+            notificationDispatcher = null;
+        }
+    }
+
+    public int getEndpointCount() {
+        return configurationData.getEndpointCount();
+    }
+
+    public int getEndpointProtocolThreads() {
+        return configurationData.getEndpointProtocolThreads();
+    }
+
+    public int getUdpReceiverThreads() {
+        return configurationData.getUdpReceiverThreads();
+    }
+
+    public int getUdpSenderThreads() {
+        return configurationData.getUdpSenderThreads();
+    }
+
+    public int getUdpReceiveBufferSize() {
+        return configurationData.getUdpReceiveBufferSize();
+    }
+
+    public int getUdpSendBufferSize() {
+        return configurationData.getUdpSendBufferSize();
+    }
+
+    public String getCaliforniumConfigurationFile() {
+        return configurationData.getCaliforniumConfigurationFile();
+    }
+
+    /**
+     * Returns the endpoint pool shared by all the resources of the adapter.
+     * The pool is created at the first invocation, or after a previous one has been shut down.
+     * @return The shared endpoint pool.
+     * @throws RejectedExecutionException If the shared components are shut down.
+     */
+    public synchronized CoapEndpointManager getEndpointManager() {
+        if (closed) {
+            throw new RejectedExecutionException("CoAP physical adapter shared components are shut down");
+        }
+        if (endpointManager == null || endpointManager.isShutdown()) {
+            try {
+                endpointManager = new CoapEndpointManager(
+                        configurationData.getEndpointCount(),
+                        configurationData.getEndpointProtocolThreads(),
+                        createCaliforniumConfiguration());
+            } catch (IOException e) {
+                throw new UncheckedIOException("CoAP physical adapter failed to create its endpoints", e);
+            }
+        }
+        return endpointManager;
+    }
+
+    /**
+     * Destroys the shared endpoints, cancelling every pending exchange and observation.
+     */
+    public synchronized void shutdownEndpointManager() {
+        if (endpointManager != null) {
+            endpointManager.shutdown();
+            endpointManager = null;
+        }
+    }
+
+    /**
+     * Creates the Californium configuration of the shared endpoints.
+     * The optional configuration file is loaded first, then the thread counts and UDP buffer sizes of the adapter
+     * configuration are applied over it.
+     * @return The Californium configuration.
+     */
+    private Configuration createCaliforniumConfiguration() {
+        CoapConfig.register();
+        UdpConfig.register();
+
+        Configuration californiumConfiguration = Configuration.createStandardWithoutFile();
+
+        if (configurationData.getCaliforniumConfigurationFile() != null) {
+            californiumConfiguration.load(new File(configurationData.getCaliforniumConfigurationFile()));
+        }
+
+        californiumConfiguration.set(CoapConfig.PROTOCOL_STAGE_THREAD_COUNT, configurationData.getEndpointProtocolThreads());
+        californiumConfiguration.set(UdpConfig.UDP_RECEIVER_THREAD_COUNT, configurationData.getUdpReceiverThreads());
+        californiumConfiguration.set(UdpConfig.UDP_SENDER_THREAD_COUNT, configurationData.getUdpSenderThreads());
+
+        if (configurationData.getUdpReceiveBufferSize() > 0) {
+            californiumConfiguration.set(UdpConfig.UDP_RECEIVE_BUFFER_SIZE, configurationData.getUdpReceiveBufferSize());
+        }
+        if (configurationData.getUdpSendBufferSize() > 0) {
+            californiumConfiguration.set(UdpConfig.UDP_SEND_BUFFER_SIZE, configurationData.getUdpSendBufferSize());
+        }
+
+        return californiumConfiguration;
+    }
+
     public String getEventType(String eventName) {
         return this.configurationData.getCustomWldtEventTypesMap().containsKey(eventName) ?
                 this.configurationData.getCustomWldtEventTypesMap().get(eventName) :
@@ -191,6 +620,22 @@ public class CoapPhysicalAdapterConfiguration {
         return configurationData.getObservabilitySupport();
     }
 
+    public boolean isObservationWatchdogEnabled() {
+        return configurationData.getObservationWatchdogSupport();
+    }
+
+    public long getObservationWatchdogInterval() {
+        return configurationData.getObservationWatchdogInterval();
+    }
+
+    public long getObservationDeadline() {
+        return configurationData.getObservationDeadline();
+    }
+
+    public boolean isObservationFallbackPollingEnabled() {
+        return configurationData.getObservationFallbackPollingSupport();
+    }
+
     public boolean isAutoUpdateTimerEnabled() {
         return configurationData.getAutoUpdateTimerSupport();
     }
@@ -199,6 +644,204 @@ public class CoapPhysicalAdapterConfiguration {
         return configurationData.getAutoUpdateInterval();
     }
 
+    /**
+     * Returns the polling interval of a resource, looking for a value configured for the resource name,
+     * then for the resource type, and finally falling back to the default polling interval.
+     * @param resourceName The resource name.
+     * @param resourceType The resource type.
+     * @return The polling interval (in milliseconds).
+     */
+    public long getAutoUpdateInterval(String resourceName, String resourceType) {
+        if (this.configurationData.getCustomAutoUpdateIntervals().containsKey(resourceName)) {
+            return this.configurationData.getCustomAutoUpdateIntervals().get(resourceName);
+        }
+        if (resourceType != null && this.configurationData.getResourceTypeAutoUpdateIntervals().containsKey(resourceType)) {
+            return this.configurationData.getResourceTypeAutoUpdateIntervals().get(resourceType);
+        }
+        return this.configurationData.getAutoUpdateInterval();
+    }
+
+    /**
+     * Returns the polling priority of a resource, looking for a value configured for the resource name,
+     * then for the resource type, and finally falling back to {@link PollingPriority#NORMAL}.
+     * @param resourceName The resource name.
+     * @param resourceType The resource type.
+     * @return The polling priority.
+     */
+    public PollingPriority getPollingPriority(String resourceName, String resourceType) {
+        if (this.configurationData.getCustomPollingPriorities().containsKey(resourceName)) {
+            return this.configurationData.getCustomPollingPriorities().get(resourceName);
+        }
+        if (resourceType != null && this.configurationData.getResourceTypePollingPriorities().containsKey(resourceType)) {
+            return this.configurationData.getResourceTypePollingPriorities().get(resourceType);
+        }
+        return PollingPriority.NORMAL;
+    }
+
+    public Map<String, Long> getCustomAutoUpdateIntervals() {
+        return configurationData.getCustomAutoUpdateIntervals();
+    }
+
+    public Map<String, Long> getResourceTypeAutoUpdateIntervals() {
+        return configurationData.getResourceTypeAutoUpdateIntervals();
+    }
+
+    public Map<String, PollingPriority> getCustomPollingPriorities() {
+        return configurationData.getCustomPollingPriorities();
+    }
+
+    public Map<String, PollingPriority> getResourceTypePollingPriorities() {
+        return configurationData.getResourceTypePollingPriorities();
+    }
+
+    public int getPollingSchedulerThreads() {
+        return configurationData.getPollingSchedulerThreads();
+    }
+
+    /**
+     * Returns the polling scheduler shared by all the resources of the adapter.
+     * The scheduler is created at the first invocation, or after a previous one has been shut down.
+     * @return The shared polling scheduler.
+     * @throws RejectedExecutionException If the shared components are shut down.
+     */
+    public synchronized PollingScheduler getPollingScheduler() {
+        if (closed) {
+            throw new RejectedExecutionException("CoAP physical adapter shared components are shut down");
+        }
+        if (pollingScheduler == null || pollingScheduler.isShutdown()) {
+            pollingScheduler = new PollingScheduler(configurationData.getPollingSchedulerThreads());
+        }
+        return pollingScheduler;
+    }
+
+    /**
+     * Releases every component shared by the resources of the adapter: endpoints, polling scheduler, action executor,
+     * notification dispatcher, in-flight request limiter and response cache. The endpoints are destroyed first, so that the callbacks of the
+     * cancelled exchanges find the other components still in place, and no component is created again until
+     * {@link #openSharedComponents()} is invoked when the adapter is started again.
+     * @param timeout The maximum time (in milliseconds) to wait for the polling, action and dispatch threads to terminate.
+     * @return true if every thread terminated within the timeout.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public boolean shutdownSharedComponents(long timeout) throws InterruptedException {
+        PollingScheduler scheduler;
+        ExecutorService actions;
+        NotificationDispatcher dispatcher;
+
+        synchronized (this) {
+            closed = true;
+            scheduler = pollingScheduler;
+            actions = actionExecutor;
+            dispatcher = notificationDispatcher;
+            inFlightRequestLimiter = null;
+            responseCache = null;
+        }
+
+        shutdownEndpointManager();
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        if (actions != null) {
+            actions.shutdownNow();
+        }
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+
+        long deadline = System.currentTimeMillis() + timeout;
+        boolean terminated = scheduler == null || scheduler.awaitTermination(timeout);
+        terminated &= actions == null || actions.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        terminated &= dispatcher == null || dispatcher.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()));
+
+        return terminated;
+    }
+
+    /**
+     * Allows the shared components to be created again on their next use, after a previous shutdown.
+     */
+    public synchronized void openSharedComponents() {
+        // The permits released by the late callbacks of the previous run are discarded
+        inFlightRequestLimiter = null;
+        closed = false;
+    }
+
+    public boolean isResponseCacheEnabled() {
+        return configurationData.getResponseCacheSupport();
+    }
+
+    public int getResponseCacheCapacity() {
+        return configurationData.getResponseCacheCapacity();
+    }
+
+    public long getResponseCacheMaxBytes() {
+        return configurationData.getResponseCacheMaxBytes();
+    }
+
+    /**
+     * Returns the cache of the GET responses shared by all the resources of the adapter.
+     * @return The shared response cache, or null if the response cache is disabled.
+     */
+    public synchronized ResponseCache getResponseCache() {
+        if (closed || !configurationData.getResponseCacheSupport()) {
+            return null;
+        }
+        if (responseCache == null) {
+            responseCache = new ResponseCache(configurationData.getResponseCacheCapacity(), configurationData.getResponseCacheMaxBytes());
+        }
+        return responseCache;
+    }
+
+    public boolean isAsyncPollingEnabled() {
+        return configurationData.getAsyncPollingSupport();
+    }
+
+    public int getMaxInFlightRequests() {
+        return configurationData.getMaxInFlightRequests();
+    }
+
+    public int getMaxInFlightRequestsPerServer() {
+        return configurationData.getMaxInFlightRequestsPerServer();
+    }
+
+    public PollingPhasePolicy getPollingPhasePolicy() {
+        return configurationData.getPollingPhasePolicy();
+    }
+
+    public long getPollingJitter() {
+        return configurationData.getPollingJitter();
+    }
+
+    public boolean isAdaptivePollingEnabled() {
+        return configurationData.getAdaptivePollingSupport();
+    }
+
+    public long getAdaptivePollingMinInterval() {
+        return configurationData.getAdaptivePollingMinInterval();
+    }
+
+    public long getAdaptivePollingMaxInterval() {
+        return configurationData.getAdaptivePollingMaxInterval();
+    }
+
+    public double getAdaptivePollingBackoffFactor() {
+        return configurationData.getAdaptivePollingBackoffFactor();
+    }
+
+    public boolean isConditionalPollingEnabled() {
+        return configurationData.getConditionalPollingSupport();
+    }
+
+    /**
+     * Returns the limiter of the asynchronous polling requests shared by all the resources of the adapter.
+     * @return The shared in-flight request limiter.
+     */
+    public synchronized InFlightRequestLimiter getInFlightRequestLimiter() {
+        if (inFlightRequestLimiter == null) {
+            inFlightRequestLimiter = new InFlightRequestLimiter(configurationData.getMaxInFlightRequests(), configurationData.getMaxInFlightRequestsPerServer());
+        }
+        return inFlightRequestLimiter;
+    }
+
     public Function<Request, CoapResponse> getCustomPropertyRequestFunction() {
         return customPropertyRequestFunction;
     }
@@ -207,6 +850,52 @@ public class CoapPhysicalAdapterConfiguration {
         return customActionRequestFunction;
     }
 
+    public int getMaxConcurrentActionsPerResource() {
+        return configurationData.getMaxConcurrentActionsPerResource();
+    }
+
+    public long getActionTimeout() {
+        return configurationData.getActionTimeout();
+    }
+
+    public boolean isActionCoalescingEnabled() {
+        return configurationData.getActionCoalescingSupport();
+    }
+
+    public int getActionQueueCapacity() {
+        return configurationData.getActionQueueCapacity();
+    }
+
+    public ActionQueueOverflowPolicy getActionQueueOverflowPolicy() {
+        return configurationData.getActionQueueOverflowPolicy();
+    }
+
+    public int getActionThreads() {
+        return configurationData.getActionThreads();
+    }
+
+    /**
+     * Returns the executor shared by all the resources of the adapter to run the custom action request function and
+     * to handle the outcome of the actions, so that neither the polling threads nor the Californium threads wait for them.
+     * The executor is created at the first invocation, or after a previous one has been shut down.
+     * @return The shared action executor.
+     * @throws RejectedExecutionException If the shared components are shut down.
+     */
+    public synchronized ExecutorService getActionExecutor() {
+        if (closed) {
+            throw new RejectedExecutionException("CoAP physical adapter shared components are shut down");
+        }
+        if (actionExecutor == null || actionExecutor.isShutdown()) {
+            AtomicInteger threadCount = new AtomicInteger();
+            actionExecutor = Executors.newFixedThreadPool(configurationData.getActionThreads(), runnable -> {
+                Thread thread = new Thread(runnable, "coap-pa-action-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return actionExecutor;
+    }
+
     public Map<String, Function<PhysicalAssetActionWldtEvent<?>, Request>> getCustomActionEventTranslators() {
         return customActionEventTranslators;
     }
@@ -265,6 +954,32 @@ public class CoapPhysicalAdapterConfiguration {
         this.configurationData.getCustomWldtActionContentTypes().put(resourceName, contentType);
     }
 
+    // ASYNCHRONOUS ACTIONS
+
+    protected void setMaxConcurrentActionsPerResource(int maxConcurrentActions) {
+        this.configurationData.setMaxConcurrentActionsPerResource(maxConcurrentActions);
+    }
+
+    protected void setActionTimeout(long actionTimeout) {
+        this.configurationData.setActionTimeout(actionTimeout);
+    }
+
+    protected void setActionCoalescingSupport(boolean actionCoalescingSupport) {
+        this.configurationData.setActionCoalescingSupport(actionCoalescingSupport);
+    }
+
+    protected void setActionQueueCapacity(int capacity) {
+        this.configurationData.setActionQueueCapacity(capacity);
+    }
+
+    protected void setActionQueueOverflowPolicy(ActionQueueOverflowPolicy overflowPolicy) {
+        this.configurationData.setActionQueueOverflowPolicy(overflowPolicy);
+    }
+
+    protected void setActionThreads(int threads) {
+        this.configurationData.setActionThreads(threads);
+    }
+
     // MANUAL RESOURCE ADDITION
 
     protected void setResources(Set<PhysicalAssetResource> resources) {
@@ -277,6 +992,22 @@ public class CoapPhysicalAdapterConfiguration {
         this.configurationData.setObservabilitySupport(enable);
     }
 
+    protected void setObservationWatchdogSupport(boolean enable) {
+        this.configurationData.setObservationWatchdogSupport(enable);
+    }
+
+    protected void setObservationWatchdogInterval(long observationWatchdogInterval) {
+        this.configurationData.setObservationWatchdogInterval(observationWatchdogInterval);
+    }
+
+    protected void setObservationDeadline(long observationDeadline) {
+        this.configurationData.setObservationDeadline(observationDeadline);
+    }
+
+    protected void setObservationFallbackPollingSupport(boolean enable) {
+        this.configurationData.setObservationFallbackPollingSupport(enable);
+    }
+
     protected void setAutoUpdateTimerSupport(boolean enable) {
         this.configurationData.setAutoUpdateTimerSupport(enable);
     }
@@ -285,16 +1016,197 @@ public class CoapPhysicalAdapterConfiguration {
         this.configurationData.setAutoUpdateInterval(autoUpdateInterval);
     }
 
+    protected void addCustomAutoUpdateInterval(String resourceName, long autoUpdateInterval) {
+        this.configurationData.getCustomAutoUpdateIntervals().put(resourceName, autoUpdateInterval);
+    }
+
+    protected void addResourceTypeAutoUpdateInterval(String resourceType, long autoUpdateInterval) {
+        this.configurationData.getResourceTypeAutoUpdateIntervals().put(resourceType, autoUpdateInterval);
+    }
+
+    protected void addCustomPollingPriority(String resourceName, PollingPriority priority) {
+        this.configurationData.getCustomPollingPriorities().put(resourceName, priority);
+    }
+
+    protected void addResourceTypePollingPriority(String resourceType, PollingPriority priority) {
+        this.configurationData.getResourceTypePollingPriorities().put(resourceType, priority);
+    }
+
+    // MULTI-DEVICE
+
+    protected void addDevice(CoapDeviceConfigurationData device) {
+        this.configurationData.getDevices().add(device);
+    }
+
+    protected void setPollingSchedulerThreads(int threads) {
+        this.configurationData.setPollingSchedulerThreads(threads);
+    }
+
+    protected void setResponseCacheSupport(boolean enable) {
+        this.configurationData.setResponseCacheSupport(enable);
+    }
+
+    protected void setResponseCacheCapacity(int capacity) {
+        this.configurationData.setResponseCacheCapacity(capacity);
+    }
+
+    protected void setResponseCacheMaxBytes(long maxBytes) {
+        this.configurationData.setResponseCacheMaxBytes(maxBytes);
+    }
+
+    protected void setAsyncPollingSupport(boolean enable) {
+        this.configurationData.setAsyncPollingSupport(enable);
+    }
+
+    protected void setMaxInFlightRequests(int maxInFlightRequests) {
+        this.configurationData.setMaxInFlightRequests(maxInFlightRequests);
+    }
+
+    protected void setMaxInFlightRequestsPerServer(int maxInFlightRequestsPerServer) {
+        this.configurationData.setMaxInFlightRequestsPerServer(maxInFlightRequestsPerServer);
+    }
+
+    protected void setPollingPhasePolicy(PollingPhasePolicy pollingPhasePolicy) {
+        this.configurationData.setPollingPhasePolicy(pollingPhasePolicy);
+    }
+
+    protected void setPollingJitter(long pollingJitter) {
+        this.configurationData.setPollingJitter(pollingJitter);
+    }
+
+    protected void setAdaptivePollingSupport(boolean enable) {
+        this.configurationData.setAdaptivePollingSupport(enable);
+    }
+
+    protected void setAdaptivePollingBounds(long minInterval, long maxInterval) {
+        this.configurationData.setAdaptivePollingMinInterval(minInterval);
+        this.configurationData.setAdaptivePollingMaxInterval(maxInterval);
+    }
+
+    protected void setAdaptivePollingBackoffFactor(double backoffFactor) {
+        this.configurationData.setAdaptivePollingBackoffFactor(backoffFactor);
+    }
+
+    protected void setConditionalPollingSupport(boolean enable) {
+        this.configurationData.setConditionalPollingSupport(enable);
+    }
+
     protected void setAutomaticResourceListening(boolean enable) {
         this.configurationData.setResourceNotificationsSupport(enable);
     }
 
+    // CHANGE FILTER
+
+    protected void setChangeFilterSupport(boolean enable) {
+        this.configurationData.setChangeFilterSupport(enable);
+    }
+
+    protected void setChangeFilterHeartbeatInterval(long heartbeatInterval) {
+        this.configurationData.setChangeFilterHeartbeatInterval(heartbeatInterval);
+    }
+
+    protected void addCustomChangeFilterSupport(String resourceName, boolean enable) {
+        this.configurationData.getCustomChangeFilterSupportMap().put(resourceName, enable);
+    }
+
+    // NOTIFICATION DISPATCH
+
+    protected void setNotificationDispatchThreads(int threads) {
+        this.configurationData.setNotificationDispatchThreads(threads);
+    }
+
+    protected void setNotificationDispatchQueueCapacity(int queueCapacity) {
+        this.configurationData.setNotificationDispatchQueueCapacity(queueCapacity);
+    }
+
+    protected void setNotificationDispatchDropPolicy(NotificationDropPolicy dropPolicy) {
+        this.configurationData.setNotificationDispatchDropPolicy(dropPolicy);
+    }
+
+    // SHARED ENDPOINTS
+
+    protected void setEndpointCount(int endpointCount) {
+        this.configurationData.setEndpointCount(endpointCount);
+    }
+
+    protected void setEndpointProtocolThreads(int endpointProtocolThreads) {
+        this.configurationData.setEndpointProtocolThreads(endpointProtocolThreads);
+    }
+
+    protected void setUdpReceiverThreads(int udpReceiverThreads) {
+        this.configurationData.setUdpReceiverThreads(udpReceiverThreads);
+    }
+
+    protected void setUdpSenderThreads(int udpSenderThreads) {
+        this.configurationData.setUdpSenderThreads(udpSenderThreads);
+    }
+
+    protected void setUdpReceiveBufferSize(int udpReceiveBufferSize) {
+        this.configurationData.setUdpReceiveBufferSize(udpReceiveBufferSize);
+    }
+
+    protected void setUdpSendBufferSize(int udpSendBufferSize) {
+        this.configurationData.setUdpSendBufferSize(udpSendBufferSize);
+    }
+
+    protected void setCaliforniumConfigurationFile(String californiumConfigurationFile) {
+        this.configurationData.setCaliforniumConfigurationFile(californiumConfigurationFile);
+    }
+
     // RESOURCE DISCOVERY
 
     protected void enableResourceDiscoverySupport(boolean enable) {
         this.configurationData.setResourceDiscoverySupport(enable);
     }
 
+    protected void setStartupConcurrency(int startupConcurrency) {
+        this.configurationData.setStartupConcurrency(startupConcurrency);
+    }
+
+    protected void setShutdownTimeout(long shutdownTimeout) {
+        this.configurationData.setShutdownTimeout(shutdownTimeout);
+    }
+
+    protected void setEarlyBindingSupport(boolean enable) {
+        this.configurationData.setEarlyBindingSupport(enable);
+    }
+
+    protected void setMulticastDiscovery(String groupAddress, int port, long window) {
+        this.configurationData.setMulticastDiscoveryAddress(groupAddress);
+        this.configurationData.setMulticastDiscoveryPort(port);
+        this.configurationData.setMulticastDiscoveryWindow(window);
+    }
+
+    protected void setResourceDirectory(String lookupUri, int pageSize) {
+        this.configurationData.setResourceDirectoryUri(lookupUri);
+        this.configurationData.setResourceDirectoryPageSize(pageSize);
+    }
+
+    protected void addResourceDirectoryFilter(String attribute, String value) {
+        this.configurationData.getResourceDirectoryFilters().put(attribute, value);
+    }
+
+    protected void addDiscoveryFilter(String attribute, String value) {
+        this.configurationData.getDiscoveryFilters().put(attribute, value);
+    }
+
+    protected void setDiscoveryBlockSize(int blockSize) {
+        this.configurationData.setDiscoveryBlockSize(blockSize);
+    }
+
+    protected void setConfigurationReloadInterval(long configurationReloadInterval) {
+        this.configurationData.setConfigurationReloadInterval(configurationReloadInterval);
+    }
+
+    protected void setRediscoveryInterval(long rediscoveryInterval) {
+        this.configurationData.setRediscoveryInterval(rediscoveryInterval);
+    }
+
+    protected void setDiscoveryCacheFile(String path) {
+        this.configurationData.setDiscoveryCacheFile(path);
+        this.discoveryCache = null;
+    }
+
     protected void setCustomResourceDiscoveryFunction(Supplier<Set<PhysicalAssetResource>> customResourceDiscoveryFunction) {
         this.customResourceDiscoveryFunction = customResourceDiscoveryFunction;
     }
@@ -1,13 +1,22 @@
 package it.wldt.adapter.coap.physical.configuration;
 
+import it.wldt.adapter.coap.physical.action.ActionQueueOverflowPolicy;
+import it.wldt.adapter.coap.physical.dispatch.NotificationDropPolicy;
 import it.wldt.adapter.coap.physical.model.PhysicalAssetResource;
 import it.wldt.adapter.coap.physical.model.PhysicalAssetResourceListener;
 import it.wldt.adapter.coap.physical.model.UnprocessedResource;
+import it.wldt.adapter.coap.physical.polling.PollingPhasePolicy;
+import it.wldt.adapter.coap.physical.polling.PollingPriority;
 import it.wldt.adapter.physical.event.PhysicalAssetActionWldtEvent;
 import it.wldt.core.event.WldtEvent;
 import org.eclipse.californium.core.CoapResponse;
 import org.eclipse.californium.core.coap.Request;
 
+import java.io.File;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
 import java.util.*;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -45,23 +54,183 @@ public class CoapPhysicalAdapterConfigurationBuilder {
     }
 
     /**
-     * Builds the configuration instance by checking beforehand that everything needed is provided correctly.
-     * After checking the data is correct, it processes the manually added resources adding them to the configuration.
-     *
-     * @return The configuration instance.
-     * @throws CoapPhysicalAdapterConfigurationException In the case of the configuration being invalid.
+     * Checks the configuration data, i.e. every setting which can be read from a YAML file.
+     * @throws CoapPhysicalAdapterConfigurationException In the case of the configuration data being invalid.
      */
-    public CoapPhysicalAdapterConfiguration build() throws CoapPhysicalAdapterConfigurationException {
-        if (configuration.getIp() == null || configuration.getIp().trim().isEmpty()) {
+    void validateData() throws CoapPhysicalAdapterConfigurationException {
+        if (!configuration.isMultiDeviceEnabled() && configuration.getResourceDirectoryUri() == null && configuration.getMulticastDiscoveryAddress() == null &&
+                (configuration.getIp() == null || configuration.getIp().trim().isEmpty())) {
             throw new CoapPhysicalAdapterConfigurationException("Server address cannot be empty");
         }
         if (configuration.getPort() < 0) {
             throw new CoapPhysicalAdapterConfigurationException("Server port must be positive");
         }
+        Set<String> deviceIds = new HashSet<>();
+        for (CoapDeviceConfigurationData device : configuration.getDevices()) {
+            if (device == null || device.getId() == null || device.getId().trim().isEmpty()) {
+                throw new CoapPhysicalAdapterConfigurationException("Device id cannot be empty");
+            }
+            if (!deviceIds.add(device.getId())) {
+                throw new CoapPhysicalAdapterConfigurationException("Device id " + device.getId() + " is not unique");
+            }
+            if (device.getIp() == null || device.getIp().trim().isEmpty()) {
+                throw new CoapPhysicalAdapterConfigurationException("Device address cannot be empty");
+            }
+            if (device.getPort() < 0) {
+                throw new CoapPhysicalAdapterConfigurationException("Device port must be positive");
+            }
+        }
 
         if (configuration.getAutoUpdateInterval() < 0) {
             throw new CoapPhysicalAdapterConfigurationException("Auto update interval must be positive");
         }
+        if (configuration.getObservationWatchdogInterval() <= 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Observation watchdog interval must be greater than zero");
+        }
+        if (configuration.getObservationDeadline() < 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Observation deadline must be positive");
+        }
+        if (configuration.getCustomAutoUpdateIntervals().values().stream().anyMatch(interval -> interval == null || interval <= 0) ||
+                configuration.getResourceTypeAutoUpdateIntervals().values().stream().anyMatch(interval -> interval == null || interval <= 0)) {
+            throw new CoapPhysicalAdapterConfigurationException("Custom auto update intervals must be positive");
+        }
+        if (configuration.getCustomPollingPriorities().containsValue(null) || configuration.getResourceTypePollingPriorities().containsValue(null)) {
+            throw new CoapPhysicalAdapterConfigurationException("Polling priorities cannot be null");
+        }
+        if (configuration.getPollingSchedulerThreads() <= 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Polling scheduler threads must be greater than zero");
+        }
+        if (configuration.getMaxInFlightRequests() <= 0 || configuration.getMaxInFlightRequestsPerServer() <= 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Maximum in-flight requests must be greater than zero");
+        }
+        if (configuration.getResponseCacheCapacity() <= 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Response cache capacity must be greater than zero");
+        }
+        if (configuration.getResponseCacheMaxBytes() <= 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Response cache maximum size must be greater than zero");
+        }
+        if (configuration.getPollingPhasePolicy() == null) {
+            throw new CoapPhysicalAdapterConfigurationException("Polling phase policy cannot be null");
+        }
+        if (configuration.getPollingJitter() < 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Polling jitter must be positive");
+        }
+        if (configuration.getAdaptivePollingMinInterval() <= 0 || configuration.getAdaptivePollingMaxInterval() < configuration.getAdaptivePollingMinInterval()) {
+            throw new CoapPhysicalAdapterConfigurationException("Adaptive polling bounds must be positive with the maximum not lower than the minimum");
+        }
+        if (configuration.getAdaptivePollingBackoffFactor() < 1.0) {
+            throw new CoapPhysicalAdapterConfigurationException("Adaptive polling back-off factor cannot be lower than 1");
+        }
+
+        if (configuration.getMaxConcurrentActionsPerResource() <= 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Concurrent actions per resource must be greater than zero");
+        }
+        if (configuration.getActionTimeout() < 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Action timeout must be positive");
+        }
+        if (configuration.getActionQueueCapacity() <= 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Action queue capacity must be greater than zero");
+        }
+        if (configuration.getActionThreads() <= 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Action threads must be greater than zero");
+        }
+        if (configuration.getActionQueueOverflowPolicy() == null) {
+            throw new CoapPhysicalAdapterConfigurationException("Action queue overflow policy cannot be null");
+        }
+        if (configuration.getChangeFilterHeartbeatInterval() < 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Change filter heartbeat interval must be positive");
+        }
+        if (configuration.getNotificationDispatchThreads() < 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Notification dispatch threads must be positive");
+        }
+        if (configuration.getNotificationDispatchQueueCapacity() <= 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Notification dispatch queue capacity must be greater than zero");
+        }
+        if (configuration.getNotificationDispatchDropPolicy() == null) {
+            throw new CoapPhysicalAdapterConfigurationException("Notification dispatch drop policy cannot be null");
+        }
+        if (configuration.getResourceDirectoryUri() != null) {
+            try {
+                URI lookupUri = new URI(configuration.getResourceDirectoryUri());
+                if (!"coap".equals(lookupUri.getScheme()) && !"coaps".equals(lookupUri.getScheme()) || lookupUri.getHost() == null) {
+                    throw new CoapPhysicalAdapterConfigurationException("Resource directory URI must be an absolute CoAP URI");
+                }
+            } catch (URISyntaxException e) {
+                throw new CoapPhysicalAdapterConfigurationException("Resource directory URI is not valid");
+            }
+        }
+        if (configuration.getMulticastDiscoveryAddress() != null) {
+            try {
+                if (!InetAddress.getByName(configuration.getMulticastDiscoveryAddress()).isMulticastAddress()) {
+                    throw new CoapPhysicalAdapterConfigurationException("Multicast discovery address must be a multicast group address");
+                }
+            } catch (UnknownHostException e) {
+                throw new CoapPhysicalAdapterConfigurationException("Multicast discovery address is not valid");
+            }
+        }
+        if (configuration.getMulticastDiscoveryPort() <= 0 || configuration.getMulticastDiscoveryPort() > 65535) {
+            throw new CoapPhysicalAdapterConfigurationException("Multicast discovery port must be between 1 and 65535");
+        }
+        if (configuration.getMulticastDiscoveryWindow() <= 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Multicast discovery window must be greater than zero");
+        }
+        if (configuration.getResourceDirectoryPageSize() <= 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Resource directory page size must be greater than zero");
+        }
+        if (configuration.getResourceDirectoryFilters().keySet().stream().anyMatch(attribute -> attribute == null || attribute.trim().isEmpty()) ||
+                configuration.getResourceDirectoryFilters().containsValue(null)) {
+            throw new CoapPhysicalAdapterConfigurationException("Resource directory filters cannot be empty");
+        }
+        if (configuration.getDiscoveryFilters().keySet().stream().anyMatch(attribute -> attribute == null || attribute.trim().isEmpty()) ||
+                configuration.getDiscoveryFilters().containsValue(null)) {
+            throw new CoapPhysicalAdapterConfigurationException("Discovery filters cannot be empty");
+        }
+        if (configuration.getDiscoveryBlockSize() < 16 || configuration.getDiscoveryBlockSize() > 1024 ||
+                Integer.bitCount(configuration.getDiscoveryBlockSize()) != 1) {
+            throw new CoapPhysicalAdapterConfigurationException("Discovery block size must be a power of two between 16 and 1024");
+        }
+        if (configuration.getRediscoveryInterval() < 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Rediscovery interval must be positive");
+        }
+        if (configuration.getShutdownTimeout() < 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Shutdown timeout cannot be negative");
+        }
+        if (configuration.getStartupConcurrency() <= 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Startup concurrency must be greater than zero");
+        }
+        if (configuration.getEndpointCount() <= 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Endpoint count must be greater than zero");
+        }
+        if (configuration.getEndpointProtocolThreads() <= 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Endpoint protocol threads must be greater than zero");
+        }
+        if (configuration.getUdpReceiverThreads() <= 0 || configuration.getUdpSenderThreads() <= 0) {
+            throw new CoapPhysicalAdapterConfigurationException("UDP receiver and sender threads must be greater than zero");
+        }
+        if (configuration.getUdpReceiveBufferSize() < 0 || configuration.getUdpSendBufferSize() < 0) {
+            throw new CoapPhysicalAdapterConfigurationException("UDP buffer sizes must be positive");
+        }
+        if (configuration.getCaliforniumConfigurationFile() != null && !new File(configuration.getCaliforniumConfigurationFile()).isFile()) {
+            throw new CoapPhysicalAdapterConfigurationException("Californium configuration file does not exist");
+        }
+    }
+
+    /**
+     * Builds the configuration instance by checking beforehand that everything needed is provided correctly.
+     * After checking the data is correct, it processes the manually added resources adding them to the configuration.
+     *
+     * @return The configuration instance.
+     * @throws CoapPhysicalAdapterConfigurationException In the case of the configuration being invalid.
+     */
+    public CoapPhysicalAdapterConfiguration build() throws CoapPhysicalAdapterConfigurationException {
+        validateData();
+
+        if (configuration.getConfigurationReloadInterval() < 0) {
+            throw new CoapPhysicalAdapterConfigurationException("Configuration reload interval must be positive");
+        }
+        if (configuration.getConfigurationReloadInterval() > 0 && configuration.getYamlFile() == null) {
+            throw new CoapPhysicalAdapterConfigurationException("Configuration reload requires a configuration created from a YAML file");
+        }
 
         if (configuration.getDefaultEventTranslator() == null ||
                 configuration.getDefaultActionEventTranslator() == null ||
@@ -179,6 +348,62 @@ public class CoapPhysicalAdapterConfigurationBuilder {
         return this;
     }
 
+    /**
+     * Sets the maximum number of action requests sent to the same resource and still waiting for a response.
+     * Further actions are queued and sent in order as soon as the previous exchanges complete.
+     * @param maxConcurrentActions The maximum number of concurrent actions of each resource.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setMaxConcurrentActionsPerResource(int maxConcurrentActions) {
+        configuration.setMaxConcurrentActionsPerResource(maxConcurrentActions);
+        return this;
+    }
+
+    /**
+     * Sets the time after which an action request without response is cancelled and reported as failed.
+     * @param actionTimeoutMs The action timeout (in milliseconds), 0 to wait for the CoAP exchange to complete or fail.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setActionTimeout(long actionTimeoutMs) {
+        configuration.setActionTimeout(actionTimeoutMs);
+        return this;
+    }
+
+    /**
+     * Sets the number of threads shared by all the resources to run the custom action request function
+     * and to notify the outcome of the actions.
+     * @param threads The number of action threads.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setActionThreads(int threads) {
+        configuration.setActionThreads(threads);
+        return this;
+    }
+
+    /**
+     * Enables or disables the coalescing of PUT actions.
+     * When enabled, a PUT request queued right after another pending PUT to the same resource replaces it,
+     * so that only the newest set-point is sent once the previous exchange completes. POST requests are never coalesced.
+     * @param enableCoalescing true to enable the coalescing of PUT actions.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder enableActionCoalescing(boolean enableCoalescing) {
+        configuration.setActionCoalescingSupport(enableCoalescing);
+        return this;
+    }
+
+    /**
+     * Sets the bound of the action queue of each resource.
+     * @param capacity The maximum number of pending actions of each resource.
+     * @param overflowPolicy What to do with a new action when the queue is full.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setActionQueue(int capacity, ActionQueueOverflowPolicy overflowPolicy) {
+        configuration.setActionQueueCapacity(capacity);
+        configuration.setActionQueueOverflowPolicy(overflowPolicy);
+        return this;
+    }
+
     /**
      * Sets the default WLDT action content type for CoAP resources supporting both POST and PUT requests.
      * @param actuatorActionContentType The WLDT action type
@@ -245,6 +470,42 @@ public class CoapPhysicalAdapterConfigurationBuilder {
         return this;
     }
 
+    /**
+     * Enables/disables the observation watchdog.
+     * If enabled the adapter periodically checks that every observe relation is still delivering notifications,
+     * and registers it again when it becomes stale.
+     * @param enable A flag indicating whether to enable or disable the observation watchdog.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder enableObservationWatchdog(boolean enable) {
+        configuration.setObservationWatchdogSupport(enable);
+        return this;
+    }
+
+    /**
+     * Sets the timing of the observation watchdog.
+     * @param checkIntervalMs The interval (in milliseconds) between two checks of the observe relations.
+     * @param deadlineMs The time (in milliseconds) without notifications after which a relation is stale,
+     *                   0 to use the Max-Age of the last notification plus one check interval.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setObservationWatchdogTiming(long checkIntervalMs, long deadlineMs) {
+        configuration.setObservationWatchdogInterval(checkIntervalMs);
+        configuration.setObservationDeadline(deadlineMs);
+        return this;
+    }
+
+    /**
+     * Enables/disables the polling of the resources whose observe relation is being recovered by the observation watchdog.
+     * The fallback polling stops as soon as the new relation delivers its first notification.
+     * @param enable A flag indicating whether to enable or disable the fallback polling.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder enableObservationFallbackPolling(boolean enable) {
+        configuration.setObservationFallbackPollingSupport(enable);
+        return this;
+    }
+
     /**
      * Enables/disables the automatic polling process of the Physical Adapter.
      * @param enable A flag indicating whether to enable or disable the polling.
@@ -265,6 +526,174 @@ public class CoapPhysicalAdapterConfigurationBuilder {
         return this;
     }
 
+    /**
+     * Sets the polling interval of a specific resource, overriding the default and the resource type ones.
+     * @param resourceName The resource name.
+     * @param autoUpdateIntervalMs The polling interval (in milliseconds).
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder addCustomAutoUpdateInterval(String resourceName, long autoUpdateIntervalMs) {
+        configuration.addCustomAutoUpdateInterval(resourceName, autoUpdateIntervalMs);
+        return this;
+    }
+
+    /**
+     * Sets the polling interval of all the resources having the given resource type (<code>rt</code>), overriding the default one.
+     * @param resourceType The resource type.
+     * @param autoUpdateIntervalMs The polling interval (in milliseconds).
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder addResourceTypeAutoUpdateInterval(String resourceType, long autoUpdateIntervalMs) {
+        configuration.addResourceTypeAutoUpdateInterval(resourceType, autoUpdateIntervalMs);
+        return this;
+    }
+
+    /**
+     * Sets the polling priority of a specific resource, overriding the resource type one.
+     * @param resourceName The resource name.
+     * @param priority The polling priority.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder addCustomPollingPriority(String resourceName, PollingPriority priority) {
+        configuration.addCustomPollingPriority(resourceName, priority);
+        return this;
+    }
+
+    /**
+     * Sets the polling priority of all the resources having the given resource type (<code>rt</code>).
+     * @param resourceType The resource type.
+     * @param priority The polling priority.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder addResourceTypePollingPriority(String resourceType, PollingPriority priority) {
+        configuration.addResourceTypePollingPriority(resourceType, priority);
+        return this;
+    }
+
+    /**
+     * Sets the number of threads of the polling scheduler shared by all the resources.
+     * @param threads The number of polling threads.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setPollingSchedulerThreads(int threads) {
+        configuration.setPollingSchedulerThreads(threads);
+        return this;
+    }
+
+    /**
+     * Enables/disables the asynchronous polling mode.
+     * If enabled the polling threads send the GET requests without waiting for the responses,
+     * which are handled as soon as they arrive.
+     * @param enable A flag indicating whether to enable or disable the asynchronous polling.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder enableAsyncPolling(boolean enable) {
+        configuration.setAsyncPollingSupport(enable);
+        return this;
+    }
+
+    /**
+     * Enables/disables the response cache of the GET requests.
+     * While the last response of a resource is fresh according to its explicit Max-Age, polls and reads of the resource
+     * are served by the cache without sending a request.
+     * @param enable A flag indicating whether to enable or disable the response cache.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder enableResponseCache(boolean enable) {
+        configuration.setResponseCacheSupport(enable);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of responses held by the response cache, the least recently used being evicted first.
+     * @param capacity The response cache capacity.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setResponseCacheCapacity(int capacity) {
+        configuration.setResponseCacheCapacity(capacity);
+        return this;
+    }
+
+    /**
+     * Sets the maximum total size of the payloads held by the response cache, the least recently used being evicted first.
+     * @param maxBytes The maximum size (in bytes) of the cached payloads.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setResponseCacheMaxBytes(long maxBytes) {
+        configuration.setResponseCacheMaxBytes(maxBytes);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of asynchronous polling requests waiting for a response.
+     * When a limit is reached the poll is skipped until a response arrives or the request times out.
+     * @param maxInFlightRequests The maximum number of in-flight requests of the adapter.
+     * @param maxInFlightRequestsPerServer The maximum number of in-flight requests to the same server.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setMaxInFlightRequests(int maxInFlightRequests, int maxInFlightRequestsPerServer) {
+        configuration.setMaxInFlightRequests(maxInFlightRequests);
+        configuration.setMaxInFlightRequestsPerServer(maxInFlightRequestsPerServer);
+        return this;
+    }
+
+    /**
+     * Sets how the polls of the resources are distributed across the polling interval.
+     * @param policy The policy placing the first poll of each resource inside the polling interval.
+     * @param jitterMs The maximum random deviation (in milliseconds) applied to every polling delay, 0 to disable it.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setPollingPhasePolicy(PollingPhasePolicy policy, long jitterMs) {
+        configuration.setPollingPhasePolicy(policy);
+        configuration.setPollingJitter(jitterMs);
+        return this;
+    }
+
+    /**
+     * Enables/disables the adaptive polling.
+     * If enabled the polling interval of each resource grows while its payload does not change, shrinks when it changes,
+     * and is never lower than the Max-Age returned by the server.
+     * @param enable A flag indicating whether to enable or disable the adaptive polling.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder enableAdaptivePolling(boolean enable) {
+        configuration.setAdaptivePollingSupport(enable);
+        return this;
+    }
+
+    /**
+     * Sets the bounds of the adaptive polling interval.
+     * @param minIntervalMs The minimum polling interval (in milliseconds).
+     * @param maxIntervalMs The maximum polling interval (in milliseconds).
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setAdaptivePollingBounds(long minIntervalMs, long maxIntervalMs) {
+        configuration.setAdaptivePollingBounds(minIntervalMs, maxIntervalMs);
+        return this;
+    }
+
+    /**
+     * Sets the factor by which the adaptive polling interval grows on an unchanged payload and shrinks on a changed one.
+     * @param backoffFactor The back-off factor, not lower than 1.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setAdaptivePollingBackoffFactor(double backoffFactor) {
+        configuration.setAdaptivePollingBackoffFactor(backoffFactor);
+        return this;
+    }
+
+    /**
+     * Enables/disables the conditional polling.
+     * If enabled each resource sends the last ETag received from the server with its GET requests,
+     * and a 2.03 Valid response is accepted without notifying any property change.
+     * @param enable A flag indicating whether to enable or disable the conditional polling.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder enableConditionalPolling(boolean enable) {
+        configuration.setConditionalPollingSupport(enable);
+        return this;
+    }
+
     /**
      * Enables/disables the automatic resource listening process of the Physical Adapter.
      * If enabled the Adapter will listen to every resource for both property updates and events.
@@ -287,6 +716,110 @@ public class CoapPhysicalAdapterConfigurationBuilder {
         return this;
     }
 
+    /**
+     * Enables/disables the change filter of every resource.
+     * If enabled a received payload identical to the last delivered one is neither translated nor published,
+     * unless the heartbeat interval has elapsed since the last delivery.
+     * @param enable A flag indicating whether to enable or disable the change filter.
+     * @param heartbeatIntervalMs The interval (in milliseconds) after which a duplicate payload is published anyway, 0 to never publish duplicates.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder enableChangeFilter(boolean enable, long heartbeatIntervalMs) {
+        configuration.setChangeFilterSupport(enable);
+        configuration.setChangeFilterHeartbeatInterval(heartbeatIntervalMs);
+        return this;
+    }
+
+    /**
+     * Enables/disables the change filter only for the specified resource.
+     * @param resourceName The resource name.
+     * @param enable A flag indicating whether to enable or disable the change filter.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder addCustomChangeFilterSupport(String resourceName, boolean enable) {
+        configuration.addCustomChangeFilterSupport(resourceName, enable);
+        return this;
+    }
+
+    /**
+     * Sets the number of threads which translate and publish the received responses and notifications,
+     * instead of the Californium protocol threads.
+     * The notifications of each resource are handled in order, while different resources are handled in parallel.
+     * @param threads The number of dispatch threads, 0 to handle the notifications on the Californium threads.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setNotificationDispatchThreads(int threads) {
+        configuration.setNotificationDispatchThreads(threads);
+        return this;
+    }
+
+    /**
+     * Sets the bound of the queue of notifications waiting to be handled for each resource.
+     * @param queueCapacity The maximum number of queued notifications of each resource.
+     * @param dropPolicy What to do when the queue of a resource is full.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setNotificationDispatchQueue(int queueCapacity, NotificationDropPolicy dropPolicy) {
+        configuration.setNotificationDispatchQueueCapacity(queueCapacity);
+        configuration.setNotificationDispatchDropPolicy(dropPolicy);
+        return this;
+    }
+
+    /**
+     * Adds a device to be managed by the adapter.
+     * Once at least one device is added, the resources are discovered on every device instead of the server set in the
+     * constructor, and the WLDT keys of their properties, events and actions are prefixed with the device id.
+     * Polling, observation and actions of all the devices run on the shared scheduler, dispatcher and endpoints.
+     * @param id The device identifier, unique within the adapter.
+     * @param ip The device address.
+     * @param port The device port.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder addDevice(String id, String ip, int port) {
+        configuration.addDevice(new CoapDeviceConfigurationData(id, ip, port));
+        return this;
+    }
+
+    /**
+     * Sets the number of CoAP endpoints shared by all the resources and the threads running their protocol stages.
+     * Each endpoint is bound to its own ephemeral UDP port, and the resources are assigned to them in round-robin order.
+     * @param endpointCount The number of shared endpoints.
+     * @param protocolThreads The number of protocol threads shared by the endpoints.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setEndpointPool(int endpointCount, int protocolThreads) {
+        configuration.setEndpointCount(endpointCount);
+        configuration.setEndpointProtocolThreads(protocolThreads);
+        return this;
+    }
+
+    /**
+     * Sets the UDP connector threads and socket buffer sizes of the shared endpoints.
+     * @param receiverThreads The number of UDP receiver threads of each endpoint.
+     * @param senderThreads The number of UDP sender threads of each endpoint.
+     * @param receiveBufferSize The UDP receive buffer size (in bytes), 0 to use the system default.
+     * @param sendBufferSize The UDP send buffer size (in bytes), 0 to use the system default.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setUdpConnector(int receiverThreads, int senderThreads, int receiveBufferSize, int sendBufferSize) {
+        configuration.setUdpReceiverThreads(receiverThreads);
+        configuration.setUdpSenderThreads(senderThreads);
+        configuration.setUdpReceiveBufferSize(receiveBufferSize);
+        configuration.setUdpSendBufferSize(sendBufferSize);
+        return this;
+    }
+
+    /**
+     * Sets a Californium configuration file loaded by the shared endpoints.
+     * The thread counts and UDP buffer sizes set through the builder are applied over the file values.
+     * @param path The path of the Californium properties file.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setCaliforniumConfigurationFile(String path) {
+        configuration.setCaliforniumConfigurationFile(path);
+        return this;
+    }
+
     /**
      * Enables/disables the resource discovery process.
      * @param enable A flag indicating whether to enable or disable the resource discovery process.
@@ -297,6 +830,137 @@ public class CoapPhysicalAdapterConfigurationBuilder {
         return this;
     }
 
+    /**
+     * Sets the number of devices discovered and of observe requests sent in parallel while the adapter starts.
+     * An observe request counts until it gets its first response or fails.
+     * @param startupConcurrency The maximum number of parallel discoveries and observe registrations.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setStartupConcurrency(int startupConcurrency) {
+        configuration.setStartupConcurrency(startupConcurrency);
+        return this;
+    }
+
+    /**
+     * Enables/disables the early binding of the adapter.
+     * When enabled, the Physical Asset Description is bound as soon as the discovery completes,
+     * while the observe relations are established in the background.
+     * @param enable A flag indicating whether to enable or disable the early binding.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder enableEarlyBinding(boolean enable) {
+        configuration.setEarlyBindingSupport(enable);
+        return this;
+    }
+
+    /**
+     * Sets the time given to the in-flight exchanges to complete when the adapter stops.
+     * Once it expires, the remaining exchanges are cancelled together with the endpoints.
+     * @param shutdownTimeoutMs The shutdown timeout (in milliseconds).
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setShutdownTimeout(long shutdownTimeoutMs) {
+        configuration.setShutdownTimeout(shutdownTimeoutMs);
+        return this;
+    }
+
+    /**
+     * Adds an attribute filter to the {@code /.well-known/core} discovery, sent as query parameter and applied by the server.
+     * @param attribute The link attribute, e.g. {@code rt}, {@code if} or {@code href}.
+     * @param value The value of the attribute, possibly ending with a {@code *} wildcard.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder addDiscoveryFilter(String attribute, String value) {
+        configuration.addDiscoveryFilter(attribute, value);
+        return this;
+    }
+
+    /**
+     * Sets the block size of the {@code /.well-known/core} discovery.
+     * The document is requested and parsed block by block, so the memory used by the discovery does not grow with its size.
+     * @param blockSize The preferred block size (in bytes), a power of two between 16 and 1024.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setDiscoveryBlockSize(int blockSize) {
+        configuration.setDiscoveryBlockSize(blockSize);
+        return this;
+    }
+
+    /**
+     * Sets the interval of the periodic resource discovery.
+     * At each rediscovery the discovered resources are compared with the current ones: only the observation and polling
+     * of the added and removed resources are started or stopped, and the updated Physical Asset Description is published.
+     * @param rediscoveryIntervalMs The rediscovery interval (in milliseconds), 0 to discover the resources only at startup.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setRediscoveryInterval(long rediscoveryIntervalMs) {
+        configuration.setRediscoveryInterval(rediscoveryIntervalMs);
+        return this;
+    }
+
+    /**
+     * Sets the interval between two checks of the YAML file the configuration was created from.
+     * When the file changes, the changed polling, observation and discovery settings are applied to the running adapter:
+     * only the affected resources are rescheduled, started or stopped.
+     * @param configurationReloadIntervalMs The reload interval (in milliseconds), 0 to read the file only once.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setConfigurationReloadInterval(long configurationReloadIntervalMs) {
+        configuration.setConfigurationReloadInterval(configurationReloadIntervalMs);
+        return this;
+    }
+
+    /**
+     * Sets the file of the discovery cache.
+     * When set, the links discovered on each server are stored in the file, and the next start creates the resources
+     * from them without waiting for the discovery, revalidating them in the background with the ETag of
+     * the {@code /.well-known/core} document.
+     * @param path The path of the discovery cache file, null to disable the cache.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setDiscoveryCacheFile(String path) {
+        configuration.setDiscoveryCacheFile(path);
+        return this;
+    }
+
+    /**
+     * Enables the multicast discovery of the servers of the local network segment.
+     * A {@code /.well-known/core} request is sent to the multicast group and the resources of every server responding
+     * within the gathering window are created, each server other than the one set in the constructor being managed as a device.
+     * @param groupAddress The multicast group address, e.g. the All-CoAP-Nodes group {@code 224.0.1.187}.
+     * @param port The CoAP port of the servers.
+     * @param window The time (in milliseconds) during which the responses are gathered.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setMulticastDiscovery(String groupAddress, int port, long window) {
+        configuration.setMulticastDiscovery(groupAddress, port, window);
+        return this;
+    }
+
+    /**
+     * Sets a CoRE Resource Directory (RFC 9176) used to discover the resources instead of the servers {@code /.well-known/core}.
+     * The resources of every server registered in the directory are found with a paged lookup, and each server
+     * other than the one set in the constructor is managed as a device, matched by address with the added devices.
+     * @param lookupUri The resource lookup URI of the directory, e.g. {@code coap://rd.local/rd-lookup/res}.
+     * @param pageSize The number of links requested in each page.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder setResourceDirectory(String lookupUri, int pageSize) {
+        configuration.setResourceDirectory(lookupUri, pageSize);
+        return this;
+    }
+
+    /**
+     * Adds an attribute filter to the resource directory lookup, applied by the directory itself.
+     * @param attribute The link attribute, e.g. {@code rt} or {@code if}.
+     * @param value The value of the attribute, possibly ending with a {@code *} wildcard.
+     * @return The builder instance.
+     */
+    public CoapPhysicalAdapterConfigurationBuilder addResourceDirectoryFilter(String attribute, String value) {
+        configuration.addResourceDirectoryFilter(attribute, value);
+        return this;
+    }
+
     /**
      * Sets a custom resource discovery function that will be used instead of the default standard one.
      * @param customResourceDiscoveryFunction A supplier returning a set of <code>{@link PhysicalAssetResource}</code> instances.
@@ -309,6 +973,7 @@ public class CoapPhysicalAdapterConfigurationBuilder {
 
     /**
      * Sets a list of resources which will be ignored by the default resource discovery.
+     * The resources are discarded while the discovery response is parsed.
      * This list will be ignored if a custom resource discovery is used.
      * @param ignoredResources A list containing the names of the resources to ignore.
      * @return The builder instance.
@@ -0,0 +1,31 @@
+package it.wldt.adapter.coap.physical.configuration;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Keys changed in the YAML configuration file since it was last read.
+ * The applied keys have been copied into the live configuration, while the ignored ones can only be applied by
+ * creating the adapter again.
+ */
+public class CoapPhysicalAdapterConfigurationChanges {
+    private final Set<String> appliedKeys;
+    private final Set<String> ignoredKeys;
+
+    public CoapPhysicalAdapterConfigurationChanges(Set<String> appliedKeys, Set<String> ignoredKeys) {
+        this.appliedKeys = Collections.unmodifiableSet(appliedKeys);
+        this.ignoredKeys = Collections.unmodifiableSet(ignoredKeys);
+    }
+
+    public Set<String> getAppliedKeys() {
+        return appliedKeys;
+    }
+
+    public Set<String> getIgnoredKeys() {
+        return ignoredKeys;
+    }
+
+    public boolean isEmpty() {
+        return appliedKeys.isEmpty() && ignoredKeys.isEmpty();
+    }
+}
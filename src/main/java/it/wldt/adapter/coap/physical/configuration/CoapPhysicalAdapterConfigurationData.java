@@ -1,7 +1,11 @@
 package it.wldt.adapter.coap.physical.configuration;
 
 import it.wldt.adapter.coap.physical.CoapPhysicalAdapter;
+import it.wldt.adapter.coap.physical.action.ActionQueueOverflowPolicy;
+import it.wldt.adapter.coap.physical.dispatch.NotificationDropPolicy;
 import it.wldt.adapter.coap.physical.model.PhysicalAssetResourceListener;
+import it.wldt.adapter.coap.physical.polling.PollingPhasePolicy;
+import it.wldt.adapter.coap.physical.polling.PollingPriority;
 import org.eclipse.californium.core.coap.MediaTypeRegistry;
 
 import java.util.*;
@@ -11,6 +15,8 @@ import java.util.*;
  * This class holds all the necessary serializable configuration parameters for the CoAP Physical Adapter,
  * including server information, content formats, data synchronization settings,
  * resource discovery options, and WLDT event/action types.
+ * The keys which can be reloaded from the YAML file while the adapter is running are volatile, since they are
+ * replaced by the reloading thread and read by the polling and notification threads.
  */
 public class CoapPhysicalAdapterConfigurationData {
     // COAP
@@ -18,19 +24,58 @@ public class CoapPhysicalAdapterConfigurationData {
     // -> SERVER INFO
     private String ip;
     private int port;
+    private List<CoapDeviceConfigurationData> devices = new ArrayList<>();
 
     // -> CONTENT
-    private int preferredContentFormat = MediaTypeRegistry.TEXT_PLAIN;
+    private volatile int preferredContentFormat = MediaTypeRegistry.TEXT_PLAIN;
 
     // -> DATA SYNC
     private boolean observabilitySupport = true;
     private boolean autoUpdateTimerSupport = true;
-    private long autoUpdateInterval = 5000;
+    private volatile long autoUpdateInterval = 5000;
+    private int pollingSchedulerThreads = 4;
+    private volatile boolean asyncPollingSupport = false;
+    private int maxInFlightRequests = 64;
+    private int maxInFlightRequestsPerServer = 4;
+    private boolean responseCacheSupport = false;
+    private int responseCacheCapacity = 256;
+    private long responseCacheMaxBytes = 1048576;
+    private PollingPhasePolicy pollingPhasePolicy = PollingPhasePolicy.SPREAD;
+    private volatile long pollingJitter = 0;
+    private volatile boolean adaptivePollingSupport = false;
+    private volatile long adaptivePollingMinInterval = 1000;
+    private volatile long adaptivePollingMaxInterval = 60000;
+    private volatile double adaptivePollingBackoffFactor = 2.0;
+    private volatile boolean conditionalPollingSupport = false;
+
+    private boolean observationWatchdogSupport = false;
+    private volatile long observationWatchdogInterval = 10000;
+    private volatile long observationDeadline = 0;
+    private volatile boolean observationFallbackPollingSupport = true;
+
+    private volatile Map<String, Long> customAutoUpdateIntervals = new TreeMap<>();
+    private volatile Map<String, Long> resourceTypeAutoUpdateIntervals = new TreeMap<>();
+    private volatile Map<String, PollingPriority> customPollingPriorities = new TreeMap<>();
+    private volatile Map<String, PollingPriority> resourceTypePollingPriorities = new TreeMap<>();
 
     // -> RESOURCE DISCOVERY
 
     private boolean resourceDiscoverySupport = true;
-    private List<String> ignoredResources = new ArrayList<>();
+    private volatile List<String> ignoredResources = new ArrayList<>();
+    private int startupConcurrency = 8;
+    private boolean earlyBindingSupport = false;
+    private long shutdownTimeout = 5000;
+    private String discoveryCacheFile;
+    private volatile Map<String, String> discoveryFilters = new TreeMap<>();
+    private int discoveryBlockSize = 512;
+    private volatile long rediscoveryInterval = 0;
+    private long configurationReloadInterval = 0;
+    private String resourceDirectoryUri;
+    private String multicastDiscoveryAddress;
+    private int multicastDiscoveryPort = 5683;
+    private long multicastDiscoveryWindow = 2000;
+    private int resourceDirectoryPageSize = 100;
+    private Map<String, String> resourceDirectoryFilters = new TreeMap<>();
 
     // WLDT EVENTS
 
@@ -60,6 +105,37 @@ public class CoapPhysicalAdapterConfigurationData {
     private boolean resourceNotificationsSupport = true;
     private Map<String, PhysicalAssetResourceListener.ListenerType> customResourceNotificationsMap = new TreeMap<>();
 
+    // -> ACTIONS
+
+    private int maxConcurrentActionsPerResource = 1;
+    private long actionTimeout = 30000;
+    private boolean actionCoalescingSupport = true;
+    private int actionQueueCapacity = 16;
+    private ActionQueueOverflowPolicy actionQueueOverflowPolicy = ActionQueueOverflowPolicy.REJECT_NEW;
+    private int actionThreads = 2;
+
+    // -> CHANGE FILTER
+
+    private boolean changeFilterSupport = false;
+    private long changeFilterHeartbeatInterval = 0;
+    private Map<String, Boolean> customChangeFilterSupportMap = new TreeMap<>();
+
+    // -> NOTIFICATION DISPATCH
+
+    private int notificationDispatchThreads = 0;
+    private int notificationDispatchQueueCapacity = 64;
+    private NotificationDropPolicy notificationDispatchDropPolicy = NotificationDropPolicy.DROP_OLDEST;
+
+    // -> NETWORK
+
+    private int endpointCount = 1;
+    private int endpointProtocolThreads = 4;
+    private int udpReceiverThreads = 1;
+    private int udpSenderThreads = 1;
+    private int udpReceiveBufferSize = 0;
+    private int udpSendBufferSize = 0;
+    private String californiumConfigurationFile;
+
     // CONSTRUCTORS
 
     public CoapPhysicalAdapterConfigurationData() { }
@@ -132,6 +208,14 @@ public class CoapPhysicalAdapterConfigurationData {
         return port;
     }
 
+    public List<CoapDeviceConfigurationData> getDevices() {
+        return devices;
+    }
+
+    public void setDevices(List<CoapDeviceConfigurationData> devices) {
+        this.devices = devices;
+    }
+
     public void setPort(int port) {
         this.port = port;
     }
@@ -168,6 +252,182 @@ public class CoapPhysicalAdapterConfigurationData {
         this.autoUpdateInterval = autoUpdateInterval;
     }
 
+    public int getPollingSchedulerThreads() {
+        return pollingSchedulerThreads;
+    }
+
+    public void setPollingSchedulerThreads(int pollingSchedulerThreads) {
+        this.pollingSchedulerThreads = pollingSchedulerThreads;
+    }
+
+    public boolean getResponseCacheSupport() {
+        return responseCacheSupport;
+    }
+
+    public void setResponseCacheSupport(boolean responseCacheSupport) {
+        this.responseCacheSupport = responseCacheSupport;
+    }
+
+    public int getResponseCacheCapacity() {
+        return responseCacheCapacity;
+    }
+
+    public void setResponseCacheCapacity(int responseCacheCapacity) {
+        this.responseCacheCapacity = responseCacheCapacity;
+    }
+
+    public long getResponseCacheMaxBytes() {
+        return responseCacheMaxBytes;
+    }
+
+    public void setResponseCacheMaxBytes(long responseCacheMaxBytes) {
+        this.responseCacheMaxBytes = responseCacheMaxBytes;
+    }
+
+    public boolean getAsyncPollingSupport() {
+        return asyncPollingSupport;
+    }
+
+    public void setAsyncPollingSupport(boolean asyncPollingSupport) {
+        this.asyncPollingSupport = asyncPollingSupport;
+    }
+
+    public int getMaxInFlightRequests() {
+        return maxInFlightRequests;
+    }
+
+    public void setMaxInFlightRequests(int maxInFlightRequests) {
+        this.maxInFlightRequests = maxInFlightRequests;
+    }
+
+    public int getMaxInFlightRequestsPerServer() {
+        return maxInFlightRequestsPerServer;
+    }
+
+    public void setMaxInFlightRequestsPerServer(int maxInFlightRequestsPerServer) {
+        this.maxInFlightRequestsPerServer = maxInFlightRequestsPerServer;
+    }
+
+    public PollingPhasePolicy getPollingPhasePolicy() {
+        return pollingPhasePolicy;
+    }
+
+    public void setPollingPhasePolicy(PollingPhasePolicy pollingPhasePolicy) {
+        this.pollingPhasePolicy = pollingPhasePolicy;
+    }
+
+    public long getPollingJitter() {
+        return pollingJitter;
+    }
+
+    public void setPollingJitter(long pollingJitter) {
+        this.pollingJitter = pollingJitter;
+    }
+
+    public boolean getAdaptivePollingSupport() {
+        return adaptivePollingSupport;
+    }
+
+    public void setAdaptivePollingSupport(boolean adaptivePollingSupport) {
+        this.adaptivePollingSupport = adaptivePollingSupport;
+    }
+
+    public long getAdaptivePollingMinInterval() {
+        return adaptivePollingMinInterval;
+    }
+
+    public void setAdaptivePollingMinInterval(long adaptivePollingMinInterval) {
+        this.adaptivePollingMinInterval = adaptivePollingMinInterval;
+    }
+
+    public long getAdaptivePollingMaxInterval() {
+        return adaptivePollingMaxInterval;
+    }
+
+    public void setAdaptivePollingMaxInterval(long adaptivePollingMaxInterval) {
+        this.adaptivePollingMaxInterval = adaptivePollingMaxInterval;
+    }
+
+    public double getAdaptivePollingBackoffFactor() {
+        return adaptivePollingBackoffFactor;
+    }
+
+    public void setAdaptivePollingBackoffFactor(double adaptivePollingBackoffFactor) {
+        this.adaptivePollingBackoffFactor = adaptivePollingBackoffFactor;
+    }
+
+    public boolean getConditionalPollingSupport() {
+        return conditionalPollingSupport;
+    }
+
+    public void setConditionalPollingSupport(boolean conditionalPollingSupport) {
+        this.conditionalPollingSupport = conditionalPollingSupport;
+    }
+
+    public Map<String, Long> getCustomAutoUpdateIntervals() {
+        return customAutoUpdateIntervals;
+    }
+
+    public void setCustomAutoUpdateIntervals(Map<String, Long> customAutoUpdateIntervals) {
+        this.customAutoUpdateIntervals = customAutoUpdateIntervals;
+    }
+
+    public Map<String, Long> getResourceTypeAutoUpdateIntervals() {
+        return resourceTypeAutoUpdateIntervals;
+    }
+
+    public void setResourceTypeAutoUpdateIntervals(Map<String, Long> resourceTypeAutoUpdateIntervals) {
+        this.resourceTypeAutoUpdateIntervals = resourceTypeAutoUpdateIntervals;
+    }
+
+    public Map<String, PollingPriority> getCustomPollingPriorities() {
+        return customPollingPriorities;
+    }
+
+    public void setCustomPollingPriorities(Map<String, PollingPriority> customPollingPriorities) {
+        this.customPollingPriorities = customPollingPriorities;
+    }
+
+    public Map<String, PollingPriority> getResourceTypePollingPriorities() {
+        return resourceTypePollingPriorities;
+    }
+
+    public void setResourceTypePollingPriorities(Map<String, PollingPriority> resourceTypePollingPriorities) {
+        this.resourceTypePollingPriorities = resourceTypePollingPriorities;
+    }
+
+    public boolean getObservationWatchdogSupport() {
+        return observationWatchdogSupport;
+    }
+
+    public void setObservationWatchdogSupport(boolean observationWatchdogSupport) {
+        this.observationWatchdogSupport = observationWatchdogSupport;
+    }
+
+    public long getObservationWatchdogInterval() {
+        return observationWatchdogInterval;
+    }
+
+    public void setObservationWatchdogInterval(long observationWatchdogInterval) {
+        this.observationWatchdogInterval = observationWatchdogInterval;
+    }
+
+    public long getObservationDeadline() {
+        return observationDeadline;
+    }
+
+    public void setObservationDeadline(long observationDeadline) {
+        this.observationDeadline = observationDeadline;
+    }
+
+    public boolean getObservationFallbackPollingSupport() {
+        return observationFallbackPollingSupport;
+    }
+
+    public void setObservationFallbackPollingSupport(boolean observationFallbackPollingSupport) {
+        this.observationFallbackPollingSupport = observationFallbackPollingSupport;
+    }
+
     public boolean getResourceDiscoverySupport() {
         return resourceDiscoverySupport;
     }
@@ -176,10 +436,122 @@ public class CoapPhysicalAdapterConfigurationData {
         this.resourceDiscoverySupport = resourceDiscoverySupport;
     }
 
+    public int getStartupConcurrency() {
+        return startupConcurrency;
+    }
+
+    public void setStartupConcurrency(int startupConcurrency) {
+        this.startupConcurrency = startupConcurrency;
+    }
+
+    public long getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    public void setShutdownTimeout(long shutdownTimeout) {
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    public boolean getEarlyBindingSupport() {
+        return earlyBindingSupport;
+    }
+
+    public void setEarlyBindingSupport(boolean earlyBindingSupport) {
+        this.earlyBindingSupport = earlyBindingSupport;
+    }
+
+    public long getConfigurationReloadInterval() {
+        return configurationReloadInterval;
+    }
+
+    public void setConfigurationReloadInterval(long configurationReloadInterval) {
+        this.configurationReloadInterval = configurationReloadInterval;
+    }
+
+    public long getRediscoveryInterval() {
+        return rediscoveryInterval;
+    }
+
+    public void setRediscoveryInterval(long rediscoveryInterval) {
+        this.rediscoveryInterval = rediscoveryInterval;
+    }
+
+    public Map<String, String> getDiscoveryFilters() {
+        return discoveryFilters;
+    }
+
+    public void setDiscoveryFilters(Map<String, String> discoveryFilters) {
+        this.discoveryFilters = discoveryFilters;
+    }
+
+    public int getDiscoveryBlockSize() {
+        return discoveryBlockSize;
+    }
+
+    public void setDiscoveryBlockSize(int discoveryBlockSize) {
+        this.discoveryBlockSize = discoveryBlockSize;
+    }
+
+    public String getDiscoveryCacheFile() {
+        return discoveryCacheFile;
+    }
+
+    public void setDiscoveryCacheFile(String discoveryCacheFile) {
+        this.discoveryCacheFile = discoveryCacheFile;
+    }
+
+    public String getMulticastDiscoveryAddress() {
+        return multicastDiscoveryAddress;
+    }
+
+    public void setMulticastDiscoveryAddress(String multicastDiscoveryAddress) {
+        this.multicastDiscoveryAddress = multicastDiscoveryAddress;
+    }
+
+    public int getMulticastDiscoveryPort() {
+        return multicastDiscoveryPort;
+    }
+
+    public void setMulticastDiscoveryPort(int multicastDiscoveryPort) {
+        this.multicastDiscoveryPort = multicastDiscoveryPort;
+    }
+
+    public long getMulticastDiscoveryWindow() {
+        return multicastDiscoveryWindow;
+    }
+
+    public void setMulticastDiscoveryWindow(long multicastDiscoveryWindow) {
+        this.multicastDiscoveryWindow = multicastDiscoveryWindow;
+    }
+
+    public String getResourceDirectoryUri() {
+        return resourceDirectoryUri;
+    }
+
+    public void setResourceDirectoryUri(String resourceDirectoryUri) {
+        this.resourceDirectoryUri = resourceDirectoryUri;
+    }
+
+    public int getResourceDirectoryPageSize() {
+        return resourceDirectoryPageSize;
+    }
+
+    public void setResourceDirectoryPageSize(int resourceDirectoryPageSize) {
+        this.resourceDirectoryPageSize = resourceDirectoryPageSize;
+    }
+
+    public Map<String, String> getResourceDirectoryFilters() {
+        return resourceDirectoryFilters;
+    }
+
     public List<String> getIgnoredResources() {
         return ignoredResources;
     }
 
+    public void setIgnoredResources(List<String> ignoredResources) {
+        this.ignoredResources = ignoredResources;
+    }
+
     public String getDefaultWldtEventType() {
         return defaultWldtEventType;
     }
@@ -259,4 +631,152 @@ public class CoapPhysicalAdapterConfigurationData {
     public Map<String, PhysicalAssetResourceListener.ListenerType> getCustomResourceNotificationsMap() {
         return customResourceNotificationsMap;
     }
+
+    public int getMaxConcurrentActionsPerResource() {
+        return maxConcurrentActionsPerResource;
+    }
+
+    public void setMaxConcurrentActionsPerResource(int maxConcurrentActionsPerResource) {
+        this.maxConcurrentActionsPerResource = maxConcurrentActionsPerResource;
+    }
+
+    public long getActionTimeout() {
+        return actionTimeout;
+    }
+
+    public void setActionTimeout(long actionTimeout) {
+        this.actionTimeout = actionTimeout;
+    }
+
+    public boolean getActionCoalescingSupport() {
+        return actionCoalescingSupport;
+    }
+
+    public void setActionCoalescingSupport(boolean actionCoalescingSupport) {
+        this.actionCoalescingSupport = actionCoalescingSupport;
+    }
+
+    public int getActionQueueCapacity() {
+        return actionQueueCapacity;
+    }
+
+    public void setActionQueueCapacity(int actionQueueCapacity) {
+        this.actionQueueCapacity = actionQueueCapacity;
+    }
+
+    public ActionQueueOverflowPolicy getActionQueueOverflowPolicy() {
+        return actionQueueOverflowPolicy;
+    }
+
+    public void setActionQueueOverflowPolicy(ActionQueueOverflowPolicy actionQueueOverflowPolicy) {
+        this.actionQueueOverflowPolicy = actionQueueOverflowPolicy;
+    }
+
+    public int getActionThreads() {
+        return actionThreads;
+    }
+
+    public void setActionThreads(int actionThreads) {
+        this.actionThreads = actionThreads;
+    }
+
+    public boolean getChangeFilterSupport() {
+        return changeFilterSupport;
+    }
+
+    public void setChangeFilterSupport(boolean changeFilterSupport) {
+        this.changeFilterSupport = changeFilterSupport;
+    }
+
+    public long getChangeFilterHeartbeatInterval() {
+        return changeFilterHeartbeatInterval;
+    }
+
+    public void setChangeFilterHeartbeatInterval(long changeFilterHeartbeatInterval) {
+        this.changeFilterHeartbeatInterval = changeFilterHeartbeatInterval;
+    }
+
+    public Map<String, Boolean> getCustomChangeFilterSupportMap() {
+        return customChangeFilterSupportMap;
+    }
+
+    public int getNotificationDispatchThreads() {
+        return notificationDispatchThreads;
+    }
+
+    public void setNotificationDispatchThreads(int notificationDispatchThreads) {
+        this.notificationDispatchThreads = notificationDispatchThreads;
+    }
+
+    public int getNotificationDispatchQueueCapacity() {
+        return notificationDispatchQueueCapacity;
+    }
+
+    public void setNotificationDispatchQueueCapacity(int notificationDispatchQueueCapacity) {
+        this.notificationDispatchQueueCapacity = notificationDispatchQueueCapacity;
+    }
+
+    public NotificationDropPolicy getNotificationDispatchDropPolicy() {
+        return notificationDispatchDropPolicy;
+    }
+
+    public void setNotificationDispatchDropPolicy(NotificationDropPolicy notificationDispatchDropPolicy) {
+        this.notificationDispatchDropPolicy = notificationDispatchDropPolicy;
+    }
+
+    public int getEndpointCount() {
+        return endpointCount;
+    }
+
+    public void setEndpointCount(int endpointCount) {
+        this.endpointCount = endpointCount;
+    }
+
+    public int getEndpointProtocolThreads() {
+        return endpointProtocolThreads;
+    }
+
+    public void setEndpointProtocolThreads(int endpointProtocolThreads) {
+        this.endpointProtocolThreads = endpointProtocolThreads;
+    }
+
+    public int getUdpReceiverThreads() {
+        return udpReceiverThreads;
+    }
+
+    public void setUdpReceiverThreads(int udpReceiverThreads) {
+        this.udpReceiverThreads = udpReceiverThreads;
+    }
+
+    public int getUdpSenderThreads() {
+        return udpSenderThreads;
+    }
+
+    public void setUdpSenderThreads(int udpSenderThreads) {
+        this.udpSenderThreads = udpSenderThreads;
+    }
+
+    public int getUdpReceiveBufferSize() {
+        return udpReceiveBufferSize;
+    }
+
+    public void setUdpReceiveBufferSize(int udpReceiveBufferSize) {
+        this.udpReceiveBufferSize = udpReceiveBufferSize;
+    }
+
+    public int getUdpSendBufferSize() {
+        return udpSendBufferSize;
+    }
+
+    public void setUdpSendBufferSize(int udpSendBufferSize) {
+        this.udpSendBufferSize = udpSendBufferSize;
+    }
+
+    public String getCaliforniumConfigurationFile() {
+        return californiumConfigurationFile;
+    }
+
+    public void setCaliforniumConfigurationFile(String californiumConfigurationFile) {
+        this.californiumConfigurationFile = californiumConfigurationFile;
+    }
 }
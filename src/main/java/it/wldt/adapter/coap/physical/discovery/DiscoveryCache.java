@@ -0,0 +1,81 @@
+package it.wldt.adapter.coap.physical.discovery;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * On-disk cache of the discovery snapshots, keyed by server connection string.
+ * The cache is stored as a JSON file, rewritten atomically on every update.
+ */
+public class DiscoveryCache {
+    private static final Logger logger = LoggerFactory.getLogger(DiscoveryCache.class);
+
+    private final File file;
+    private final ObjectMapper mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Map<String, DiscoverySnapshot> snapshots = new TreeMap<>();
+
+    /**
+     * Creates a new cache, loading the snapshots stored in the given file if it exists.
+     * An unreadable file is ignored and overwritten at the first update.
+     * @param file The cache file.
+     */
+    public DiscoveryCache(File file) {
+        this.file = file;
+
+        if (file.isFile()) {
+            try {
+                Map<String, DiscoverySnapshot> stored = mapper.readValue(file, new TypeReference<TreeMap<String, DiscoverySnapshot>>() { });
+                if (stored != null) {
+                    snapshots.putAll(stored);
+                }
+            } catch (IOException e) {
+                logger.warn("CoAP physical adapter could not read the discovery cache {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * @param server The server connection string.
+     * @return The cached snapshot of the server, or null if it has never been discovered.
+     */
+    public synchronized DiscoverySnapshot get(String server) {
+        return snapshots.get(server);
+    }
+
+    /**
+     * Stores the snapshot of a server and writes the cache file.
+     * @param server The server connection string.
+     * @param snapshot The discovery snapshot.
+     */
+    public synchronized void put(String server, DiscoverySnapshot snapshot) {
+        snapshots.put(server, snapshot);
+
+        try {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                Files.createDirectories(parent.toPath());
+            }
+
+            File temporaryFile = new File(file.getAbsolutePath() + ".tmp");
+            mapper.writerWithDefaultPrettyPrinter().writeValue(temporaryFile, snapshots);
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("CoAP physical adapter could not write the discovery cache {}", file, e);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+}
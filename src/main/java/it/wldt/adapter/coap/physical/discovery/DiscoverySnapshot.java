@@ -0,0 +1,102 @@
+package it.wldt.adapter.coap.physical.discovery;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Serializable result of the discovery of a single server: its resource links together with the ETag of the
+ * link-format document they were parsed from, used to revalidate them.
+ * The snapshot also records the discovery filters and the ignored resources it was discovered with, since its links
+ * only reflect that selection.
+ */
+public class DiscoverySnapshot {
+    private String etag;
+    private long timestamp;
+    private List<ResourceLink> links = new ArrayList<>();
+    private Map<String, String> filters = new TreeMap<>();
+    private List<String> ignoredResources = new ArrayList<>();
+
+    public DiscoverySnapshot() { }
+
+    public DiscoverySnapshot(byte[] etag, List<ResourceLink> links) {
+        this.etag = etag == null ? null : Base64.getEncoder().encodeToString(etag);
+        this.timestamp = System.currentTimeMillis();
+        this.links = links;
+    }
+
+    /**
+     * @return The decoded ETag, or null if the server did not send one.
+     */
+    @JsonIgnore
+    public byte[] getETagBytes() {
+        return etag == null ? null : Base64.getDecoder().decode(etag);
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public List<ResourceLink> getLinks() {
+        return links;
+    }
+
+    public void setLinks(List<ResourceLink> links) {
+        this.links = links;
+    }
+
+    public Map<String, String> getFilters() {
+        return filters;
+    }
+
+    public void setFilters(Map<String, String> filters) {
+        this.filters = filters;
+    }
+
+    public List<String> getIgnoredResources() {
+        return ignoredResources;
+    }
+
+    public void setIgnoredResources(List<String> ignoredResources) {
+        this.ignoredResources = ignoredResources;
+    }
+
+    /**
+     * Records the resource selection the snapshot was discovered with.
+     * @param filters The discovery filters.
+     * @param ignoredResources The ignored resources.
+     * @return The snapshot itself.
+     */
+    public DiscoverySnapshot withSelection(Map<String, String> filters, Collection<String> ignoredResources) {
+        this.filters = new TreeMap<>(filters);
+        this.ignoredResources = new ArrayList<>(ignoredResources);
+        return this;
+    }
+
+    /**
+     * @param filters The current discovery filters.
+     * @param ignoredResources The current ignored resources.
+     * @return true if the snapshot was discovered with the same resource selection, so that its links can be used as they are.
+     */
+    public boolean matchesSelection(Map<String, String> filters, Collection<String> ignoredResources) {
+        return new TreeMap<>(filters).equals(this.filters) && new HashSet<>(ignoredResources).equals(new HashSet<>(this.ignoredResources));
+    }
+}
@@ -0,0 +1,150 @@
+package it.wldt.adapter.coap.physical.discovery;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Incremental parser of CoRE link-format (RFC 6690) documents.
+ * The document can be fed in arbitrary chunks, e.g. the blocks of a block-wise transfer: every link is emitted as soon
+ * as it is complete, so that only the link being parsed is kept in memory.
+ * Since all the link-format delimiters are ASCII characters, the links are split on the raw bytes and each complete
+ * link is decoded on its own, without splitting a multi-byte character between two chunks.
+ */
+public class LinkFormatParser {
+    private final Consumer<ResourceLink> consumer;
+
+    private final ByteArrayOutputStream currentLink = new ByteArrayOutputStream();
+    private boolean inUri;
+    private boolean inQuotes;
+
+    /**
+     * Creates a new parser.
+     * @param consumer The consumer of the parsed links.
+     */
+    public LinkFormatParser(Consumer<ResourceLink> consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * Parses a chunk of the document.
+     * @param chunk The chunk.
+     */
+    public void feed(byte[] chunk) {
+        for (byte b : chunk) {
+            if (b == '"' && !inUri) {
+                inQuotes = !inQuotes;
+            } else if (b == '<' && !inQuotes) {
+                inUri = true;
+            } else if (b == '>' && !inQuotes) {
+                inUri = false;
+            } else if (b == ',' && !inQuotes && !inUri) {
+                emit();
+                continue;
+            }
+            currentLink.write(b);
+        }
+    }
+
+    /**
+     * Parses the last link of the document.
+     */
+    public void finish() {
+        emit();
+        inUri = false;
+        inQuotes = false;
+    }
+
+    private void emit() {
+        String link = new String(currentLink.toByteArray(), StandardCharsets.UTF_8).trim();
+        currentLink.reset();
+
+        ResourceLink resourceLink = parse(link);
+        if (resourceLink != null) {
+            consumer.accept(resourceLink);
+        }
+    }
+
+    /**
+     * Parses a single link, e.g. {@code </sensors/temp>;rt="temperature-c";if="sensor";ct="0 50";obs}.
+     * @param link The link.
+     * @return The parsed link, or null if it is malformed.
+     */
+    static ResourceLink parse(String link) {
+        if (!link.startsWith("<") || link.indexOf('>') < 0) {
+            return null;
+        }
+
+        ResourceLink resourceLink = new ResourceLink();
+        resourceLink.setUri(link.substring(1, link.indexOf('>')));
+
+        List<String> contentTypes = new ArrayList<>();
+
+        for (String parameter : splitParameters(link.substring(link.indexOf('>') + 1))) {
+            int separator = parameter.indexOf('=');
+            String name = (separator < 0 ? parameter : parameter.substring(0, separator)).trim();
+            String value = separator < 0 ? "" : unquote(parameter.substring(separator + 1).trim());
+
+            switch (name) {
+                case "rt":
+                    resourceLink.setResourceType(firstValue(value));
+                    break;
+                case "if":
+                    resourceLink.setResourceInterface(firstValue(value));
+                    break;
+                case "ct":
+                    for (String contentType : value.split("\\s+")) {
+                        if (!contentType.isEmpty()) {
+                            contentTypes.add(contentType);
+                        }
+                    }
+                    break;
+                case "obs":
+                    resourceLink.setObservable(true);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        resourceLink.setContentTypes(contentTypes);
+        return resourceLink;
+    }
+
+    private static List<String> splitParameters(String parameters) {
+        List<String> result = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (char c : parameters.toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+            }
+            if (c == ';' && !quoted) {
+                if (current.length() > 0) {
+                    result.add(current.toString());
+                }
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (current.toString().trim().length() > 0) {
+            result.add(current.toString());
+        }
+
+        return result;
+    }
+
+    private static String unquote(String value) {
+        return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"") ? value.substring(1, value.length() - 1) : value;
+    }
+
+    private static String firstValue(String value) {
+        String trimmed = value.trim();
+        int space = trimmed.indexOf(' ');
+        return space < 0 ? trimmed : trimmed.substring(0, space);
+    }
+}
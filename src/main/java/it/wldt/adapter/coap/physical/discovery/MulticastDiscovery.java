@@ -0,0 +1,156 @@
+package it.wldt.adapter.coap.physical.discovery;
+
+import it.wldt.adapter.coap.physical.configuration.CoapDeviceConfigurationData;
+import it.wldt.adapter.coap.physical.polling.PollingScheduler;
+import org.eclipse.californium.core.coap.BlockOption;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.coap.MessageObserverAdapter;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.network.Endpoint;
+import org.eclipse.californium.elements.exception.ConnectorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Discovers the CoAP servers of the local network segment by sending a non-confirmable {@code /.well-known/core}
+ * request to a multicast group, by default the All-CoAP-Nodes group {@code 224.0.1.187}.
+ * <p>
+ * Every response received within the gathering window is parsed on the given executor as soon as it arrives, so that
+ * the servers are processed in parallel. A server whose response holds only the first block of its link-format
+ * document is discovered again with a unicast {@link WellKnownCoreDiscovery}.
+ * The end of the window is scheduled on the timer of the {@link PollingScheduler}, so that no thread is held while
+ * the responses are gathered.
+ * </p>
+ */
+public class MulticastDiscovery {
+    private static final Logger logger = LoggerFactory.getLogger(MulticastDiscovery.class);
+
+    private static final String WELL_KNOWN_CORE = "/.well-known/core";
+
+    private final Endpoint endpoint;
+    private final String groupAddress;
+    private final int port;
+    private final long window;
+    private final Map<String, String> filters;
+    private final Predicate<ResourceLink> linkFilter;
+    private final Function<String, WellKnownCoreDiscovery> unicastDiscovery;
+    private final Executor executor;
+    private final PollingScheduler scheduler;
+
+    /**
+     * Creates a new multicast discovery.
+     * @param endpoint The endpoint used to send the multicast request.
+     * @param groupAddress The multicast group address.
+     * @param port The CoAP port of the servers.
+     * @param window The time (in milliseconds) during which the responses are gathered.
+     * @param filters The attribute filters applied by the servers.
+     * @param linkFilter The predicate accepting the links to keep.
+     * @param unicastDiscovery The function creating the unicast discovery of a server from its connection string.
+     * @param executor The executor processing the responses.
+     * @param scheduler The scheduler whose timer closes the gathering window.
+     */
+    public MulticastDiscovery(Endpoint endpoint, String groupAddress, int port, long window, Map<String, String> filters,
+                              Predicate<ResourceLink> linkFilter, Function<String, WellKnownCoreDiscovery> unicastDiscovery,
+                              Executor executor, PollingScheduler scheduler) {
+        this.endpoint = endpoint;
+        this.groupAddress = groupAddress;
+        this.port = port;
+        this.window = window;
+        this.filters = filters;
+        this.linkFilter = linkFilter;
+        this.unicastDiscovery = unicastDiscovery;
+        this.executor = executor;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Sends the multicast request and gathers the responses until the window expires.
+     * @return The future completed with the links of each responding server, keyed by the server connection string,
+     * once the window has expired and the gathered responses have been processed.
+     */
+    public CompletableFuture<Map<String, List<ResourceLink>>> discover() {
+        CompletableFuture<Map<String, List<ResourceLink>>> result = new CompletableFuture<>();
+        Map<String, List<ResourceLink>> links = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> processing = new ArrayList<>();
+        AtomicBoolean closed = new AtomicBoolean();
+
+        Request request = new Request(CoAP.Code.GET, CoAP.Type.NON);
+        request.setURI(String.format("coap://%s:%d%s", groupAddress, port, WELL_KNOWN_CORE));
+        request.getOptions().setAccept(MediaTypeRegistry.APPLICATION_LINK_FORMAT);
+        filters.forEach((attribute, value) -> request.getOptions().addUriQuery(attribute + "=" + value));
+
+        request.addMessageObserver(new MessageObserverAdapter() {
+            @Override
+            public void onResponse(Response response) {
+                InetSocketAddress peer = response.getSourceContext().getPeerAddress();
+                String server = CoapDeviceConfigurationData.toServerConnectionString(peer.getHostString(), peer.getPort());
+
+                synchronized (processing) {
+                    if (closed.get() || links.containsKey(server)) {
+                        return;
+                    }
+                    links.put(server, new ArrayList<>());
+                    processing.add(CompletableFuture.runAsync(() -> links.put(server, processResponse(server, response)), executor));
+                }
+            }
+        });
+
+        endpoint.sendRequest(request);
+
+        scheduler.scheduleOnTimer(() -> {
+            List<CompletableFuture<Void>> pending;
+            synchronized (processing) {
+                closed.set(true);
+                pending = new ArrayList<>(processing);
+            }
+            request.cancel();
+
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).whenComplete((ignored, e) -> result.complete(links));
+        }, window);
+
+        return result;
+    }
+
+    private List<ResourceLink> processResponse(String server, Response response) {
+        List<ResourceLink> serverLinks = new ArrayList<>();
+
+        if (!response.isSuccess()) {
+            logger.warn("CoAP physical adapter multicast discovery got code={} from {}", response.getCode(), server);
+            return serverLinks;
+        }
+
+        BlockOption block2 = response.getOptions().getBlock2();
+        if (block2 != null && block2.isM()) {
+            try {
+                return unicastDiscovery.apply(server).discover(null).getLinks();
+            } catch (ConnectorException | IOException e) {
+                logger.warn("CoAP physical adapter multicast discovery failed to fetch the resources of {}", server, e);
+                return serverLinks;
+            }
+        }
+
+        LinkFormatParser parser = new LinkFormatParser(link -> {
+            if (linkFilter.test(link)) {
+                serverLinks.add(link);
+            }
+        });
+        parser.feed(response.getPayload() == null ? new byte[0] : response.getPayload());
+        parser.finish();
+
+        return serverLinks;
+    }
+}
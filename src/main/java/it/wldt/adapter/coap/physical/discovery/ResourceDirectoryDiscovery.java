@@ -0,0 +1,132 @@
+package it.wldt.adapter.coap.physical.discovery;
+
+import org.eclipse.californium.core.CoapClient;
+import org.eclipse.californium.core.CoapResponse;
+import org.eclipse.californium.core.WebLink;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.LinkFormat;
+import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.elements.exception.ConnectorException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Discovers the resources of many servers at once through the resource lookup interface of a
+ * CoRE Resource Directory (RFC 9176).
+ * The lookup is paged, and the attribute filters are sent as query parameters so that they are applied by the directory.
+ */
+public class ResourceDirectoryDiscovery {
+    private static final int DEFAULT_COAP_PORT = 5683;
+    private static final int DEFAULT_COAPS_PORT = 5684;
+    private static final int MAX_PAGES = 1000;
+
+    private final CoapClient client;
+    private final int pageSize;
+    private final Map<String, String> filters;
+
+    /**
+     * Creates a new resource directory discovery.
+     * @param client The client bound to the resource lookup URI of the directory.
+     * @param pageSize The number of links requested in each page.
+     * @param filters The attribute filters applied by the directory, e.g. {@code rt} or {@code if}.
+     */
+    public ResourceDirectoryDiscovery(CoapClient client, int pageSize, Map<String, String> filters) {
+        this.client = client;
+        this.pageSize = pageSize;
+        this.filters = filters;
+    }
+
+    /**
+     * Looks up every page of resources registered in the directory.
+     * The lookup stops at the first page which is not full or adds no new link, e.g. because the directory ignores the
+     * paging parameters and returns every link in each page, and after at most {@value #MAX_PAGES} pages.
+     * @return The links of the found resources, grouped by the connection string of their server.
+     * @throws IOException If a lookup request fails or gets an error response.
+     * @throws ConnectorException If a lookup request cannot be sent.
+     */
+    public Map<String, List<ResourceLink>> lookup() throws IOException, ConnectorException {
+        Map<String, List<ResourceLink>> links = new LinkedHashMap<>();
+        Set<String> seenTargets = new HashSet<>();
+
+        int page = 0;
+        int pageLinks;
+        int newLinks;
+        do {
+            Set<WebLink> webLinks = lookup(page++);
+            pageLinks = webLinks.size();
+            newLinks = 0;
+
+            for (WebLink webLink : webLinks) {
+                if (!seenTargets.add(webLink.getURI() + "|" + webLink.getAttributes().getFirstAttributeValue("anchor"))) {
+                    continue;
+                }
+                newLinks++;
+
+                URI target = resolve(webLink);
+                if (target == null || target.getHost() == null) {
+                    continue;
+                }
+
+                ResourceLink link = ResourceLink.fromWebLink(webLink);
+                link.setUri(target.getPath());
+
+                links.computeIfAbsent(getServerConnectionString(target), server -> new ArrayList<>()).add(link);
+            }
+        } while (pageLinks >= pageSize && newLinks > 0 && page < MAX_PAGES);
+
+        return links;
+    }
+
+    private Set<WebLink> lookup(int page) throws IOException, ConnectorException {
+        Request request = new Request(CoAP.Code.GET);
+        request.setURI(client.getURI());
+        request.getOptions().setAccept(MediaTypeRegistry.APPLICATION_LINK_FORMAT);
+        request.getOptions().addUriQuery("page=" + page);
+        request.getOptions().addUriQuery("count=" + pageSize);
+        filters.forEach((attribute, value) -> request.getOptions().addUriQuery(attribute + "=" + value));
+
+        CoapResponse response = client.advanced(request);
+
+        if (response == null) {
+            throw new IOException("CoAP resource directory lookup got no response");
+        }
+        if (!response.isSuccess()) {
+            throw new IOException("CoAP resource directory lookup failed with code=" + response.getCode());
+        }
+
+        return LinkFormat.parse(response.getResponseText());
+    }
+
+    /**
+     * Resolves the target of a link, which a directory returns as an absolute URI or relative to its anchor.
+     */
+    private static URI resolve(WebLink webLink) {
+        try {
+            URI target = new URI(webLink.getURI());
+            if (target.isAbsolute()) {
+                return target;
+            }
+
+            String anchor = webLink.getAttributes().getFirstAttributeValue("anchor");
+            return anchor == null ? null : new URI(anchor).resolve(target);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static String getServerConnectionString(URI target) {
+        int port = target.getPort();
+        if (port < 0) {
+            port = "coaps".equals(target.getScheme()) ? DEFAULT_COAPS_PORT : DEFAULT_COAP_PORT;
+        }
+        return String.format("%s://%s:%d", target.getScheme(), target.getHost(), port);
+    }
+}
@@ -0,0 +1,109 @@
+package it.wldt.adapter.coap.physical.discovery;
+
+import org.eclipse.californium.core.WebLink;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Serializable link of a discovered resource, holding the link-format attributes used to create a
+ * {@link it.wldt.adapter.coap.physical.model.PhysicalAssetResource}.
+ */
+public class ResourceLink {
+    private String uri;
+    private String resourceType = "";
+    private String resourceInterface;
+    private List<String> contentTypes = new ArrayList<>();
+    private boolean observable;
+
+    public ResourceLink() { }
+
+    public ResourceLink(String uri, String resourceType, String resourceInterface, List<String> contentTypes, boolean observable) {
+        this.uri = uri;
+        this.resourceType = resourceType;
+        this.resourceInterface = resourceInterface;
+        this.contentTypes = contentTypes;
+        this.observable = observable;
+    }
+
+    /**
+     * Creates a resource link from a parsed link-format entry.
+     * @param link The link-format entry.
+     * @return The resource link.
+     */
+    public static ResourceLink fromWebLink(WebLink link) {
+        String resourceType = link.getAttributes().getFirstAttributeValue("rt");
+
+        return new ResourceLink(
+                link.getURI(),
+                resourceType == null ? "" : resourceType,
+                link.getAttributes().getFirstAttributeValue("if"),
+                new ArrayList<>(link.getAttributes().getAttributeValues("ct")),
+                link.getAttributes().containsAttribute("obs"));
+    }
+
+    /**
+     * @return The resource name, which is its URI path without the leading slash.
+     */
+    public String getName() {
+        return uri.replaceFirst("/", "");
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public void setUri(String uri) {
+        this.uri = uri;
+    }
+
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    public void setResourceType(String resourceType) {
+        this.resourceType = resourceType;
+    }
+
+    public String getResourceInterface() {
+        return resourceInterface;
+    }
+
+    public void setResourceInterface(String resourceInterface) {
+        this.resourceInterface = resourceInterface;
+    }
+
+    public List<String> getContentTypes() {
+        return contentTypes;
+    }
+
+    public void setContentTypes(List<String> contentTypes) {
+        this.contentTypes = contentTypes;
+    }
+
+    public boolean isObservable() {
+        return observable;
+    }
+
+    public void setObservable(boolean observable) {
+        this.observable = observable;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ResourceLink that = (ResourceLink) o;
+        return observable == that.observable &&
+                Objects.equals(uri, that.uri) &&
+                Objects.equals(resourceType, that.resourceType) &&
+                Objects.equals(resourceInterface, that.resourceInterface) &&
+                Objects.equals(contentTypes, that.contentTypes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(uri, resourceType, resourceInterface, contentTypes, observable);
+    }
+}
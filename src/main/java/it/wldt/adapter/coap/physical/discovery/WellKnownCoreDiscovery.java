@@ -0,0 +1,118 @@
+package it.wldt.adapter.coap.physical.discovery;
+
+import org.eclipse.californium.core.CoapClient;
+import org.eclipse.californium.core.CoapResponse;
+import org.eclipse.californium.core.coap.BlockOption;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.elements.exception.ConnectorException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Discovers the resources of a server by requesting its {@code /.well-known/core} link-format document.
+ * <p>
+ * The attribute filters (e.g. {@code rt}, {@code if} or {@code href}) are sent as query parameters, so that the server
+ * only returns the matching links. The document is requested block by block, and every block is parsed as soon as it
+ * arrives: the memory used by the discovery does not depend on the size of the whole document, and the links rejected
+ * by the link filter are discarded while streaming.
+ * </p>
+ * The request can be made conditional on the ETag of a previous snapshot, to revalidate it cheaply.
+ */
+public class WellKnownCoreDiscovery {
+    private static final String WELL_KNOWN_CORE = "/.well-known/core";
+
+    private final CoapClient client;
+    private final Map<String, String> filters;
+    private final int blockSize;
+    private final Predicate<ResourceLink> linkFilter;
+
+    /**
+     * Creates a new discovery.
+     * @param client The client bound to the root URI of the server to discover.
+     * @param filters The attribute filters applied by the server.
+     * @param blockSize The preferred block size (in bytes) of the block-wise transfer, a power of two between 16 and 1024.
+     * @param linkFilter The predicate accepting the links to keep.
+     */
+    public WellKnownCoreDiscovery(CoapClient client, Map<String, String> filters, int blockSize, Predicate<ResourceLink> linkFilter) {
+        this.client = client;
+        this.filters = filters;
+        this.blockSize = blockSize;
+        this.linkFilter = linkFilter;
+    }
+
+    /**
+     * Requests the link-format document of the server.
+     * @param etag The ETag of the previous snapshot, or null to request the document unconditionally.
+     * @return The new snapshot, or null if the server confirmed that the previous snapshot is still valid.
+     * @throws IOException If a request fails, gets an error response, or the document changes during the transfer.
+     * @throws ConnectorException If a request cannot be sent.
+     */
+    public DiscoverySnapshot discover(byte[] etag) throws IOException, ConnectorException {
+        List<ResourceLink> links = new ArrayList<>();
+        LinkFormatParser parser = new LinkFormatParser(link -> {
+            if (linkFilter.test(link)) {
+                links.add(link);
+            }
+        });
+
+        byte[] documentETag = null;
+        int szx = BlockOption.size2Szx(blockSize);
+        int offset = 0;
+        boolean more;
+
+        do {
+            CoapResponse response = client.advanced(createRequest(offset == 0 ? etag : null, szx, offset));
+
+            if (response == null) {
+                throw new IOException("CoAP discovery request got no response");
+            }
+            if (response.getCode() == CoAP.ResponseCode.VALID) {
+                return null;
+            }
+            if (!response.isSuccess()) {
+                throw new IOException("CoAP discovery request failed with code=" + response.getCode());
+            }
+
+            byte[] blockETag = response.getOptions().getETags().isEmpty() ? null : response.getOptions().getETags().get(0);
+            if (offset == 0) {
+                documentETag = blockETag;
+            } else if (!Arrays.equals(documentETag, blockETag)) {
+                throw new IOException("CoAP discovery document changed during the block-wise transfer");
+            }
+
+            byte[] payload = response.getPayload() == null ? new byte[0] : response.getPayload();
+            parser.feed(payload);
+
+            BlockOption block2 = response.getOptions().getBlock2();
+            more = block2 != null && block2.isM() && payload.length > 0;
+            if (more) {
+                // The server may answer with a smaller block size than the requested one
+                szx = Math.min(szx, block2.getSzx());
+                offset = block2.getOffset() + payload.length;
+            }
+        } while (more);
+
+        parser.finish();
+
+        return new DiscoverySnapshot(documentETag, links);
+    }
+
+    private Request createRequest(byte[] etag, int szx, int offset) {
+        Request request = new Request(CoAP.Code.GET);
+        request.setURI(client.getURI() + WELL_KNOWN_CORE);
+        request.getOptions().setAccept(MediaTypeRegistry.APPLICATION_LINK_FORMAT);
+        filters.forEach((attribute, value) -> request.getOptions().addUriQuery(attribute + "=" + value));
+        request.getOptions().setBlock2(szx, false, offset / (1 << (szx + 4)));
+        if (etag != null) {
+            request.getOptions().addETag(etag);
+        }
+        return request;
+    }
+}
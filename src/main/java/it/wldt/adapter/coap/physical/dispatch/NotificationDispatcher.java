@@ -0,0 +1,211 @@
+package it.wldt.adapter.coap.physical.dispatch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves the handling of the CoAP responses and notifications out of the Californium protocol threads.
+ * Every key (usually a resource) has its own bounded queue whose tasks are executed in order, one at a time,
+ * while the queues of different keys are drained in parallel by a shared pool of worker threads.
+ */
+public class NotificationDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    private static final AtomicInteger dispatcherCount = new AtomicInteger();
+
+    private final ExecutorService workers;
+    private final int queueCapacity;
+    private final NotificationDropPolicy dropPolicy;
+
+    private final Map<Object, SerialQueue> queues = new ConcurrentHashMap<>();
+    // Weakly referenced, so that the removed resources can still be garbage collected
+    private final Set<Object> removedKeys = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * Creates a new dispatcher.
+     * @param threads The number of worker threads.
+     * @param queueCapacity The maximum number of queued tasks of each key.
+     * @param dropPolicy What to do when the queue of a key is full.
+     */
+    public NotificationDispatcher(int threads, int queueCapacity, NotificationDropPolicy dropPolicy) {
+        String threadPrefix = String.format("coap-pa-dispatch-%d-", dispatcherCount.incrementAndGet());
+        AtomicInteger threadCount = new AtomicInteger();
+
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, threadPrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.queueCapacity = queueCapacity;
+        this.dropPolicy = dropPolicy;
+    }
+
+    /**
+     * Queues a task to be executed after every task previously dispatched with the same key.
+     * The task is discarded if the key has been removed or the dispatcher has been shut down.
+     * @param key The key identifying the queue, usually the resource which received the notification.
+     * @param task The task to execute.
+     */
+    public void dispatch(Object key, Runnable task) {
+        SerialQueue queue = queues.compute(key, (k, current) -> {
+            if (current != null) {
+                return current;
+            }
+            return workers.isShutdown() || removedKeys.contains(k) ? null : new SerialQueue();
+        });
+
+        if (queue == null) {
+            logger.debug("CoAP physical adapter discarded a notification dispatched to a removed queue");
+            return;
+        }
+        queue.offer(task);
+    }
+
+    /**
+     * Removes the queue of a key, discarding its pending tasks.
+     * The key cannot be used again: the tasks dispatched to it afterwards, e.g. by the responses still in flight
+     * when its resource was stopped, are discarded.
+     * @param key The key identifying the queue.
+     */
+    public void remove(Object key) {
+        queues.compute(key, (k, current) -> {
+            removedKeys.add(k);
+            if (current != null) {
+                current.close();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * @return The number of tasks waiting in all the queues.
+     */
+    public int getQueueDepth() {
+        return queues.values().stream().mapToInt(SerialQueue::size).sum();
+    }
+
+    /**
+     * @param key The key identifying the queue.
+     * @return The number of tasks waiting in the queue of the given key.
+     */
+    public int getQueueDepth(Object key) {
+        SerialQueue queue = queues.get(key);
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * @return The number of tasks discarded because their queue was full.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Discards every pending task and releases the worker threads.
+     */
+    public void shutdown() {
+        workers.shutdownNow();
+        queues.keySet().forEach(this::remove);
+    }
+
+    public boolean isShutdown() {
+        return workers.isShutdown();
+    }
+
+    /**
+     * Waits for the worker threads to terminate after a shutdown.
+     * @param timeout The maximum time (in milliseconds) to wait.
+     * @return true if every thread terminated, false if the timeout elapsed.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public boolean awaitTermination(long timeout) throws InterruptedException {
+        return workers.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queue of a single key, submitted to the workers only while it contains tasks.
+     * Each submission executes one task and then submits the queue again, so that busy keys do not starve the others.
+     */
+    private class SerialQueue implements Runnable {
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean closed;
+
+        synchronized void offer(Runnable task) {
+            if (closed) {
+                return;
+            }
+
+            if (tasks.size() >= queueCapacity) {
+                droppedCount.incrementAndGet();
+                if (dropPolicy == NotificationDropPolicy.DROP_NEWEST) {
+                    return;
+                }
+                tasks.pollFirst();
+            }
+
+            tasks.addLast(task);
+            submit();
+        }
+
+        synchronized int size() {
+            return tasks.size();
+        }
+
+        synchronized void close() {
+            closed = true;
+            tasks.clear();
+        }
+
+        @Override
+        public void run() {
+            Runnable task;
+            synchronized (this) {
+                task = tasks.pollFirst();
+            }
+
+            try {
+                if (task != null) {
+                    task.run();
+                }
+            } catch (Exception e) {
+                logger.error("CoAP physical adapter failed to handle a dispatched notification", e);
+            } finally {
+                synchronized (this) {
+                    scheduled = false;
+                    if (!tasks.isEmpty()) {
+                        submit();
+                    }
+                }
+            }
+        }
+
+        private void submit() {
+            if (scheduled) {
+                return;
+            }
+
+            try {
+                workers.execute(this);
+                scheduled = true;
+            } catch (RejectedExecutionException e) {
+                tasks.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package it.wldt.adapter.coap.physical.dispatch;
+
+/**
+ * What the {@link NotificationDispatcher} does when the queue of a resource is full.
+ */
+public enum NotificationDropPolicy {
+    /**
+     * The oldest queued notification is discarded to make room for the new one.
+     */
+    DROP_OLDEST,
+    /**
+     * The new notification is discarded.
+     */
+    DROP_NEWEST
+}
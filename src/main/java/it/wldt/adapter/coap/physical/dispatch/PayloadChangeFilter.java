@@ -0,0 +1,64 @@
+package it.wldt.adapter.coap.physical.dispatch;
+
+import java.util.Arrays;
+
+/**
+ * Suppresses the payloads of a resource which are identical to the last delivered one.
+ * Payloads are first compared by hash and then byte by byte, so a hash collision never hides a real change.
+ * A duplicate payload is still delivered once the heartbeat interval has elapsed since the last delivery.
+ */
+public class PayloadChangeFilter {
+    private final long heartbeatInterval;
+
+    private boolean delivered;
+    private int lastHash;
+    private byte[] lastPayload;
+    private long lastDeliveryTime;
+
+    private long suppressedCount;
+
+    /**
+     * Creates a new change filter.
+     * @param heartbeatInterval The interval (in milliseconds) after which a duplicate payload is delivered anyway, 0 to never deliver duplicates.
+     */
+    public PayloadChangeFilter(long heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    /**
+     * Checks whether a payload has to be delivered, recording it as the last delivered one if so.
+     * @param payload The received payload.
+     * @return true if the payload changed or the heartbeat interval elapsed, false if it has to be suppressed.
+     */
+    public synchronized boolean shouldDeliver(byte[] payload) {
+        long now = System.currentTimeMillis();
+        int hash = Arrays.hashCode(payload);
+
+        boolean duplicate = delivered && hash == lastHash && Arrays.equals(payload, lastPayload);
+        if (duplicate && (heartbeatInterval <= 0 || now - lastDeliveryTime < heartbeatInterval)) {
+            suppressedCount++;
+            return false;
+        }
+
+        delivered = true;
+        lastHash = hash;
+        lastPayload = payload;
+        lastDeliveryTime = now;
+        return true;
+    }
+
+    /**
+     * Forgets the last delivered payload, so that the next one is delivered whatever its content is.
+     */
+    public synchronized void reset() {
+        delivered = false;
+        lastPayload = null;
+    }
+
+    /**
+     * @return The number of suppressed payloads.
+     */
+    public synchronized long getSuppressedCount() {
+        return suppressedCount;
+    }
+}
@@ -1,17 +1,35 @@
 package it.wldt.adapter.coap.physical.model;
 
+import it.wldt.adapter.coap.physical.action.ActionQueue;
+import it.wldt.adapter.coap.physical.cache.ResponseCache;
+import it.wldt.adapter.coap.physical.configuration.CoapDeviceConfigurationData;
 import it.wldt.adapter.coap.physical.configuration.CoapPhysicalAdapterConfiguration;
+import it.wldt.adapter.coap.physical.dispatch.NotificationDispatcher;
+import it.wldt.adapter.coap.physical.dispatch.PayloadChangeFilter;
+import it.wldt.adapter.coap.physical.observe.ObservationRegistry;
+import it.wldt.adapter.coap.physical.polling.AdaptivePollingInterval;
+import it.wldt.adapter.coap.physical.polling.InFlightRequestLimiter;
+import it.wldt.adapter.coap.physical.polling.PollingPriority;
+import it.wldt.adapter.coap.physical.polling.PollingScheduler;
 import it.wldt.core.event.WldtEvent;
 import org.eclipse.californium.core.CoapClient;
 import org.eclipse.californium.core.CoapHandler;
-import org.eclipse.californium.core.CoapObserveRelation;
 import org.eclipse.californium.core.CoapResponse;
 import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.OptionSet;
 import org.eclipse.californium.core.coap.Request;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 
 /**
@@ -21,9 +39,15 @@ import java.util.function.BiFunction;
 public class PhysicalAssetResource {
     Logger logger = LoggerFactory.getLogger(PhysicalAssetResource.class);
 
+    /**
+     * The CoAP default Max-Age (in milliseconds), used when a response does not contain the option.
+     */
+    public static final long DEFAULT_MAX_AGE = 60000;
+
     String name;
 
     private final CoapPhysicalAdapterConfiguration configuration;
+    private final CoapDeviceConfigurationData device;
 
     private final Map<PhysicalAssetResourceListener, PhysicalAssetResourceListener.ListenerType> listeners;
 
@@ -42,8 +66,26 @@ public class PhysicalAssetResource {
 
     private int contentType;
 
-    private CoapObserveRelation observeRelation;
-    private Timer autoUpdateTimer;
+    private ActionQueue actionQueue;
+
+    private PayloadChangeFilter changeFilter;
+    private boolean changeFilterInitialized;
+
+    private ObservationRegistry.Subscription observation;
+    private boolean observationActive;
+    private boolean fallbackPollingActive;
+    private long observationGeneration;
+    private volatile long lastNotificationTime;
+    private volatile long lastNotificationMaxAge = DEFAULT_MAX_AGE;
+    private ScheduledFuture<?> autoUpdateTask;
+    private boolean autoUpdateActive;
+    private long pollingGeneration;
+    private long autoUpdateInterval;
+    private PollingPriority pollingPriority = PollingPriority.NORMAL;
+    private AdaptivePollingInterval adaptiveInterval;
+    private volatile byte[] lastETag;
+    private final AtomicReference<CompletableFuture<CoapResponse>> inFlightGet = new AtomicReference<>();
+    private final AtomicLong deduplicatedGetCount = new AtomicLong();
 
     public PhysicalAssetResource(CoapPhysicalAdapterConfiguration configuration,
                                  String name,
@@ -83,7 +125,21 @@ public class PhysicalAssetResource {
                                  boolean hasPutSupport,
                                  BiFunction<String, String, List<? extends WldtEvent<?>>> eventTranslator,
                                  boolean observable) {
+        this(configuration, null, name, resourceType, contentType, getRequestTranslator, hasPostSupport, hasPutSupport, eventTranslator, observable);
+    }
+
+    public PhysicalAssetResource(CoapPhysicalAdapterConfiguration configuration,
+                                 CoapDeviceConfigurationData device,
+                                 String name,
+                                 String resourceType,
+                                 int contentType,
+                                 BiFunction<String, byte[], List<? extends WldtEvent<?>>> getRequestTranslator,
+                                 boolean hasPostSupport,
+                                 boolean hasPutSupport,
+                                 BiFunction<String, String, List<? extends WldtEvent<?>>> eventTranslator,
+                                 boolean observable) {
         this.configuration = configuration;
+        this.device = device;
 
         this.name = name;
         this.resourceType = resourceType;
@@ -97,7 +153,7 @@ public class PhysicalAssetResource {
 
         this.observable = observable;
 
-        this.client = new CoapClient(String.format("%s/%s", configuration.getServerConnectionString(), name));
+        this.client = configuration.getEndpointManager().createClient(String.format("%s/%s", getServerConnectionString(), name));
 
         this.listeners = new HashMap<>();
     }
@@ -127,24 +183,25 @@ public class PhysicalAssetResource {
     protected void notifyEvent(String message) {
         listeners.forEach((listener, type) -> {
             if (type == PhysicalAssetResourceListener.ListenerType.EVENT || type == PhysicalAssetResourceListener.ListenerType.ALL) {
-                listener.onEvent(this, eventTranslator.apply(
-                        this.resourceType.trim().isEmpty() ? this.name : this.resourceType.concat(".").concat(this.name),
-                        message));
+                listener.onEvent(this, eventTranslator.apply(getWldtKey(), message));
             }
         });
     }
 
     /**
      * Notifies all listeners of a property change.
+     * If the change filter is enabled for the resource, a payload identical to the last notified one is skipped.
      * @param payload The new value of the property.
      */
     protected void notifyPropertyChange(byte[] payload) {
+        PayloadChangeFilter filter = getChangeFilter();
+        if (filter != null && !filter.shouldDeliver(payload)) {
+            return;
+        }
+
         listeners.forEach((listener, type) -> {
             if (type == PhysicalAssetResourceListener.ListenerType.PROPERTY || type == PhysicalAssetResourceListener.ListenerType.ALL) {
-                listener.onPropertyChanged(this, getRequestTranslator.apply(
-                        this.resourceType.trim().isEmpty() ? this.name : this.resourceType.concat(".").concat(this.name),
-                        payload
-                ));
+                listener.onPropertyChanged(this, getRequestTranslator.apply(getWldtKey(), payload));
             }
         });
     }
@@ -153,6 +210,41 @@ public class PhysicalAssetResource {
         return name;
     }
 
+    /**
+     * @return The key identifying the resource in the WLDT properties, events and actions, made of its resource type and name,
+     * prefixed with the device id if the resource belongs to one of the devices of a multi-device adapter.
+     */
+    public String getWldtKey() {
+        String key = this.resourceType.trim().isEmpty() ? this.name : this.resourceType.concat(".").concat(this.name);
+        return device == null ? key : device.getId().concat(".").concat(key);
+    }
+
+    /**
+     * @return The device the resource belongs to, or null if it belongs to the server of a single-device adapter.
+     */
+    public CoapDeviceConfigurationData getDevice() {
+        return device;
+    }
+
+    /**
+     * @return The connection string of the server hosting the resource.
+     */
+    public String getServerConnectionString() {
+        return device == null ? configuration.getServerConnectionString() : device.getServerConnectionString();
+    }
+
+    /**
+     * Returns the change filter of the resource, created at the first invocation according to the configuration.
+     * @return The change filter, or null if it is disabled for the resource.
+     */
+    public synchronized PayloadChangeFilter getChangeFilter() {
+        if (!changeFilterInitialized) {
+            changeFilter = configuration.isChangeFilterEnabled(name) ? new PayloadChangeFilter(configuration.getChangeFilterHeartbeatInterval()) : null;
+            changeFilterInitialized = true;
+        }
+        return changeFilter;
+    }
+
     public BiFunction<String, byte[], List<? extends WldtEvent<?>>> getGetRequestTranslator() {
         return getRequestTranslator;
     }
@@ -188,100 +280,433 @@ public class PhysicalAssetResource {
      * After the observe relation is established, the onLoad method will be called at any new property update.
      * If an error happens at any point during the observation process, it will get logged as a warning.
      * If an error occurs while establishing the observe relation, it will be logged as an error.
+     * @return The future completed once the observe request gets its first response or fails.
      */
-    public void startObservation() {
-        if (autoUpdateTimer != null) {
-            autoUpdateTimer.cancel();
-            autoUpdateTimer = null;
+    public CompletableFuture<Void> startObservation() {
+        synchronized (this) {
+            stopAutoUpdate();
+
+            observationActive = true;
+            fallbackPollingActive = false;
         }
 
-        if (observeRelation != null)
-            observeRelation.proactiveCancel();
+        return registerObservation(false);
+    }
 
-        Request request = getBaseRequest(CoAP.Code.GET);
-        request.setObserve();
+    /**
+     * Stops observing the resource, together with the fallback polling started while recovering the observation.
+     */
+    public void stopObservation() {
+        cancelObservation();
+
+        synchronized (this) {
+            if (fallbackPollingActive) {
+                fallbackPollingActive = false;
+                stopAutoUpdate();
+            }
+        }
+    }
+
+    /**
+     * Stops every activity of the resource: observation, polling, queued actions and pending notifications.
+     * The exchanges already in flight are left to complete.
+     * Used when the resource is removed from the adapter.
+     */
+    public void stop() {
+        stopObservation();
+
+        synchronized (this) {
+            stopAutoUpdate();
+
+            if (actionQueue != null) {
+                actionQueue.shutdown();
+            }
+        }
+
+        NotificationDispatcher dispatcher = configuration.getNotificationDispatcher();
+        if (dispatcher != null) {
+            dispatcher.remove(this);
+        }
+    }
+
+    /**
+     * @return true if a GET request or an action of the resource is waiting for its response.
+     */
+    public boolean hasPendingExchanges() {
+        ActionQueue queue;
+        synchronized (this) {
+            queue = actionQueue;
+        }
+        return inFlightGet.get() != null || queue != null && queue.getInFlightActions() > 0;
+    }
+
+    /**
+     * Releases the client of a stopped resource.
+     */
+    public void close() {
+        client.shutdown();
+    }
+
+    public synchronized boolean isObservationActive() {
+        return observationActive;
+    }
+
+    public synchronized boolean isFallbackPollingActive() {
+        return fallbackPollingActive;
+    }
+
+    /**
+     * @return The time (in milliseconds since the epoch) of the last notification received from the observe relation,
+     * or of the last registration if no notification has been received since then.
+     */
+    public long getLastNotificationTime() {
+        return lastNotificationTime;
+    }
+
+    /**
+     * @return The Max-Age (in milliseconds) of the last notification received from the observe relation.
+     */
+    public long getLastNotificationMaxAge() {
+        return lastNotificationMaxAge;
+    }
+
+    /**
+     * Recovers a stale observation by registering a new observe relation.
+     * If the fallback polling is enabled, the resource is also polled until the new relation delivers its first notification.
+     */
+    public void recoverObservation() {
+        synchronized (this) {
+            if (!observationActive) {
+                return;
+            }
+
+            logger.warn("CoAP physical adapter observation of {}/{} is stale, registering again", getServerConnectionString(), name);
+
+            if (configuration.isObservationFallbackPollingEnabled() && !fallbackPollingActive) {
+                fallbackPollingActive = true;
+                startPolling(configuration.getAutoUpdateInterval(name, resourceType));
+            }
+        }
+
+        registerObservation(true);
+    }
+
+    /**
+     * Subscribes again to the observe relation of an observed resource, so that the relation and its registry key follow
+     * the current configuration, e.g. after the preferred content format has been reloaded.
+     * @return The future completed once the new observe request gets its first response or fails, already completed if
+     * the resource is not observed.
+     */
+    public CompletableFuture<Void> refreshObservation() {
+        synchronized (this) {
+            if (!observationActive) {
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+        return registerObservation(false);
+    }
+
+    /**
+     * Subscribes to the observe relation of the resource through the JVM-wide {@link ObservationRegistry}, replacing
+     * the current subscription if any. The relation is shared with the resources of the other adapters observing the
+     * same server, resource and content format.
+     * Notifications coming from a previous subscription do not refresh the observation health.
+     * The registry is called without holding the monitor of the resource, since subscribing and unsubscribing may
+     * notify the other subscribers of the relation, whose handlers lock their own resource.
+     * @param refresh true to register the shared relation again, e.g. because it became stale.
+     * @return The future completed once the observe request gets its first response or fails.
+     */
+    private CompletableFuture<Void> registerObservation(boolean refresh) {
+        ObservationRegistry.Subscription previousObservation;
+        long generation;
+
+        synchronized (this) {
+            previousObservation = observation;
+            observation = null;
+
+            generation = ++observationGeneration;
+            lastNotificationTime = System.currentTimeMillis();
+            lastNotificationMaxAge = DEFAULT_MAX_AGE;
+        }
+
+        CompletableFuture<Void> registration = new CompletableFuture<>();
+        ObservationRegistry.Subscription subscription = null;
 
         try {
-            observeRelation = client.observe(request, new CoapHandler() {
+            subscription = ObservationRegistry.getInstance().subscribe(getObservationKey(), client, this::createObserveRequest, new CoapHandler() {
                 @Override
                 public void onLoad(CoapResponse coapResponse) {
+                    registration.complete(null);
+
                     if (coapResponse == null) {
-                        notifyEvent("Observed null CoAP response");
+                        dispatchNotification(() -> notifyEvent("Observed null CoAP response"));
                     } else if (!coapResponse.isSuccess()) {
-                        notifyEvent("Observed CoAP response with code=" + coapResponse.getCode());
+                        dispatchNotification(() -> notifyEvent("Observed CoAP response with code=" + coapResponse.getCode()));
                     } else {
-                        notifyPropertyChange(coapResponse.getPayload());
+                        onObservationNotification(generation, coapResponse);
+                        cacheResponse(coapResponse);
+                        dispatchNotification(() -> notifyPropertyChange(coapResponse.getPayload()));
                     }
                 }
 
                 @Override
                 public void onError() {
-                    logger.warn("CoAP physical adapter got a resource observation error from {}/{}", configuration.getServerConnectionString(), name);
+                    logger.warn("CoAP physical adapter got a resource observation error from {}/{}", getServerConnectionString(), name);
+                    registration.complete(null);
+                    onObservationError(generation);
                 }
-            });
+            }, refresh);
         } catch (Exception e) {
-            logger.error("CoAP physical adapter failed to establish observe relation with {}/{}", configuration.getServerConnectionString(), this.name, e);
+            logger.error("CoAP physical adapter failed to establish observe relation with {}/{}", getServerConnectionString(), this.name, e);
+            registration.complete(null);
+        } finally {
+            if (previousObservation != null) {
+                previousObservation.unsubscribe();
+            }
+        }
+
+        if (subscription != null && !setObservation(generation, subscription)) {
+            // Replaced by a newer registration, or the observation was stopped meanwhile
+            subscription.unsubscribe();
         }
+
+        return registration;
+    }
+
+    private synchronized boolean setObservation(long generation, ObservationRegistry.Subscription subscription) {
+        if (generation != observationGeneration || !observationActive) {
+            return false;
+        }
+        observation = subscription;
+        return true;
     }
 
     /**
-     * Stops observing the resource.
+     * @return The key of the shared observe relation of this resource: server, resource and accepted content format.
      */
-    public void stopObservation() {
-        if (observeRelation != null) {
-            observeRelation.proactiveCancel();
+    private String getObservationKey() {
+        return String.format("%s/%s|%d", getServerConnectionString(), name, configuration.getPreferredContentFormat());
+    }
+
+    private Request createObserveRequest() {
+        Request request = getBaseRequest(CoAP.Code.GET);
+        request.setObserve();
+        return request;
+    }
+
+    private synchronized void onObservationNotification(long generation, CoapResponse coapResponse) {
+        if (generation != observationGeneration) {
+            return;
+        }
+
+        Long maxAge = getMaxAge(coapResponse);
+        lastNotificationTime = System.currentTimeMillis();
+        lastNotificationMaxAge = maxAge == null ? DEFAULT_MAX_AGE : maxAge * 1000;
+
+        if (fallbackPollingActive) {
+            logger.info("CoAP physical adapter observation of {}/{} recovered, stopping fallback polling", getServerConnectionString(), name);
+            fallbackPollingActive = false;
+            stopAutoUpdate();
+        }
+    }
+
+    private synchronized void onObservationError(long generation) {
+        if (generation == observationGeneration) {
+            // Marks the relation as stale, so that the watchdog recovers it at the next check
+            lastNotificationTime = 0;
         }
-        observeRelation = null;
     }
 
     /**
-     * Starts a timer that will periodically update the property.
+     * Cancels the subscription of the resource, unsubscribing outside the monitor of the resource like {@link #registerObservation(boolean)}.
+     */
+    private void cancelObservation() {
+        ObservationRegistry.Subscription subscription;
+
+        synchronized (this) {
+            observationActive = false;
+            // A registration in progress finds a newer generation and unsubscribes on its own
+            observationGeneration++;
+
+            subscription = observation;
+            observation = null;
+        }
+
+        if (subscription != null) {
+            subscription.unsubscribe();
+        }
+    }
+
+    /**
+     * Registers a task on the adapter's shared polling scheduler that will periodically update the property.
+     * The first poll is placed inside the interval according to the configured phase policy, and every following
+     * delay is randomized by the configured jitter.
      * If any observation or previous polling is active, they will be cancelled.
      * @param autoUpdateInterval The interval in milliseconds between each update call.
      */
     public void startAutoUpdate(long autoUpdateInterval) {
-        if (observeRelation != null) {
-            observeRelation.proactiveCancel();
-            observeRelation = null;
+        cancelObservation();
+
+        synchronized (this) {
+            fallbackPollingActive = false;
+            startPolling(autoUpdateInterval);
         }
+    }
 
-        if (autoUpdateTimer != null)
-            autoUpdateTimer.cancel();
+    private synchronized void startPolling(long autoUpdateInterval) {
+        stopAutoUpdate();
 
-        autoUpdateTimer = new Timer();
-        autoUpdateTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                updateProperty();
-            }
-        }, 0, autoUpdateInterval);
+        this.autoUpdateInterval = autoUpdateInterval;
+        this.pollingPriority = configuration.getPollingPriority(name, resourceType);
+        this.adaptiveInterval = configuration.isAdaptivePollingEnabled() ?
+                new AdaptivePollingInterval(
+                        autoUpdateInterval,
+                        configuration.getAdaptivePollingMinInterval(),
+                        configuration.getAdaptivePollingMaxInterval(),
+                        configuration.getAdaptivePollingBackoffFactor()) :
+                null;
+        this.autoUpdateActive = true;
+
+        scheduleAutoUpdate(pollingGeneration, configuration.getPollingScheduler().getInitialDelay(configuration.getPollingPhasePolicy(), autoUpdateInterval));
+    }
+
+    /**
+     * Removes the polling task of the resource from the shared polling scheduler.
+     */
+    public synchronized void stopAutoUpdate() {
+        autoUpdateActive = false;
+        pollingGeneration++;
+
+        if (autoUpdateTask != null) {
+            autoUpdateTask.cancel(false);
+        }
+        autoUpdateTask = null;
+    }
+
+    /**
+     * @return The polling interval (in milliseconds) the polling was started with, before any adaptation.
+     */
+    public synchronized long getAutoUpdateInterval() {
+        return autoUpdateInterval;
+    }
+
+    public synchronized PollingPriority getPollingPriority() {
+        return pollingPriority;
+    }
+
+    public synchronized boolean isAutoUpdateActive() {
+        return autoUpdateActive;
+    }
+
+    /**
+     * @return The interval (in milliseconds) before the next poll, which changes over time if the adaptive polling is enabled.
+     */
+    public synchronized long getCurrentAutoUpdateInterval() {
+        return adaptiveInterval != null ? adaptiveInterval.getInterval() : autoUpdateInterval;
+    }
+
+    /**
+     * Schedules the next poll of the polling chain started with the given generation.
+     * A poll which was already running or waiting for a polling thread when the polling was stopped or restarted
+     * belongs to a stale generation, and neither polls nor schedules a new poll, so that a single chain is ever active.
+     */
+    private synchronized void scheduleAutoUpdate(long generation, long delay) {
+        if (!autoUpdateActive || generation != pollingGeneration) {
+            return;
+        }
+
+        try {
+            autoUpdateTask = configuration.getPollingScheduler().schedule(() -> runAutoUpdate(generation), delay, pollingPriority);
+        } catch (RejectedExecutionException e) {
+            logger.warn("CoAP physical adapter could not schedule the polling of {}/{}", getServerConnectionString(), name);
+            autoUpdateActive = false;
+            autoUpdateTask = null;
+        }
+    }
+
+    private void runAutoUpdate(long generation) {
+        if (!isPollingGeneration(generation)) {
+            return;
+        }
+
+        try {
+            poll();
+        } catch (Exception e) {
+            logger.error("CoAP physical adapter failed to poll {}/{}", getServerConnectionString(), name, e);
+        } finally {
+            scheduleAutoUpdate(generation, PollingScheduler.applyJitter(getCurrentAutoUpdateInterval(), configuration.getPollingJitter()));
+        }
+    }
+
+    private synchronized boolean isPollingGeneration(long generation) {
+        return autoUpdateActive && generation == pollingGeneration;
     }
 
     /**
-     * Stops the timer that updates the property.
+     * Executes a single polling cycle, using the asynchronous mode if it is enabled in the configuration.
      */
-    public void stopAutoUpdate() {
-        if (autoUpdateTimer != null) {
-            autoUpdateTimer.cancel();
+    private void poll() {
+        if (configuration.isAsyncPollingEnabled()) {
+            updatePropertyAsync();
+        } else {
+            updateProperty();
         }
-        autoUpdateTimer = null;
     }
 
     public void updateProperty() {
-        updateProperty(getBaseRequest(CoAP.Code.GET));
+        updateProperty(getPropertyRequest());
     }
 
     /**
      * Sends a GET request to the resource.
      * If a custom request method is provided in the configuration, it will be used to send the request, otherwise the default method will be used.
      * If an error occurs during the communication, it gets logged as an error.
+     * <p>
+     * While another GET request of this resource is in flight, no request is sent: the call waits for the pending
+     * response instead, which is notified to the listeners only once. If the response cache is enabled and holds a
+     * fresh response of this resource, no request is sent either, since its value has already been notified.
+     * </p>
      * @param request The request to send, if null a default GET request will be created instead.
      */
     public void updateProperty(Request request) {
-        try {
+        readProperty(request);
+    }
 
-            CoapResponse coapResponse;
+    public CoapResponse readProperty() {
+        return readProperty(getPropertyRequest());
+    }
+
+    /**
+     * Reads the resource with a GET request, notifying the received value to the listeners like {@link #updateProperty(Request)}.
+     * The response is served by the response cache, if enabled, while the last response of this resource is fresh.
+     * A response served by the cache is not notified to the listeners again, and does not update the adaptive polling
+     * interval, since its value was notified when it was received.
+     * Only the default property request is served by and stored in the cache, since a request with other options
+     * (e.g. Accept, Uri-Query or ETag) may get a different representation of the resource.
+     * A 2.03 Valid response confirming the cached response is returned as the 2.05 Content response rebuilt from it.
+     * @param request The request to send, if null a default GET request will be created instead.
+     * @return The response, or null if the request failed.
+     */
+    public CoapResponse readProperty(Request request) {
+        ResponseCache cache = isDefaultPropertyRequest(request) ? configuration.getResponseCache() : null;
+        if (cache != null) {
+            CoapResponse cachedResponse = cache.get(getWldtKey());
+            if (cachedResponse != null) {
+                return cachedResponse;
+            }
+        }
+
+        CompletableFuture<CoapResponse> flight = new CompletableFuture<>();
+        CompletableFuture<CoapResponse> pending = attachToInFlightGet(flight);
+
+        if (pending != null) {
+            return awaitInFlightGet(pending);
+        }
 
+        CoapResponse coapResponse = null;
+        CoapResponse readResponse = null;
+
+        try {
             if (request == null) {
                 request = getBaseRequest(CoAP.Code.GET);
             }
@@ -292,16 +717,212 @@ public class PhysicalAssetResource {
                 coapResponse = client.advanced(request);
             }
 
-            if (coapResponse == null) {
-                notifyEvent("CoAP request got null response");
-            } else if (!coapResponse.isSuccess()) {
-                notifyEvent("CoAP request failed with code=" + coapResponse.getCode());
-            } else {
-                notifyPropertyChange(coapResponse.getPayload());
-            }
+            readResponse = cache != null ? cacheResponse(coapResponse) : coapResponse;
+            handlePropertyResponse(coapResponse);
+        } catch (Exception e) {
+            logger.error("CoAP physical adapter failed to send GET request to {}/{}", getServerConnectionString(), this.name, e);
+        } finally {
+            completeInFlightGet(flight, readResponse);
+        }
+
+        return readResponse;
+    }
+
+    public boolean updatePropertyAsync() {
+        return updatePropertyAsync(getPropertyRequest());
+    }
+
+    /**
+     * Sends a GET request to the resource without waiting for the response, which is handled by a callback as soon as it arrives.
+     * The request is skipped if a previous GET request of this resource is still pending, since its response will be
+     * notified anyway, if the response cache holds a fresh response of this resource, or if the adapter reached its
+     * global or per-server in-flight limits.
+     * If a custom request method is provided in the configuration, the request is sent synchronously through it.
+     * @param request The request to send, if null a default GET request will be created instead.
+     * @return true if the request has been sent, false if it has been skipped.
+     */
+    public boolean updatePropertyAsync(Request request) {
+        boolean defaultRequest = isDefaultPropertyRequest(request);
+        if (request == null) {
+            request = getBaseRequest(CoAP.Code.GET);
+        }
+
+        if (configuration.getCustomPropertyRequestFunction() != null) {
+            updateProperty(request);
+            return true;
+        }
+
+        String server = getServerConnectionString();
+        InFlightRequestLimiter limiter = configuration.getInFlightRequestLimiter();
+        ResponseCache cache = defaultRequest ? configuration.getResponseCache() : null;
+
+        if (cache != null && cache.get(getWldtKey()) != null) {
+            logger.debug("CoAP physical adapter skipped GET request to {}/{}: cached response still fresh", server, name);
+            return false;
+        }
+
+        CompletableFuture<CoapResponse> flight = new CompletableFuture<>();
+
+        if (attachToInFlightGet(flight) != null) {
+            logger.debug("CoAP physical adapter skipped GET request to {}/{}: previous request still pending", server, name);
+            return false;
+        }
+        if (!limiter.tryAcquire(server)) {
+            completeInFlightGet(flight, null);
+            logger.debug("CoAP physical adapter skipped GET request to {}/{}: in-flight limit reached", server, name);
+            return false;
+        }
+
+        try {
+            client.advanced(new CoapHandler() {
+                @Override
+                public void onLoad(CoapResponse coapResponse) {
+                    if (cache != null) {
+                        cacheResponse(coapResponse);
+                    }
+                    releaseAsyncUpdate(limiter, server, flight, coapResponse);
+                    dispatchNotification(() -> handlePropertyResponse(coapResponse));
+                }
+
+                @Override
+                public void onError() {
+                    releaseAsyncUpdate(limiter, server, flight, null);
+                    logger.warn("CoAP physical adapter got no response to GET request from {}/{}", server, name);
+                    dispatchNotification(() -> notifyEvent("CoAP request got no response"));
+                }
+            }, request);
         } catch (Exception e) {
-            logger.error("CoAP physical adapter failed to send GET request to {}/{}", configuration.getServerConnectionString(), this.name, e);
+            releaseAsyncUpdate(limiter, server, flight, null);
+            logger.error("CoAP physical adapter failed to send GET request to {}/{}", server, this.name, e);
+            return false;
         }
+
+        return true;
+    }
+
+    private void releaseAsyncUpdate(InFlightRequestLimiter limiter, String server, CompletableFuture<CoapResponse> flight, CoapResponse coapResponse) {
+        limiter.release(server);
+        completeInFlightGet(flight, coapResponse);
+    }
+
+    /**
+     * Registers a new GET request as the in-flight one of this resource, unless another one is already pending.
+     * @param flight The future completed with the response of the new request.
+     * @return null if the new request has been registered and has to be sent, otherwise the future of the pending request.
+     */
+    private CompletableFuture<CoapResponse> attachToInFlightGet(CompletableFuture<CoapResponse> flight) {
+        while (true) {
+            CompletableFuture<CoapResponse> pending = inFlightGet.get();
+            if (pending != null) {
+                deduplicatedGetCount.incrementAndGet();
+                return pending;
+            }
+            if (inFlightGet.compareAndSet(null, flight)) {
+                return null;
+            }
+        }
+    }
+
+    private void completeInFlightGet(CompletableFuture<CoapResponse> flight, CoapResponse coapResponse) {
+        inFlightGet.compareAndSet(flight, null);
+        flight.complete(coapResponse);
+    }
+
+    private CoapResponse awaitInFlightGet(CompletableFuture<CoapResponse> pending) {
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // The request failed and has already been logged by the thread that sent it
+        }
+        return null;
+    }
+
+    /**
+     * Stores the response of a GET request in the response cache, if enabled.
+     * A 2.03 Valid response extends the freshness of the cached response it confirms.
+     * @return The response to return to the reader: the 2.05 Content response rebuilt from the cached one for a
+     * 2.03 Valid response confirming it, otherwise the received response itself.
+     */
+    private CoapResponse cacheResponse(CoapResponse coapResponse) {
+        ResponseCache cache = configuration.getResponseCache();
+        if (cache == null || coapResponse == null) {
+            return coapResponse;
+        }
+
+        if (coapResponse.getCode() == CoAP.ResponseCode.VALID) {
+            CoapResponse content = cache.revalidate(getWldtKey(), coapResponse);
+            return content != null ? content : coapResponse;
+        }
+
+        cache.put(getWldtKey(), coapResponse);
+        return coapResponse;
+    }
+
+    private void invalidateCachedResponse() {
+        ResponseCache cache = configuration.getResponseCache();
+        if (cache != null) {
+            cache.invalidate(getWldtKey());
+        }
+    }
+
+    /**
+     * @return The number of GET requests which were not sent because another GET request of this resource was in flight.
+     */
+    public long getDeduplicatedGetCount() {
+        return deduplicatedGetCount.get();
+    }
+
+    /**
+     * Runs a notification task on the adapter's notification dispatcher, or directly on the calling thread if the dispatch stage is disabled.
+     * @param task The task translating and notifying a response.
+     */
+    private void dispatchNotification(Runnable task) {
+        NotificationDispatcher dispatcher = configuration.getNotificationDispatcher();
+        if (dispatcher == null) {
+            task.run();
+        } else {
+            dispatcher.dispatch(this, task);
+        }
+    }
+
+    /**
+     * Notifies the listeners about the response of a GET request.
+     * @param coapResponse The received response.
+     */
+    private void handlePropertyResponse(CoapResponse coapResponse) {
+        AdaptivePollingInterval interval = adaptiveInterval;
+
+        if (coapResponse == null) {
+            notifyEvent("CoAP request got null response");
+        } else if (coapResponse.getCode() == CoAP.ResponseCode.VALID) {
+            // The payload identified by the sent ETag is still valid: nothing to translate
+            if (interval != null) {
+                interval.onUnchanged(getMaxAge(coapResponse));
+            }
+        } else if (!coapResponse.isSuccess()) {
+            notifyEvent("CoAP request failed with code=" + coapResponse.getCode());
+        } else {
+            if (configuration.isConditionalPollingEnabled()) {
+                List<byte[]> eTags = coapResponse.getOptions().getETags();
+                lastETag = eTags.isEmpty() ? null : eTags.get(0);
+            }
+
+            if (interval != null) {
+                interval.onPayload(coapResponse.getPayload(), getMaxAge(coapResponse));
+            }
+
+            notifyPropertyChange(coapResponse.getPayload());
+        }
+    }
+
+    /**
+     * @param coapResponse The received response.
+     * @return The Max-Age option (in seconds) of the response, or null if the server did not set it.
+     */
+    private static Long getMaxAge(CoapResponse coapResponse) {
+        return coapResponse.getOptions().hasMaxAge() ? coapResponse.getOptions().getMaxAge() : null;
     }
 
     /**
@@ -317,9 +938,11 @@ public class PhysicalAssetResource {
 
         if (request.getCode() == CoAP.Code.POST && !hasPostSupport ||
             request.getCode() == CoAP.Code.PUT && !hasPutSupport) {
-            logger.warn("Invoked unsupported action request to {}/{}", configuration.getServerConnectionString(), name);
+            logger.warn("Invoked unsupported action request to {}/{}", getServerConnectionString(), name);
             return;
         }
+        invalidateCachedResponse();
+
         try {
             CoapResponse coapResponse;
 
@@ -330,20 +953,178 @@ public class PhysicalAssetResource {
                 coapResponse = client.advanced(request);
             }
 
-            if (coapResponse == null) {
-                logger.warn("CoAP request got null response");
-                notifyEvent("CoAP request got null response");
-            } else if (!coapResponse.isSuccess()) {
-                logger.warn("CoAP request failed with code={}", coapResponse.getCode());
-                notifyEvent("CoAP request failed with code=" + coapResponse.getCode());
-            } else {
-                logger.info("CoAP request succeeded");
-            }
+            handleActionResponse(coapResponse, null);
         } catch (Exception e) {
-            logger.error("CoAP physical adapter failed to send request to {}/{}", configuration.getServerConnectionString(), this.name, e);
+            logger.error("CoAP physical adapter failed to send request to {}/{}", getServerConnectionString(), this.name, e);
         }
     }
 
+    /**
+     * Sends an action request to the resource without blocking the calling thread.
+     * The request is queued behind the other actions of the resource, and sent as soon as the number of its exchanges
+     * in progress is below the configured limit. A pending PUT request may be superseded by a newer one, in which case
+     * its future is completed with the response of the newer request.
+     * The outcome of the exchange is notified as an event, both on success and on failure.
+     * @param request The request to send, if null a POST request will be created instead.
+     * @return The future completed with the response, or completed exceptionally if the action is not supported,
+     * the exchange fails or the configured action timeout expires.
+     */
+    public CompletableFuture<CoapResponse> sendActionAsync(Request request) {
+        if (request == null) {
+            request = getBaseRequest(CoAP.Code.POST);
+        }
+
+        if (request.getCode() == CoAP.Code.POST && !hasPostSupport ||
+            request.getCode() == CoAP.Code.PUT && !hasPutSupport) {
+            logger.warn("Invoked unsupported action request to {}/{}", getServerConnectionString(), name);
+
+            CompletableFuture<CoapResponse> future = new CompletableFuture<>();
+            future.completeExceptionally(new UnsupportedOperationException("Unsupported action request " + request.getCode()));
+            return future;
+        }
+
+        CompletableFuture<CoapResponse> future = getActionQueue().submit(request);
+        future.whenComplete((coapResponse, error) -> {
+            if (error instanceof RejectedExecutionException) {
+                logger.warn("CoAP physical adapter discarded action to {}/{}: {}", getServerConnectionString(), name, error.getMessage());
+                notifyEvent("CoAP action discarded: " + error.getMessage());
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Returns the action queue of the resource, created at the first invocation according to the configuration.
+     * @return The action queue.
+     */
+    public synchronized ActionQueue getActionQueue() {
+        if (actionQueue == null) {
+            actionQueue = new ActionQueue(
+                    configuration.getMaxConcurrentActionsPerResource(),
+                    configuration.getActionQueueCapacity(),
+                    configuration.getActionQueueOverflowPolicy(),
+                    configuration.isActionCoalescingEnabled(),
+                    this::exchangeAction);
+        }
+        return actionQueue;
+    }
+
+    /**
+     * Sends an action request and notifies its outcome as an event.
+     * If a custom request method is provided in the configuration, it is invoked on the shared action threads.
+     * The timeout fires on the timer of the polling scheduler, and the outcome is handled on the action threads,
+     * so that neither the polling threads nor the Californium threads are held by the actions.
+     * @param request The request to send.
+     * @return The future completed with the response.
+     */
+    private CompletableFuture<CoapResponse> exchangeAction(Request request) {
+        CompletableFuture<CoapResponse> future = new CompletableFuture<>();
+        ExecutorService actionExecutor = configuration.getActionExecutor();
+
+        // The action is expected to change the state of the resource
+        invalidateCachedResponse();
+
+        if (configuration.getCustomActionRequestFunction() != null) {
+            actionExecutor.execute(() -> {
+                try {
+                    future.complete(configuration.getCustomActionRequestFunction().apply(request));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } else {
+            request.getOptions().setUriPath(name);
+            client.advanced(new CoapHandler() {
+                @Override
+                public void onLoad(CoapResponse coapResponse) {
+                    future.complete(coapResponse);
+                }
+
+                @Override
+                public void onError() {
+                    future.completeExceptionally(new IllegalStateException("CoAP action request got no response"));
+                }
+            }, request);
+        }
+
+        if (configuration.getActionTimeout() > 0) {
+            ScheduledFuture<?> timeout = configuration.getPollingScheduler().scheduleOnTimer(() -> {
+                if (future.completeExceptionally(new TimeoutException("CoAP action request timed out"))) {
+                    request.cancel();
+                }
+            }, configuration.getActionTimeout());
+            future.whenComplete((response, error) -> timeout.cancel(false));
+        }
+
+        future.whenCompleteAsync((coapResponse, error) -> {
+            if (handleActionResponse(coapResponse, error)) {
+                notifyEvent("CoAP action completed with code=" + coapResponse.getCode());
+            }
+        }, actionExecutor);
+
+        return future;
+    }
+
+    /**
+     * Logs the outcome of an action request, and notifies it as an event if the action failed.
+     * @param coapResponse The received response, null if no response has been received.
+     * @param error The error which made the exchange fail, null if the exchange completed.
+     * @return true if the action succeeded.
+     */
+    private boolean handleActionResponse(CoapResponse coapResponse, Throwable error) {
+        if (error != null) {
+            logger.warn("CoAP physical adapter action to {}/{} failed: {}", getServerConnectionString(), name, error.getMessage());
+            notifyEvent("CoAP action failed: " + error.getMessage());
+        } else if (coapResponse == null) {
+            logger.warn("CoAP request got null response");
+            notifyEvent("CoAP request got null response");
+        } else if (!coapResponse.isSuccess()) {
+            logger.warn("CoAP request failed with code={}", coapResponse.getCode());
+            notifyEvent("CoAP request failed with code=" + coapResponse.getCode());
+        } else {
+            logger.info("CoAP request succeeded");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Creates the GET request used to update the property.
+     * If the conditional polling is enabled, the last ETag received from the server is added to the request.
+     * @return The property request.
+     */
+    private Request getPropertyRequest() {
+        Request request = getBaseRequest(CoAP.Code.GET);
+
+        byte[] eTag = lastETag;
+        if (configuration.isConditionalPollingEnabled() && eTag != null) {
+            request.getOptions().addETag(eTag);
+        }
+
+        return request;
+    }
+
+    /**
+     * Checks whether a request asks for the same representation as the default property request, i.e. a GET request
+     * of this resource with the preferred Accept, no query and no ETag other than the one used by the conditional polling.
+     * @param request The request, null for the default request.
+     * @return true if the response to the request can be served by and stored in the response cache.
+     */
+    private boolean isDefaultPropertyRequest(Request request) {
+        if (request == null) {
+            return true;
+        }
+
+        OptionSet options = request.getOptions();
+        byte[] eTag = lastETag;
+
+        return request.getCode() == CoAP.Code.GET &&
+                name.equals(options.getUriPathString()) &&
+                options.getAccept() == configuration.getPreferredContentFormat() &&
+                options.getURIQueryCount() == 0 &&
+                options.getETags().stream().allMatch(requestETag -> eTag != null && Arrays.equals(requestETag, eTag));
+    }
+
     /**
      * Creates a base request with the given code setting the URI path and the Accept options.
      * @param code The CoAP request code.
@@ -0,0 +1,150 @@
+package it.wldt.adapter.coap.physical.network;
+
+import org.eclipse.californium.core.CoapClient;
+import org.eclipse.californium.core.config.CoapConfig;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.core.network.Endpoint;
+import org.eclipse.californium.elements.config.Configuration;
+import org.eclipse.californium.elements.util.DaemonThreadFactory;
+import org.eclipse.californium.elements.util.ExecutorsUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adapter-wide pool of the CoAP endpoints used by every {@link it.wldt.adapter.coap.physical.model.PhysicalAssetResource}
+ * and by the resource discovery.
+ * It replaces the implicit endpoint of each {@link CoapClient} with a fixed number of endpoints sharing a single
+ * protocol executor, so that the sockets and threads used by the adapter no longer grow with the number of resources.
+ * The clients are assigned to the endpoints in round-robin order.
+ * <p>
+ * A further endpoint, with the transparent block-wise transfer disabled, is dedicated to the resource discovery: each
+ * discovery response then carries a single block, which is parsed before the next one is requested.
+ * </p>
+ */
+public class CoapEndpointManager {
+    private static final Logger logger = LoggerFactory.getLogger(CoapEndpointManager.class);
+
+    private static final AtomicInteger managerCount = new AtomicInteger();
+
+    private final ScheduledExecutorService protocolExecutor;
+    private final ScheduledExecutorService secondaryExecutor;
+    private final List<Endpoint> endpoints;
+    private final Endpoint discoveryEndpoint;
+
+    private final AtomicInteger nextEndpoint = new AtomicInteger();
+    private volatile boolean shutdown;
+
+    /**
+     * Creates and starts a new endpoint pool, together with the discovery endpoint.
+     * @param endpointCount The number of endpoints, each bound to its own ephemeral UDP port.
+     * @param protocolThreads The number of threads running the CoAP protocol stages of every endpoint.
+     * @param configuration The Californium configuration of the endpoints.
+     * @throws IOException If an endpoint cannot be bound.
+     */
+    public CoapEndpointManager(int endpointCount, int protocolThreads, Configuration configuration) throws IOException {
+        String threadPrefix = String.format("coap-pa-endpoint-%d-", managerCount.incrementAndGet());
+
+        this.protocolExecutor = ExecutorsUtil.newScheduledThreadPool(protocolThreads, new DaemonThreadFactory(threadPrefix + "protocol#"));
+        this.secondaryExecutor = ExecutorsUtil.newDefaultSecondaryScheduler(threadPrefix + "timer#");
+
+        List<Endpoint> endpoints = new ArrayList<>();
+        Endpoint discoveryEndpoint = null;
+        try {
+            for (int i = 0; i < endpointCount; i++) {
+                Endpoint endpoint = new CoapEndpoint.Builder()
+                        .setConfiguration(configuration)
+                        .build();
+                endpoint.setExecutors(protocolExecutor, secondaryExecutor);
+                endpoints.add(endpoint);
+                endpoint.start();
+            }
+
+            // A maximum body size of 0 disables the transparent block-wise transfer, so the blocks reach the caller one by one
+            discoveryEndpoint = new CoapEndpoint.Builder()
+                    .setConfiguration(new Configuration(configuration).set(CoapConfig.MAX_RESOURCE_BODY_SIZE, 0))
+                    .build();
+            discoveryEndpoint.setExecutors(protocolExecutor, secondaryExecutor);
+            discoveryEndpoint.start();
+        } catch (IOException e) {
+            endpoints.forEach(Endpoint::destroy);
+            if (discoveryEndpoint != null) {
+                discoveryEndpoint.destroy();
+            }
+            ExecutorsUtil.shutdownExecutorGracefully(0, protocolExecutor, secondaryExecutor);
+            throw e;
+        }
+
+        this.endpoints = Collections.unmodifiableList(endpoints);
+        this.discoveryEndpoint = discoveryEndpoint;
+    }
+
+    /**
+     * Creates a new client bound to one of the shared endpoints.
+     * @param uri The URI of the client.
+     * @return The client.
+     */
+    public CoapClient createClient(String uri) {
+        CoapClient client = new CoapClient(uri);
+        client.setEndpoint(getEndpoint());
+        return client;
+    }
+
+    /**
+     * Creates a new client bound to the discovery endpoint, which returns the blocks of a block-wise response one by one.
+     * @param uri The URI of the client.
+     * @return The client.
+     */
+    public CoapClient createDiscoveryClient(String uri) {
+        CoapClient client = new CoapClient(uri);
+        client.setEndpoint(discoveryEndpoint);
+        return client;
+    }
+
+    /**
+     * @return The next endpoint in round-robin order.
+     */
+    public Endpoint getEndpoint() {
+        return endpoints.get(Math.floorMod(nextEndpoint.getAndIncrement(), endpoints.size()));
+    }
+
+    /**
+     * @return The endpoints of the pool, without the discovery endpoint.
+     */
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    public Endpoint getDiscoveryEndpoint() {
+        return discoveryEndpoint;
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Destroys every endpoint, cancelling their pending exchanges, and releases the executor threads.
+     */
+    public void shutdown() {
+        shutdown = true;
+
+        List<Endpoint> destroyed = new ArrayList<>(endpoints);
+        destroyed.add(discoveryEndpoint);
+        destroyed.forEach(endpoint -> {
+            try {
+                endpoint.destroy();
+            } catch (Exception e) {
+                logger.warn("CoAP physical adapter failed to destroy endpoint {}", endpoint.getAddress(), e);
+            }
+        });
+
+        ExecutorsUtil.shutdownExecutorGracefully(1000, protocolExecutor, secondaryExecutor);
+    }
+}
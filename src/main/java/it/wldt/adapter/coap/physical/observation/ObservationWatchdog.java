@@ -0,0 +1,64 @@
+package it.wldt.adapter.coap.physical.observation;
+
+import it.wldt.adapter.coap.physical.configuration.CoapPhysicalAdapterConfiguration;
+import it.wldt.adapter.coap.physical.model.PhysicalAssetResource;
+import it.wldt.adapter.coap.physical.polling.PollingScheduler;
+
+import java.util.ArrayList;
+
+/**
+ * Periodically checks the health of the observe relations of the adapter's resources.
+ * A relation is considered stale when no notification has been received within the configured deadline or,
+ * if no deadline is configured, within the Max-Age of the last notification plus one check interval.
+ * Stale relations are recovered through {@link PhysicalAssetResource#recoverObservation()}.
+ */
+public class ObservationWatchdog {
+    private final CoapPhysicalAdapterConfiguration configuration;
+
+    private PollingScheduler.PeriodicTask checkTask;
+
+    public ObservationWatchdog(CoapPhysicalAdapterConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Starts the periodic checks on the adapter's shared polling scheduler.
+     */
+    public synchronized void start() {
+        stop();
+
+        long interval = configuration.getObservationWatchdogInterval();
+        checkTask = configuration.getPollingScheduler().scheduleWithFixedDelay(this::check, interval, interval);
+    }
+
+    /**
+     * Stops the periodic checks.
+     */
+    public synchronized void stop() {
+        if (checkTask != null) {
+            checkTask.cancel();
+        }
+        checkTask = null;
+    }
+
+    /**
+     * Recovers every observed resource whose relation is stale.
+     */
+    public void check() {
+        long now = System.currentTimeMillis();
+
+        new ArrayList<>(configuration.getResources()).forEach(resource -> {
+            if (resource.isObservationActive() && isStale(resource, now)) {
+                resource.recoverObservation();
+            }
+        });
+    }
+
+    private boolean isStale(PhysicalAssetResource resource, long now) {
+        long deadline = configuration.getObservationDeadline() > 0 ?
+                configuration.getObservationDeadline() :
+                resource.getLastNotificationMaxAge() + configuration.getObservationWatchdogInterval();
+
+        return now - resource.getLastNotificationTime() > deadline;
+    }
+}
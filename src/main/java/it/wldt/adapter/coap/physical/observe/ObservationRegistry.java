@@ -0,0 +1,263 @@
+package it.wldt.adapter.coap.physical.observe;
+
+import org.eclipse.californium.core.CoapClient;
+import org.eclipse.californium.core.CoapHandler;
+import org.eclipse.californium.core.CoapObserveRelation;
+import org.eclipse.californium.core.CoapResponse;
+import org.eclipse.californium.core.coap.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * JVM-wide registry of the observe relations, shared by every {@link it.wldt.adapter.coap.physical.CoapPhysicalAdapter}
+ * running in the same process.
+ * <p>
+ * The relations are reference-counted by key, made of server, resource and accepted content format: the first
+ * subscriber of a key registers the observe relation with its own client, the following ones attach to it, and each
+ * notification is fanned out to all the subscribers. The relation is cancelled when the last subscriber unsubscribes;
+ * if the subscriber owning the relation unsubscribes first, the relation is registered again with the client of
+ * another subscriber, so that it survives the stop of the adapter which opened it.
+ * </p>
+ * The handlers of the subscribers are never invoked while the registry lock is held, since they lock their own
+ * resource: a notification delivered synchronously while a relation is being registered is queued, and delivered once
+ * the subscribing or unsubscribing thread has released the lock.
+ */
+public class ObservationRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(ObservationRegistry.class);
+
+    private static final ObservationRegistry INSTANCE = new ObservationRegistry();
+
+    private final Map<String, SharedObservation> observations = new HashMap<>();
+    // Notifications raised while the registry lock was held, delivered once it is released
+    private final List<Runnable> pendingNotifications = new ArrayList<>();
+
+    public static ObservationRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribes to the notifications of a resource, registering a new observe relation if none is active for the key.
+     * If the relation already delivered a notification, the last one is immediately passed to the new subscriber.
+     * @param key The key of the relation, identifying server, resource and accepted content format.
+     * @param client The client used to register the relation if the subscriber becomes its owner.
+     * @param requestFactory The factory of the observe requests.
+     * @param handler The handler of the notifications.
+     * @param refresh true to register the relation again even if it is already active, e.g. because it became stale:
+     *                in this case the new subscriber becomes the owner of the relation.
+     * @return The subscription, used to unsubscribe.
+     */
+    public Subscription subscribe(String key, CoapClient client, Supplier<Request> requestFactory, CoapHandler handler, boolean refresh) {
+        Subscription subscription = new Subscription(key, client, requestFactory, handler);
+        CoapResponse lastResponse = null;
+
+        try {
+            synchronized (this) {
+                SharedObservation observation = observations.get(key);
+
+                if (observation == null) {
+                    observation = new SharedObservation(key);
+                    observations.put(key, observation);
+                } else if (!refresh) {
+                    lastResponse = observation.lastResponse;
+                }
+
+                observation.subscribers.add(subscription);
+
+                if (observation.relation == null || refresh) {
+                    try {
+                        // The refreshing subscriber becomes the owner of the new relation
+                        observation.register(subscription);
+                    } catch (RuntimeException e) {
+                        observation.subscribers.remove(subscription);
+                        if (observation.subscribers.isEmpty()) {
+                            observations.remove(key);
+                        }
+                        throw e;
+                    }
+                }
+            }
+        } finally {
+            deliverPendingNotifications();
+        }
+
+        if (lastResponse != null) {
+            handler.onLoad(lastResponse);
+        }
+
+        return subscription;
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        SharedObservation failedObservation = null;
+        long failedGeneration = 0;
+
+        synchronized (this) {
+            SharedObservation observation = observations.get(subscription.key);
+            if (observation == null || !observation.subscribers.remove(subscription)) {
+                return;
+            }
+
+            if (observation.subscribers.isEmpty()) {
+                observation.cancel();
+                observations.remove(subscription.key);
+            } else if (observation.owner == subscription) {
+                logger.debug("CoAP physical adapter observation of {} handed over to another subscriber", subscription.key);
+                try {
+                    observation.register(observation.subscribers.get(0));
+                } catch (RuntimeException e) {
+                    logger.warn("CoAP physical adapter failed to hand over the observation of {}", subscription.key, e);
+                    failedObservation = observation;
+                    failedGeneration = observation.generation;
+                }
+            }
+        }
+
+        // The subscribers are notified outside the registry lock, since their handlers lock their own resource
+        deliverPendingNotifications();
+        if (failedObservation != null) {
+            failedObservation.fanOutError(failedGeneration);
+        }
+    }
+
+    private void deliverPendingNotifications() {
+        List<Runnable> notifications;
+        synchronized (this) {
+            if (pendingNotifications.isEmpty()) {
+                return;
+            }
+            notifications = new ArrayList<>(pendingNotifications);
+            pendingNotifications.clear();
+        }
+        notifications.forEach(Runnable::run);
+    }
+
+    /**
+     * @return The number of observe relations currently registered.
+     */
+    public synchronized int getObservationCount() {
+        return observations.size();
+    }
+
+    /**
+     * @param key The key of the relation.
+     * @return The number of subscribers of the relation, 0 if it is not registered.
+     */
+    public synchronized int getSubscriberCount(String key) {
+        SharedObservation observation = observations.get(key);
+        return observation == null ? 0 : observation.subscribers.size();
+    }
+
+    /**
+     * Subscription of a single resource to a shared observe relation.
+     */
+    public class Subscription {
+        private final String key;
+        private final CoapClient client;
+        private final Supplier<Request> requestFactory;
+        private final CoapHandler handler;
+
+        private Subscription(String key, CoapClient client, Supplier<Request> requestFactory, CoapHandler handler) {
+            this.key = key;
+            this.client = client;
+            this.requestFactory = requestFactory;
+            this.handler = handler;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Stops delivering the notifications to this subscriber, cancelling the relation if it was the last one.
+         */
+        public void unsubscribe() {
+            ObservationRegistry.this.unsubscribe(this);
+        }
+    }
+
+    /**
+     * Observe relation shared by the subscribers of the same key.
+     * Every registration increments the generation, so that late notifications of a replaced relation are discarded.
+     */
+    private class SharedObservation {
+        private final String key;
+        private final List<Subscription> subscribers = new ArrayList<>();
+
+        private Subscription owner;
+        private CoapObserveRelation relation;
+        private CoapResponse lastResponse;
+        private long generation;
+
+        private SharedObservation(String key) {
+            this.key = key;
+        }
+
+        private void register(Subscription owner) {
+            cancel();
+
+            long registration = ++generation;
+            this.owner = owner;
+            this.lastResponse = null;
+            this.relation = owner.client.observe(owner.requestFactory.get(), new CoapHandler() {
+                @Override
+                public void onLoad(CoapResponse coapResponse) {
+                    fanOutResponse(registration, coapResponse);
+                }
+
+                @Override
+                public void onError() {
+                    fanOutError(registration);
+                }
+            });
+        }
+
+        private void cancel() {
+            if (relation != null) {
+                relation.proactiveCancel();
+                relation = null;
+            }
+        }
+
+        private void fanOutResponse(long registration, CoapResponse coapResponse) {
+            List<Subscription> targets;
+            synchronized (ObservationRegistry.this) {
+                if (registration != generation || observations.get(key) != this) {
+                    return;
+                }
+                lastResponse = coapResponse != null && coapResponse.isSuccess() ? coapResponse : null;
+                targets = new ArrayList<>(subscribers);
+            }
+            deliver(() -> targets.forEach(subscription -> subscription.handler.onLoad(coapResponse)));
+        }
+
+        private void fanOutError(long registration) {
+            List<Subscription> targets;
+            synchronized (ObservationRegistry.this) {
+                if (registration != generation || observations.get(key) != this) {
+                    return;
+                }
+                lastResponse = null;
+                targets = new ArrayList<>(subscribers);
+            }
+            deliver(() -> targets.forEach(subscription -> subscription.handler.onError()));
+        }
+
+        /**
+         * Runs a notification at once, or queues it if the current thread holds the registry lock, i.e. the relation
+         * notified it synchronously while being registered.
+         */
+        private void deliver(Runnable notification) {
+            if (Thread.holdsLock(ObservationRegistry.this)) {
+                pendingNotifications.add(notification);
+            } else {
+                notification.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package it.wldt.adapter.coap.physical.polling;
+
+import java.util.Arrays;
+
+/**
+ * Polling interval of a single resource which adapts to the observed change rate of its payload.
+ * The interval is multiplied by the back-off factor every time the polled payload is identical to the previous one
+ * and divided by it when the payload changes, always staying within the configured bounds.
+ * A Max-Age received from the server is used as a lower bound, since the value is declared fresh until it expires.
+ */
+public class AdaptivePollingInterval {
+    private final long minInterval;
+    private final long maxInterval;
+    private final double backoffFactor;
+
+    private long currentInterval;
+    private long maxAgeInterval;
+    private byte[] lastPayload;
+
+    /**
+     * Creates a new adaptive polling interval.
+     * @param initialInterval The interval (in milliseconds) used before receiving any response.
+     * @param minInterval The minimum interval (in milliseconds).
+     * @param maxInterval The maximum interval (in milliseconds).
+     * @param backoffFactor The factor applied to the interval on each unchanged or changed payload.
+     */
+    public AdaptivePollingInterval(long initialInterval, long minInterval, long maxInterval, double backoffFactor) {
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.backoffFactor = backoffFactor;
+
+        this.currentInterval = clamp(initialInterval);
+    }
+
+    /**
+     * Updates the interval with a new response payload.
+     * @param payload The received payload.
+     * @param maxAge The Max-Age (in seconds) of the response, or null if the response did not contain it.
+     */
+    public synchronized void onPayload(byte[] payload, Long maxAge) {
+        if (lastPayload != null) {
+            if (Arrays.equals(lastPayload, payload)) {
+                backOff();
+            } else {
+                currentInterval = clamp((long) (currentInterval / backoffFactor));
+            }
+        }
+
+        lastPayload = payload;
+        updateMaxAge(maxAge);
+    }
+
+    /**
+     * Updates the interval with a response confirming that the payload did not change since the previous one.
+     * @param maxAge The Max-Age (in seconds) of the response, or null if the response did not contain it.
+     */
+    public synchronized void onUnchanged(Long maxAge) {
+        backOff();
+        updateMaxAge(maxAge);
+    }
+
+    /**
+     * @return The interval (in milliseconds) to wait before the next poll.
+     */
+    public synchronized long getInterval() {
+        return clamp(Math.max(currentInterval, maxAgeInterval));
+    }
+
+    private void backOff() {
+        currentInterval = clamp((long) Math.ceil(currentInterval * backoffFactor));
+    }
+
+    private void updateMaxAge(Long maxAge) {
+        maxAgeInterval = maxAge == null ? 0 : maxAge * 1000;
+    }
+
+    private long clamp(long interval) {
+        return Math.min(maxInterval, Math.max(minInterval, interval));
+    }
+}
@@ -0,0 +1,76 @@
+package it.wldt.adapter.coap.physical.polling;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Caps the number of asynchronous polling requests that are waiting for a response, both globally and for each server.
+ * Permits are acquired without blocking: when a limit is reached the caller is expected to skip the request,
+ * so that a slow server can only exhaust its own permits and not the ones of the other servers.
+ */
+public class InFlightRequestLimiter {
+    private final int maxInFlightRequests;
+    private final int maxInFlightRequestsPerServer;
+
+    private final Semaphore globalPermits;
+    private final Map<String, Semaphore> serverPermits = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new limiter.
+     * @param maxInFlightRequests The maximum number of in-flight requests of the adapter.
+     * @param maxInFlightRequestsPerServer The maximum number of in-flight requests to the same server.
+     */
+    public InFlightRequestLimiter(int maxInFlightRequests, int maxInFlightRequestsPerServer) {
+        this.maxInFlightRequests = maxInFlightRequests;
+        this.maxInFlightRequestsPerServer = maxInFlightRequestsPerServer;
+
+        this.globalPermits = new Semaphore(maxInFlightRequests);
+    }
+
+    /**
+     * Tries to acquire a permit to send a request to the given server.
+     * @param server The server connection string.
+     * @return true if the permit has been acquired, false if any of the limits has been reached.
+     */
+    public boolean tryAcquire(String server) {
+        if (!globalPermits.tryAcquire()) {
+            return false;
+        }
+
+        if (!serverPermits.computeIfAbsent(server, s -> new Semaphore(maxInFlightRequestsPerServer)).tryAcquire()) {
+            globalPermits.release();
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Releases a permit previously acquired for the given server.
+     * @param server The server connection string.
+     */
+    public void release(String server) {
+        Semaphore permits = serverPermits.get(server);
+        if (permits != null) {
+            permits.release();
+        }
+        globalPermits.release();
+    }
+
+    /**
+     * @return The number of requests currently in flight.
+     */
+    public int getInFlightRequests() {
+        return maxInFlightRequests - globalPermits.availablePermits();
+    }
+
+    /**
+     * @param server The server connection string.
+     * @return The number of requests currently in flight to the given server.
+     */
+    public int getInFlightRequests(String server) {
+        Semaphore permits = serverPermits.get(server);
+        return permits == null ? 0 : maxInFlightRequestsPerServer - permits.availablePermits();
+    }
+}
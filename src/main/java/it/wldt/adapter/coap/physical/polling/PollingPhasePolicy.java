@@ -0,0 +1,19 @@
+package it.wldt.adapter.coap.physical.polling;
+
+/**
+ * Defines how the first poll of each resource is placed inside the polling interval.
+ */
+public enum PollingPhasePolicy {
+    /**
+     * Every resource is polled as soon as its polling starts.
+     */
+    NONE,
+    /**
+     * The resources are evenly spread across the polling interval, following the order in which they start polling.
+     */
+    SPREAD,
+    /**
+     * Every resource starts polling after a random delay within the polling interval.
+     */
+    RANDOM
+}
@@ -0,0 +1,11 @@
+package it.wldt.adapter.coap.physical.polling;
+
+/**
+ * Priority class of a polled resource.
+ * When all the polling threads are busy, the pending polls are executed from the highest to the lowest priority.
+ */
+public enum PollingPriority {
+    HIGH,
+    NORMAL,
+    LOW
+}
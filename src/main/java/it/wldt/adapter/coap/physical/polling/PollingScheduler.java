@@ -0,0 +1,320 @@
+package it.wldt.adapter.coap.physical.polling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adapter-wide scheduler shared by every {@link it.wldt.adapter.coap.physical.model.PhysicalAssetResource} that polls its server.
+ * It replaces the per-resource timer with a bounded pool of daemon threads, so that the number of threads
+ * no longer grows with the number of polled resources.
+ * <p>
+ * A single timer thread keeps track of the due tasks and hands them to the polling threads through a priority queue:
+ * when every polling thread is busy, the pending tasks are executed by {@link PollingPriority} and then in due order.
+ * </p>
+ */
+public class PollingScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(PollingScheduler.class);
+
+    private static final AtomicInteger schedulerCount = new AtomicInteger();
+
+    private static final double GOLDEN_RATIO_CONJUGATE = 0.6180339887498949;
+
+    private final ScheduledThreadPoolExecutor timer;
+    private final ThreadPoolExecutor workers;
+
+    private final AtomicInteger spreadSequence = new AtomicInteger();
+    private final AtomicLong taskSequence = new AtomicLong();
+
+    /**
+     * Creates a new polling scheduler.
+     * @param threads The number of threads used to run the polling tasks.
+     */
+    public PollingScheduler(int threads) {
+        String threadPrefix = String.format("coap-pa-polling-%d-", schedulerCount.incrementAndGet());
+        AtomicInteger threadCount = new AtomicInteger();
+
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, threadPrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, threadPrefix + "timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+        this.timer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.timer.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
+
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), threadFactory);
+    }
+
+    /**
+     * Schedules a task to be periodically executed on the polling threads, with normal priority.
+     * @param task The task to execute.
+     * @param initialDelay The delay (in milliseconds) before the first execution.
+     * @param delay The delay (in milliseconds) between the end of an execution and the start of the next one.
+     * @return The periodic task, used to cancel it.
+     * @see #scheduleWithFixedDelay(Runnable, long, long, Executor)
+     */
+    public PeriodicTask scheduleWithFixedDelay(Runnable task, long initialDelay, long delay) {
+        return scheduleWithFixedDelay(task, initialDelay, delay, runnable -> execute(runnable, PollingPriority.NORMAL));
+    }
+
+    /**
+     * Schedules a task to be periodically executed on the given executor.
+     * The next execution is scheduled on the timer only once the previous one has ended, so two executions never
+     * overlap, however long they take or however long they wait for a thread.
+     * An exception thrown by the task is caught so that the following executions are not suppressed.
+     * @param task The task to execute.
+     * @param initialDelay The delay (in milliseconds) before the first execution.
+     * @param delay The delay (in milliseconds) between the end of an execution and the start of the next one.
+     * @param executor The executor running the task once it is due.
+     * @return The periodic task, used to cancel it.
+     */
+    public PeriodicTask scheduleWithFixedDelay(Runnable task, long initialDelay, long delay, Executor executor) {
+        PeriodicTask periodicTask = new PeriodicTask(task, delay, executor);
+        periodicTask.schedule(initialDelay);
+        return periodicTask;
+    }
+
+    /**
+     * Schedules a task to be executed once after the given delay, with normal priority.
+     * @param task The task to execute.
+     * @param delay The delay (in milliseconds) before the execution.
+     * @return The future used to cancel the task.
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delay) {
+        return schedule(task, delay, PollingPriority.NORMAL);
+    }
+
+    /**
+     * Schedules a task to be executed once after the given delay.
+     * Cancelling the returned future does not stop a task which is already waiting for a polling thread,
+     * so the task itself should check whether it is still needed.
+     * @param task The task to execute.
+     * @param delay The delay (in milliseconds) before the execution.
+     * @param priority The priority of the task once it is due.
+     * @return The future used to cancel the task.
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delay, PollingPriority priority) {
+        return timer.schedule(() -> execute(task, priority), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedules a short task to be executed once on the timer thread itself, so that it runs on time even when every
+     * polling thread is busy, e.g. a timeout. The task must not block, since it delays every other scheduled task.
+     * @param task The task to execute.
+     * @param delay The delay (in milliseconds) before the execution.
+     * @return The future used to cancel the task.
+     */
+    public ScheduledFuture<?> scheduleOnTimer(Runnable task, long delay) {
+        return timer.schedule(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.error("CoAP physical adapter timer task failed", e);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes a task on the polling threads as soon as one of them is available.
+     * @param task The task to execute.
+     * @param priority The priority of the task.
+     */
+    public void execute(Runnable task, PollingPriority priority) {
+        workers.execute(new PrioritizedTask(task, priority, taskSequence.getAndIncrement()));
+    }
+
+    /**
+     * Computes the delay before the first poll of a resource according to the given phase policy.
+     * The {@link PollingPhasePolicy#SPREAD} policy places the n-th registered resource at the fractional part of
+     * n times the golden ratio conjugate, which keeps the resources evenly spread whatever their number is.
+     * @param policy The phase policy.
+     * @param interval The polling interval (in milliseconds).
+     * @return The initial delay (in milliseconds).
+     */
+    public long getInitialDelay(PollingPhasePolicy policy, long interval) {
+        if (interval <= 0 || policy == null) {
+            return 0;
+        }
+
+        switch (policy) {
+            case SPREAD:
+                double phase = (spreadSequence.getAndIncrement() * GOLDEN_RATIO_CONJUGATE) % 1.0;
+                return (long) (phase * interval);
+            case RANDOM:
+                return ThreadLocalRandom.current().nextLong(interval);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Applies a random jitter to a polling delay.
+     * @param delay The polling delay (in milliseconds).
+     * @param jitter The maximum deviation (in milliseconds) from the delay, in both directions.
+     * @return The jittered delay, never negative.
+     */
+    public static long applyJitter(long delay, long jitter) {
+        if (jitter <= 0) {
+            return delay;
+        }
+        return Math.max(0, delay + ThreadLocalRandom.current().nextLong(-jitter, jitter + 1));
+    }
+
+    /**
+     * @return The number of tasks which are not due yet.
+     */
+    public int getScheduledTaskCount() {
+        return timer.getQueue().size();
+    }
+
+    /**
+     * @return The number of due tasks waiting for a polling thread, greater than zero when the scheduler is saturated.
+     */
+    public int getPendingTaskCount() {
+        return workers.getQueue().size();
+    }
+
+    /**
+     * @return The number of polling threads used by the scheduler.
+     */
+    public int getThreadCount() {
+        return workers.getCorePoolSize();
+    }
+
+    public boolean isShutdown() {
+        return workers.isShutdown();
+    }
+
+    /**
+     * Cancels every scheduled task and releases the scheduler threads.
+     */
+    public void shutdown() {
+        timer.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Waits for the scheduler threads to terminate after a shutdown.
+     * @param timeout The maximum time (in milliseconds) to wait.
+     * @return true if every thread terminated, false if the timeout elapsed.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public boolean awaitTermination(long timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        return timer.awaitTermination(timeout, TimeUnit.MILLISECONDS) &&
+                workers.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Task executed periodically, scheduled again on the timer each time an execution ends.
+     */
+    public final class PeriodicTask {
+        private final Runnable task;
+        private final long delay;
+        private final Executor executor;
+
+        private ScheduledFuture<?> nextExecution;
+        private boolean cancelled;
+
+        private PeriodicTask(Runnable task, long delay, Executor executor) {
+            this.task = task;
+            this.delay = delay;
+            this.executor = executor;
+        }
+
+        private synchronized void schedule(long delay) {
+            if (cancelled) {
+                return;
+            }
+
+            try {
+                nextExecution = timer.schedule(this::handOff, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                logger.debug("CoAP physical adapter periodic task not rescheduled, the scheduler is shut down");
+            }
+        }
+
+        private void handOff() {
+            try {
+                executor.execute(this::run);
+            } catch (RejectedExecutionException e) {
+                logger.debug("CoAP physical adapter periodic task discarded, its executor is shut down");
+            }
+        }
+
+        private void run() {
+            try {
+                if (!isCancelled()) {
+                    task.run();
+                }
+            } catch (Exception e) {
+                logger.error("CoAP physical adapter periodic task failed", e);
+            } finally {
+                schedule(delay);
+            }
+        }
+
+        /**
+         * Cancels the following executions. An execution already in progress is not interrupted.
+         */
+        public synchronized void cancel() {
+            cancelled = true;
+            if (nextExecution != null) {
+                nextExecution.cancel(false);
+                nextExecution = null;
+            }
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /**
+     * Task waiting in the polling threads queue, ordered by priority and then by submission order.
+     */
+    private static class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        private final Runnable task;
+        private final PollingPriority priority;
+        private final long sequence;
+
+        private PrioritizedTask(Runnable task, PollingPriority priority, long sequence) {
+            this.task = task;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.error("CoAP physical adapter polling task failed", e);
+            }
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            int byPriority = Integer.compare(priority.ordinal(), other.priority.ordinal());
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
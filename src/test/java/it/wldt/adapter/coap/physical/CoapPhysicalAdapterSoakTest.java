@@ -0,0 +1,164 @@
+package it.wldt.adapter.coap.physical;
+
+import it.wldt.adapter.coap.physical.configuration.CoapPhysicalAdapterConfiguration;
+import it.wldt.adapter.coap.physical.configuration.CoapPhysicalAdapterConfigurationException;
+import it.wldt.adapter.coap.physical.model.PhysicalAssetResource;
+import it.wldt.adapter.coap.physical.observe.ObservationRegistry;
+import it.wldt.adapter.coap.physical.server.CoapTestServer;
+import it.wldt.adapter.coap.physical.utils.DefaultShadowingFunction;
+import it.wldt.adapter.physical.event.PhysicalAssetEventWldtEvent;
+import it.wldt.adapter.physical.event.PhysicalAssetPropertyWldtEvent;
+import it.wldt.core.engine.DigitalTwin;
+import it.wldt.core.engine.DigitalTwinEngine;
+import it.wldt.core.event.WldtEvent;
+import it.wldt.exception.EventBusException;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.coap.Request;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Starts and stops a digital twin with a {@link CoapPhysicalAdapter} many times against an in-process
+ * {@link CoapTestServer} with the same configuration, checking that every stop releases the adapter threads, endpoints,
+ * observe relations and Physical Asset Description, and that the thread count does not grow with the number of cycles.
+ */
+public class CoapPhysicalAdapterSoakTest {
+    private static final String SERVER_ADDRESS = "127.0.0.1";
+    private static final int SERVER_PORT = 5695;
+
+    private static final int WARM_UP_CYCLES = 3;
+    private static final int CYCLES = 20;
+
+    private static final long CYCLE_TIMEOUT = 10000;
+    private static final int MAX_THREAD_GROWTH = 4;
+
+    private static CoapTestServer server;
+
+    @BeforeClass
+    public static void startServer() {
+        server = new CoapTestServer(SERVER_PORT);
+        server.start();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.destroy();
+    }
+
+    @Test
+    public void restartCyclesDoNotLeakThreads() throws Exception {
+        DigitalTwinEngine engine = new DigitalTwinEngine();
+        CoapPhysicalAdapterConfiguration configuration = createConfiguration();
+
+        for (int i = 0; i < WARM_UP_CYCLES; i++) {
+            runCycle(engine, configuration, "soak-warm-up-" + i);
+        }
+
+        int baselineThreads = Thread.activeCount();
+        int propertyCount = runCycle(engine, configuration, "soak-first");
+
+        for (int i = 0; i < CYCLES; i++) {
+            assertEquals("Physical Asset Description changed in cycle " + i, propertyCount, runCycle(engine, configuration, "soak-" + i));
+        }
+
+        int threads = Thread.activeCount();
+
+        assertTrue(String.format("Thread count grew from %d to %d", baselineThreads, threads),
+                threads <= baselineThreads + MAX_THREAD_GROWTH);
+    }
+
+    /**
+     * Starts and stops a digital twin using the given configuration.
+     * @return The number of properties in the Physical Asset Description while the adapter was running.
+     */
+    private int runCycle(DigitalTwinEngine engine, CoapPhysicalAdapterConfiguration configuration, String id) throws Exception {
+        DigitalTwin dt = new DigitalTwin(id, new DefaultShadowingFunction());
+        dt.addPhysicalAdapter(new CoapPhysicalAdapter(id + "-physical-adapter", configuration));
+
+        engine.addDigitalTwin(dt);
+        engine.startDigitalTwin(id);
+
+        assertTrue("Adapter did not start observing in cycle " + id, awaitCondition(() ->
+                configuration.getResources().stream().anyMatch(PhysicalAssetResource::isObservationActive) &&
+                        ObservationRegistry.getInstance().getObservationCount() > 0));
+
+        int propertyCount = configuration.getPhysicalAssetDescription().getProperties().size();
+
+        engine.stopDigitalTwin(id);
+        engine.removeDigitalTwin(id);
+
+        awaitCondition(() -> countAdapterThreads() == 0 && configuration.getResources().isEmpty() &&
+                ObservationRegistry.getInstance().getObservationCount() == 0);
+
+        assertEquals("Adapter threads still alive after cycle " + id, 0, countAdapterThreads());
+        assertEquals("Observe relations still registered after cycle " + id, 0, ObservationRegistry.getInstance().getObservationCount());
+        assertTrue("Resources still registered after cycle " + id, configuration.getResources().isEmpty());
+        assertTrue("Physical Asset Description not cleared after cycle " + id, configuration.getPhysicalAssetDescription().getProperties().isEmpty());
+
+        return propertyCount;
+    }
+
+    private static CoapPhysicalAdapterConfiguration createConfiguration() throws CoapPhysicalAdapterConfigurationException {
+        return CoapPhysicalAdapterConfiguration.builder(SERVER_ADDRESS, SERVER_PORT)
+                .enableResourceDiscoverySupport(true)
+                .enableObservability(true)
+                .setAutoUpdateTimerSupport(true)
+                .setAutoUpdateInterval(1000)
+                .setPreferredContentFormat(MediaTypeRegistry.APPLICATION_JSON)
+                .setShutdownTimeout(2000)
+                .setDefaultPropertyBodyTranslator((key, payload) -> {
+                    List<WldtEvent<String>> events = new ArrayList<>();
+                    try {
+                        events.add(new PhysicalAssetPropertyWldtEvent<>(key, new String(payload)));
+                    } catch (EventBusException e) {
+                        e.printStackTrace();
+                    }
+                    return events;
+                })
+                .setDefaultEventTranslator((key, message) -> {
+                    List<WldtEvent<String>> events = new ArrayList<>();
+                    try {
+                        events.add(new PhysicalAssetEventWldtEvent<>(key, message));
+                    } catch (EventBusException e) {
+                        e.printStackTrace();
+                    }
+                    return events;
+                })
+                .setDefaultActionEventTranslator(event -> {
+                    Request request = new Request(CoAP.Code.PUT);
+                    request.setPayload((String) event.getBody());
+                    return request;
+                })
+                .build();
+    }
+
+    /**
+     * @return The number of live threads created by the adapter: polling, dispatch, startup and endpoint threads.
+     */
+    private static long countAdapterThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(Thread::isAlive)
+                .filter(thread -> thread.getName().startsWith("coap-pa-"))
+                .count();
+    }
+
+    private static boolean awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + CYCLE_TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(50);
+        }
+        return true;
+    }
+}
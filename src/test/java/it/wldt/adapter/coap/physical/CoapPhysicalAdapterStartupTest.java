@@ -0,0 +1,143 @@
+package it.wldt.adapter.coap.physical;
+
+import it.wldt.adapter.coap.physical.configuration.CoapPhysicalAdapterConfiguration;
+import it.wldt.adapter.coap.physical.configuration.CoapPhysicalAdapterConfigurationBuilder;
+import it.wldt.adapter.coap.physical.model.PhysicalAssetResource;
+import it.wldt.adapter.coap.physical.server.CoapTestServer;
+import it.wldt.adapter.coap.physical.utils.DefaultShadowingFunction;
+import it.wldt.adapter.physical.PhysicalAssetProperty;
+import it.wldt.core.engine.DigitalTwin;
+import it.wldt.core.engine.DigitalTwinEngine;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.coap.Request;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Starts a digital twin with a multi-device {@link CoapPhysicalAdapter} against two in-process {@link CoapTestServer}
+ * instances, checking that both devices are discovered and observed, with and without early binding, and that the
+ * startup threads are released once the startup completes.
+ */
+public class CoapPhysicalAdapterStartupTest {
+    private static final String SERVER_ADDRESS = "127.0.0.1";
+    private static final int FIRST_DEVICE_PORT = 5702;
+    private static final int SECOND_DEVICE_PORT = 5703;
+    private static final long TIMEOUT = 10000;
+
+    private static CoapTestServer firstServer;
+    private static CoapTestServer secondServer;
+
+    private final DigitalTwinEngine engine = new DigitalTwinEngine();
+    private String digitalTwinId;
+
+    @BeforeClass
+    public static void startServers() {
+        firstServer = new CoapTestServer(FIRST_DEVICE_PORT);
+        firstServer.start();
+        secondServer = new CoapTestServer(SECOND_DEVICE_PORT);
+        secondServer.start();
+    }
+
+    @AfterClass
+    public static void stopServers() {
+        firstServer.destroy();
+        secondServer.destroy();
+    }
+
+    @After
+    public void stopDigitalTwin() throws Exception {
+        if (digitalTwinId != null) {
+            engine.stopDigitalTwin(digitalTwinId);
+            engine.removeDigitalTwin(digitalTwinId);
+        }
+    }
+
+    @Test
+    public void devicesAreDiscoveredAndObservedBeforeBinding() throws Exception {
+        CoapPhysicalAdapterConfiguration configuration = createBuilder().setStartupConcurrency(2).build();
+
+        start("startup-parallel", configuration);
+
+        assertDevicesStarted(configuration);
+    }
+
+    @Test
+    public void earlyBindingObservesTheDevicesInTheBackground() throws Exception {
+        CoapPhysicalAdapterConfiguration configuration = createBuilder()
+                .setStartupConcurrency(1)
+                .enableEarlyBinding(true)
+                .build();
+
+        start("startup-early-binding", configuration);
+
+        assertDevicesStarted(configuration);
+    }
+
+    private void start(String id, CoapPhysicalAdapterConfiguration configuration) throws Exception {
+        DigitalTwin dt = new DigitalTwin(id, new DefaultShadowingFunction());
+        dt.addPhysicalAdapter(new CoapPhysicalAdapter(id + "-physical-adapter", configuration));
+
+        engine.addDigitalTwin(dt);
+        engine.startDigitalTwin(id);
+        digitalTwinId = id;
+    }
+
+    private static void assertDevicesStarted(CoapPhysicalAdapterConfiguration configuration) throws InterruptedException {
+        assertTrue("The observable resources of both devices were not observed", awaitCondition(() -> {
+            Set<PhysicalAssetResource> observable = configuration.getResources().stream()
+                    .filter(PhysicalAssetResource::isObservable)
+                    .collect(Collectors.toSet());
+            return observable.stream().map(resource -> resource.getDevice().getId()).distinct().count() == 2 &&
+                    observable.stream().allMatch(PhysicalAssetResource::isObservationActive);
+        }));
+
+        Set<String> devices = configuration.getPhysicalAssetDescription().getProperties().stream()
+                .map(PhysicalAssetProperty::getKey)
+                .map(key -> key.substring(0, key.indexOf('.')))
+                .collect(Collectors.toSet());
+        assertEquals(new HashSet<>(Arrays.asList("device-1", "device-2")), devices);
+
+        assertTrue("Startup threads still alive", awaitCondition(() -> Thread.getAllStackTraces().keySet().stream()
+                .filter(Thread::isAlive)
+                .noneMatch(thread -> thread.getName().startsWith("coap-pa-startup-"))));
+    }
+
+    private static CoapPhysicalAdapterConfigurationBuilder createBuilder() {
+        return CoapPhysicalAdapterConfiguration.builder(SERVER_ADDRESS, FIRST_DEVICE_PORT)
+                .enableResourceDiscoverySupport(true)
+                .enableObservability(true)
+                .setAutoUpdateTimerSupport(true)
+                .setAutoUpdateInterval(1000)
+                .addDevice("device-1", SERVER_ADDRESS, FIRST_DEVICE_PORT)
+                .addDevice("device-2", SERVER_ADDRESS, SECOND_DEVICE_PORT)
+                .setPreferredContentFormat(MediaTypeRegistry.APPLICATION_JSON)
+                .setShutdownTimeout(2000)
+                .setDefaultPropertyBodyTranslator((key, payload) -> Collections.emptyList())
+                .setDefaultEventTranslator((key, message) -> Collections.emptyList())
+                .setDefaultActionEventTranslator(event -> new Request(CoAP.Code.PUT));
+    }
+
+    private static boolean awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(50);
+        }
+        return true;
+    }
+}
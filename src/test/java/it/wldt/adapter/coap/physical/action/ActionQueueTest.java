@@ -0,0 +1,172 @@
+package it.wldt.adapter.coap.physical.action;
+
+import org.eclipse.californium.core.CoapResponse;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the ordering, coalescing and overflow behaviour of the {@link ActionQueue}, using a sender whose exchanges
+ * are completed by the test.
+ */
+public class ActionQueueTest {
+    private final List<Request> sentRequests = new ArrayList<>();
+    private final List<CompletableFuture<CoapResponse>> exchanges = new ArrayList<>();
+
+    @Test
+    public void pendingPutIsReplacedByNewerPut() throws Exception {
+        ActionQueue queue = createQueue(10, ActionQueueOverflowPolicy.REJECT_NEW, true);
+
+        CompletableFuture<CoapResponse> first = queue.submit(put("20"));
+        CompletableFuture<CoapResponse> superseded = queue.submit(put("21"));
+        CompletableFuture<CoapResponse> newest = queue.submit(put("22"));
+
+        assertEquals(1, sentRequests.size());
+        assertEquals(1, queue.getPendingActions());
+
+        CoapResponse firstResponse = changed();
+        exchanges.get(0).complete(firstResponse);
+
+        assertEquals(2, sentRequests.size());
+        assertEquals("22", sentRequests.get(1).getPayloadString());
+
+        CoapResponse newestResponse = changed();
+        exchanges.get(1).complete(newestResponse);
+
+        assertSame(firstResponse, first.get());
+        assertSame(newestResponse, superseded.get());
+        assertSame(newestResponse, newest.get());
+
+        assertEquals(3, queue.getSubmittedCount());
+        assertEquals(2, queue.getSentCount());
+        assertEquals(1, queue.getCoalescedCount());
+    }
+
+    @Test
+    public void postRequestsAreNeverCoalesced() {
+        ActionQueue queue = createQueue(10, ActionQueueOverflowPolicy.REJECT_NEW, true);
+
+        queue.submit(post("a"));
+        queue.submit(post("b"));
+        queue.submit(put("20"));
+        queue.submit(post("c"));
+
+        for (int i = 0; i < 4; i++) {
+            exchanges.get(i).complete(changed());
+        }
+
+        assertEquals(4, sentRequests.size());
+        assertEquals("a", sentRequests.get(0).getPayloadString());
+        assertEquals("b", sentRequests.get(1).getPayloadString());
+        assertEquals("20", sentRequests.get(2).getPayloadString());
+        assertEquals("c", sentRequests.get(3).getPayloadString());
+        assertEquals(0, queue.getCoalescedCount());
+    }
+
+    @Test
+    public void putsAreSentInOrderWithoutCoalescing() {
+        ActionQueue queue = createQueue(10, ActionQueueOverflowPolicy.REJECT_NEW, false);
+
+        queue.submit(put("20"));
+        queue.submit(put("21"));
+        queue.submit(put("22"));
+
+        for (int i = 0; i < 3; i++) {
+            exchanges.get(i).complete(changed());
+        }
+
+        assertEquals(3, queue.getSentCount());
+        assertEquals("22", sentRequests.get(2).getPayloadString());
+    }
+
+    @Test
+    public void newActionIsRejectedWhenFull() {
+        ActionQueue queue = createQueue(1, ActionQueueOverflowPolicy.REJECT_NEW, false);
+
+        queue.submit(post("sent"));
+        CompletableFuture<CoapResponse> pending = queue.submit(post("pending"));
+        CompletableFuture<CoapResponse> rejected = queue.submit(post("rejected"));
+
+        assertFalse(pending.isDone());
+        assertRejected(rejected);
+        assertEquals(1, queue.getRejectedCount());
+    }
+
+    @Test
+    public void oldestActionIsDroppedWhenFull() {
+        ActionQueue queue = createQueue(1, ActionQueueOverflowPolicy.DROP_OLDEST, false);
+
+        queue.submit(post("sent"));
+        CompletableFuture<CoapResponse> dropped = queue.submit(post("dropped"));
+        CompletableFuture<CoapResponse> kept = queue.submit(post("kept"));
+
+        assertRejected(dropped);
+        assertFalse(kept.isDone());
+        assertEquals(1, queue.getDroppedCount());
+
+        exchanges.get(0).complete(changed());
+        assertEquals("kept", sentRequests.get(1).getPayloadString());
+    }
+
+    @Test
+    public void actionsAreRejectedAfterShutdown() {
+        ActionQueue queue = createQueue(10, ActionQueueOverflowPolicy.REJECT_NEW, true);
+
+        queue.submit(post("sent"));
+        CompletableFuture<CoapResponse> pending = queue.submit(post("pending"));
+        queue.shutdown();
+
+        assertTrue(pending.isCancelled() || pending.isCompletedExceptionally());
+        assertRejected(queue.submit(post("late")));
+        assertEquals(1, sentRequests.size());
+    }
+
+    private ActionQueue createQueue(int capacity, ActionQueueOverflowPolicy overflowPolicy, boolean coalescing) {
+        return new ActionQueue(1, capacity, overflowPolicy, coalescing, request -> {
+            CompletableFuture<CoapResponse> exchange = new CompletableFuture<>();
+            sentRequests.add(request);
+            exchanges.add(exchange);
+            return exchange;
+        });
+    }
+
+    private static void assertRejected(CompletableFuture<CoapResponse> future) {
+        try {
+            future.get();
+            fail("The action was not rejected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Request put(String payload) {
+        Request request = new Request(CoAP.Code.PUT);
+        request.setPayload(payload);
+        return request;
+    }
+
+    private static Request post(String payload) {
+        Request request = new Request(CoAP.Code.POST);
+        request.setPayload(payload);
+        return request;
+    }
+
+    private static CoapResponse changed() {
+        return new CoapResponse(new Response(CoAP.ResponseCode.CHANGED)) { };
+    }
+}
@@ -0,0 +1,74 @@
+package it.wldt.adapter.coap.physical.action;
+
+import it.wldt.adapter.coap.physical.configuration.CoapPhysicalAdapterConfiguration;
+import it.wldt.adapter.coap.physical.model.PhysicalAssetResource;
+import it.wldt.adapter.physical.event.PhysicalAssetActionWldtEvent;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.coap.Request;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks the action routing table built by {@link ActionRoute#createRoutingTable(CoapPhysicalAdapterConfiguration)}
+ * from the statically configured resources.
+ */
+public class ActionRouteTest {
+    private static final long TIMEOUT = 5000;
+
+    private final Function<PhysicalAssetActionWldtEvent<?>, Request> defaultTranslator = event -> new Request(CoAP.Code.PUT);
+    private final Function<PhysicalAssetActionWldtEvent<?>, Request> customTranslator = event -> new Request(CoAP.Code.POST);
+
+    private CoapPhysicalAdapterConfiguration configuration;
+
+    @Before
+    public void createConfiguration() throws Exception {
+        configuration = CoapPhysicalAdapterConfiguration.builder("127.0.0.1", 5683)
+                .enableResourceDiscoverySupport(false)
+                .addResource("temperature-actuator", "iot.actuator.temperature", MediaTypeRegistry.TEXT_PLAIN, true, true, false)
+                .addResource("humidity-actuator", "iot.actuator.humidity", MediaTypeRegistry.TEXT_PLAIN, true, true, false)
+                .setDefaultPropertyBodyTranslator((key, payload) -> Collections.emptyList())
+                .setDefaultEventTranslator((key, message) -> Collections.emptyList())
+                .setDefaultActionEventTranslator(defaultTranslator)
+                .setCustomActionEventTranslators(Collections.singletonMap("humidity-actuator", customTranslator))
+                .build();
+    }
+
+    @After
+    public void shutdown() throws InterruptedException {
+        configuration.shutdownSharedComponents(TIMEOUT);
+    }
+
+    @Test
+    public void everyResourceIsRoutedByItsWldtKey() {
+        Map<String, ActionRoute> table = ActionRoute.createRoutingTable(configuration);
+
+        assertEquals(configuration.getResources().size(), table.size());
+        for (PhysicalAssetResource resource : configuration.getResources()) {
+            assertSame(resource, table.get(resource.getWldtKey()).getResource());
+        }
+        assertNull(table.get("temperature-actuator"));
+    }
+
+    @Test
+    public void customTranslatorTakesPrecedenceOverTheDefaultOne() {
+        Map<String, ActionRoute> table = ActionRoute.createRoutingTable(configuration);
+
+        assertSame(defaultTranslator, table.get("iot.actuator.temperature.temperature-actuator").getTranslator());
+        assertSame(customTranslator, table.get("iot.actuator.humidity.humidity-actuator").getTranslator());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void tableCannotBeModified() {
+        ActionRoute.createRoutingTable(configuration).clear();
+    }
+}
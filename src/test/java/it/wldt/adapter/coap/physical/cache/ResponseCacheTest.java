@@ -0,0 +1,160 @@
+package it.wldt.adapter.coap.physical.cache;
+
+import org.eclipse.californium.core.CoapResponse;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.Response;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks the freshness, revalidation and eviction rules of the {@link ResponseCache}.
+ */
+public class ResponseCacheTest {
+    private static final String KEY = "coap://127.0.0.1:5683/temperature-sensor";
+
+    @Test
+    public void responseIsFreshUntilMaxAgeExpires() throws InterruptedException {
+        ResponseCache cache = new ResponseCache(16);
+        CoapResponse response = response(CoAP.ResponseCode.CONTENT, 1L);
+
+        cache.put(KEY, response);
+        assertSame(response, cache.get(KEY));
+
+        Thread.sleep(1200);
+
+        assertNull(cache.get(KEY));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void responseWithoutMaxAgeIsNotCached() {
+        ResponseCache cache = new ResponseCache(16);
+
+        cache.put(KEY, response(CoAP.ResponseCode.CONTENT, null));
+
+        assertNull(cache.get(KEY));
+    }
+
+    @Test
+    public void unsuccessfulResponseIsNotCached() {
+        ResponseCache cache = new ResponseCache(16);
+
+        cache.put(KEY, response(CoAP.ResponseCode.CONTENT, 60L));
+        cache.put(KEY, response(CoAP.ResponseCode.SERVICE_UNAVAILABLE, 60L));
+
+        // The error replaces the previous response, which is no longer valid
+        assertNull(cache.get(KEY));
+    }
+
+    @Test
+    public void validResponseExtendsFreshness() throws InterruptedException {
+        ResponseCache cache = new ResponseCache(16);
+        CoapResponse response = response(CoAP.ResponseCode.CONTENT, 1L);
+
+        cache.put(KEY, response);
+        cache.revalidate(KEY, response(CoAP.ResponseCode.VALID, 60L));
+
+        Thread.sleep(1200);
+
+        assertSame(response, cache.get(KEY));
+    }
+
+    @Test
+    public void validResponseIsRebuiltAsContent() {
+        ResponseCache cache = new ResponseCache(16);
+        Response valid = new Response(CoAP.ResponseCode.VALID);
+        valid.getOptions().setMaxAge(30L);
+        valid.getOptions().addETag(new byte[] { 0x01 });
+
+        cache.put(KEY, response(CoAP.ResponseCode.CONTENT, 1L));
+        CoapResponse content = cache.revalidate(KEY, new CoapResponse(valid) { });
+
+        assertEquals(CoAP.ResponseCode.CONTENT, content.getCode());
+        assertEquals("21.5", content.getResponseText());
+        assertEquals(Long.valueOf(30L), content.getOptions().getMaxAge());
+        assertArrayEquals(new byte[] { 0x01 }, content.getOptions().getETags().get(0));
+    }
+
+    @Test
+    public void validResponseWithoutCachedResponseIsNotRebuilt() {
+        ResponseCache cache = new ResponseCache(16);
+
+        assertNull(cache.revalidate(KEY, response(CoAP.ResponseCode.VALID, 60L)));
+    }
+
+    @Test
+    public void invalidatedResponseIsNotServed() {
+        ResponseCache cache = new ResponseCache(16);
+
+        cache.put(KEY, response(CoAP.ResponseCode.CONTENT, 60L));
+        cache.invalidate(KEY);
+
+        assertNull(cache.get(KEY));
+    }
+
+    @Test
+    public void leastRecentlyUsedResponseIsEvicted() {
+        ResponseCache cache = new ResponseCache(2);
+        CoapResponse first = response(CoAP.ResponseCode.CONTENT, 60L);
+
+        cache.put("first", first);
+        cache.put("second", response(CoAP.ResponseCode.CONTENT, 60L));
+        cache.get("first");
+        cache.put("third", response(CoAP.ResponseCode.CONTENT, 60L));
+
+        assertSame(first, cache.get("first"));
+        assertNull(cache.get("second"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void leastRecentlyUsedResponsesAreEvictedBeyondTheSizeLimit() {
+        ResponseCache cache = new ResponseCache(16, 10);
+        CoapResponse first = response(CoAP.ResponseCode.CONTENT, 60L);
+
+        cache.put("first", first);
+        cache.put("second", response(CoAP.ResponseCode.CONTENT, 60L));
+        cache.get("first");
+        cache.put("third", response(CoAP.ResponseCode.CONTENT, 60L));
+
+        // Each payload takes 4 bytes, so only two of them fit in 10 bytes
+        assertSame(first, cache.get("first"));
+        assertNull(cache.get("second"));
+        assertEquals(2, cache.size());
+        assertEquals(8, cache.getBytes());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void responseLargerThanTheSizeLimitIsNotCached() {
+        ResponseCache cache = new ResponseCache(16, 10);
+
+        cache.put(KEY, response(CoAP.ResponseCode.CONTENT, 60L));
+        cache.put("large", response(CoAP.ResponseCode.CONTENT, 60L, "{\"temperature\": 21.5}"));
+
+        assertNull(cache.get("large"));
+        assertEquals(4, cache.getBytes());
+
+        cache.invalidate(KEY);
+        assertEquals(0, cache.getBytes());
+    }
+
+    private static CoapResponse response(CoAP.ResponseCode code, Long maxAge) {
+        return response(code, maxAge, "21.5");
+    }
+
+    private static CoapResponse response(CoAP.ResponseCode code, Long maxAge, String payload) {
+        Response response = new Response(code);
+        response.setPayload(payload);
+        if (maxAge != null) {
+            response.getOptions().setMaxAge(maxAge);
+        }
+        return new CoapResponse(response) { };
+    }
+}
@@ -0,0 +1,51 @@
+package it.wldt.adapter.coap.physical.configuration;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the identifiers and connection strings of the devices created for the servers which are not configured
+ * as devices, in particular for the IPv6 addresses.
+ */
+public class CoapDeviceConfigurationDataTest {
+
+    @Test
+    public void ipv4ServerIsNamedAfterItsAddressAndPort() {
+        CoapDeviceConfigurationData device = CoapDeviceConfigurationData.fromServerConnectionString("coap://127.0.0.1:5690");
+
+        assertEquals("127.0.0.1-5690", device.getId());
+        assertEquals("127.0.0.1", device.getIp());
+        assertEquals(5690, device.getPort());
+        assertEquals("coap://127.0.0.1:5690", device.getServerConnectionString());
+    }
+
+    @Test
+    public void everySpellingOfAnIpv6AddressGivesTheSameDevice() {
+        CoapDeviceConfigurationData compressed = CoapDeviceConfigurationData.fromServerConnectionString("coap://[::1]:5683");
+        CoapDeviceConfigurationData expanded = CoapDeviceConfigurationData.fromServerConnectionString("coap://[0:0:0:0:0:0:0:1]:5683");
+
+        assertEquals("[0:0:0:0:0:0:0:1]-5683", compressed.getId());
+        assertEquals(compressed.getId(), expanded.getId());
+        assertEquals("0:0:0:0:0:0:0:1", compressed.getIp());
+        assertEquals("coap://[0:0:0:0:0:0:0:1]:5683", compressed.getServerConnectionString());
+        assertEquals(compressed.getServerConnectionString(), expanded.getServerConnectionString());
+    }
+
+    @Test
+    public void configuredIpv6DeviceMatchesTheDiscoveredServer() {
+        CoapDeviceConfigurationData configured = new CoapDeviceConfigurationData("device-1", "::1", 5683);
+
+        assertEquals("coap://[0:0:0:0:0:0:0:1]:5683", configured.getServerConnectionString());
+        assertEquals(configured.getServerConnectionString(),
+                CoapDeviceConfigurationData.toServerConnectionString("[::1]", 5683));
+    }
+
+    @Test
+    public void missingPortDefaultsToTheCoapPort() {
+        CoapDeviceConfigurationData device = CoapDeviceConfigurationData.fromServerConnectionString("coap://sensor-1.local");
+
+        assertEquals("sensor-1.local-5683", device.getId());
+        assertEquals("coap://sensor-1.local:5683", device.getServerConnectionString());
+    }
+}
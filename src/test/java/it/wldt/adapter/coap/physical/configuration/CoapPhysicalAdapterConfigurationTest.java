@@ -0,0 +1,165 @@
+package it.wldt.adapter.coap.physical.configuration;
+
+import it.wldt.adapter.coap.physical.polling.PollingPhasePolicy;
+import it.wldt.adapter.coap.physical.polling.PollingPriority;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.Request;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Loads the adapter configuration from the YAML fixtures of the test resources and checks the values resolved
+ * by the {@link CoapPhysicalAdapterConfiguration}, and reloads a copy of them from a temporary file.
+ */
+public class CoapPhysicalAdapterConfigurationTest {
+    private CoapPhysicalAdapterConfiguration configuration;
+    private File copiedFile;
+
+    @After
+    public void shutdown() throws InterruptedException, IOException {
+        if (configuration != null) {
+            configuration.shutdownSharedComponents(1000);
+        }
+        if (copiedFile != null) {
+            Files.deleteIfExists(copiedFile.toPath());
+        }
+    }
+
+    @Test
+    public void pollingSchedulerIsSizedFromYaml() throws Exception {
+        configuration = load("paconfig-polling.yaml");
+
+        assertEquals(4, configuration.getPollingSchedulerThreads());
+        assertEquals(4, configuration.getPollingScheduler().getThreadCount());
+    }
+
+    @Test
+    public void pollingPhaseAndJitterAreReadFromYaml() throws Exception {
+        configuration = load("paconfig-polling.yaml");
+
+        assertEquals(PollingPhasePolicy.RANDOM, configuration.getPollingPhasePolicy());
+        assertEquals(250, configuration.getPollingJitter());
+    }
+
+    @Test
+    public void pollingIntervalIsResolvedByNameThenTypeThenDefault() throws Exception {
+        configuration = load("paconfig-polling.yaml");
+
+        assertEquals(1000, configuration.getAutoUpdateInterval("temperature-sensor", "iot.sensor.temperature"));
+        assertEquals(2000, configuration.getAutoUpdateInterval("humidity-sensor", "iot.sensor.temperature"));
+        assertEquals(5000, configuration.getAutoUpdateInterval("temperature-actuator", "iot.actuator.temperature"));
+        assertEquals(5000, configuration.getAutoUpdateInterval("humidity-sensor", null));
+    }
+
+    @Test
+    public void pollingPriorityIsResolvedByNameThenTypeThenDefault() throws Exception {
+        configuration = load("paconfig-polling.yaml");
+
+        assertEquals(PollingPriority.HIGH, configuration.getPollingPriority("temperature-sensor", "iot.sensor.temperature"));
+        assertEquals(PollingPriority.LOW, configuration.getPollingPriority("humidity-sensor", "iot.sensor.temperature"));
+        assertEquals(PollingPriority.NORMAL, configuration.getPollingPriority("temperature-actuator", "iot.actuator.temperature"));
+        assertEquals(PollingPriority.NORMAL, configuration.getPollingPriority("humidity-sensor", null));
+    }
+
+    @Test
+    public void reloadAppliesOnlyTheReloadableKeys() throws Exception {
+        File file = copy("paconfig-polling.yaml");
+        configuration = load(file);
+
+        rewrite(file, "autoUpdateInterval: 5000", "autoUpdateInterval: 3000", "pollingSchedulerThreads: 4", "pollingSchedulerThreads: 8");
+        CoapPhysicalAdapterConfigurationChanges changes = configuration.reloadYaml();
+
+        assertEquals(new TreeSet<>(Collections.singletonList("autoUpdateInterval")), changes.getAppliedKeys());
+        assertEquals(new TreeSet<>(Collections.singletonList("pollingSchedulerThreads")), changes.getIgnoredKeys());
+        assertEquals(3000, configuration.getAutoUpdateInterval("humidity-sensor", null));
+        assertEquals(4, configuration.getPollingSchedulerThreads());
+        assertEquals(1000, configuration.getAutoUpdateInterval("temperature-sensor", "iot.sensor.temperature"));
+
+        // The file is read again only once it changes
+        assertTrue(configuration.reloadYaml().isEmpty());
+    }
+
+    @Test
+    public void reloadReplacesTheReloadedMaps() throws Exception {
+        File file = copy("paconfig-polling.yaml");
+        configuration = load(file);
+
+        rewrite(file, "temperature-sensor: 1000", "temperature-sensor: 1500", "temperature-sensor: HIGH", "humidity-sensor: HIGH");
+        CoapPhysicalAdapterConfigurationChanges changes = configuration.reloadYaml();
+
+        assertEquals(new TreeSet<>(Arrays.asList("customAutoUpdateIntervals", "customPollingPriorities")), changes.getAppliedKeys());
+        assertEquals(1500, configuration.getAutoUpdateInterval("temperature-sensor", "iot.sensor.temperature"));
+        assertEquals(PollingPriority.LOW, configuration.getPollingPriority("temperature-sensor", "iot.sensor.temperature"));
+        assertEquals(PollingPriority.HIGH, configuration.getPollingPriority("humidity-sensor", null));
+    }
+
+    @Test
+    public void invalidReloadIsRejectedAsAWhole() throws Exception {
+        File file = copy("paconfig-polling.yaml");
+        configuration = load(file);
+
+        rewrite(file, "autoUpdateInterval: 5000", "autoUpdateInterval: 3000", "temperature-sensor: 1000", "temperature-sensor: -1");
+        try {
+            configuration.reloadYaml();
+            fail("The invalid configuration was applied");
+        } catch (CoapPhysicalAdapterConfigurationException e) {
+            // Expected
+        }
+
+        assertEquals(5000, configuration.getAutoUpdateInterval("humidity-sensor", null));
+        assertEquals(1000, configuration.getAutoUpdateInterval("temperature-sensor", "iot.sensor.temperature"));
+        assertTrue(configuration.reloadYaml().isEmpty());
+    }
+
+    private File copy(String resource) throws Exception {
+        copiedFile = Files.createTempFile("paconfig", ".yaml").toFile();
+        Files.copy(getResourceFile(resource).toPath(), copiedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return copiedFile;
+    }
+
+    /**
+     * Replaces pairs of lines of a YAML file, moving its modification time forward so that the change is detected
+     * even on file systems with a coarse timestamp resolution.
+     */
+    private static void rewrite(File file, String... replacements) throws Exception {
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        long lastModified = file.lastModified();
+
+        for (int i = 0; i < replacements.length; i += 2) {
+            assertTrue(replacements[i] + " not found", content.contains(replacements[i]));
+            content = content.replace(replacements[i], replacements[i + 1]);
+        }
+
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        assertTrue(file.setLastModified(lastModified + 2000));
+    }
+
+    private static File getResourceFile(String resource) throws Exception {
+        return new File(CoapPhysicalAdapterConfigurationTest.class.getClassLoader().getResource(resource).toURI());
+    }
+
+    private static CoapPhysicalAdapterConfiguration load(String resource) throws Exception {
+        return load(getResourceFile(resource));
+    }
+
+    private static CoapPhysicalAdapterConfiguration load(File file) throws Exception {
+        return CoapPhysicalAdapterConfiguration.fromYaml(file)
+                .setDefaultPropertyBodyTranslator((key, payload) -> Collections.emptyList())
+                .setDefaultEventTranslator((key, message) -> Collections.emptyList())
+                .setDefaultActionEventTranslator(event -> new Request(CoAP.Code.PUT))
+                .build();
+    }
+}
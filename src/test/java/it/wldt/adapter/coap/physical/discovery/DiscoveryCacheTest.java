@@ -0,0 +1,107 @@
+package it.wldt.adapter.coap.physical.discovery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the {@link DiscoveryCache} writes its file atomically, loads it again on the next start,
+ * and recovers from a corrupt file.
+ */
+public class DiscoveryCacheTest {
+    private static final String SERVER = "coap://127.0.0.1:5683";
+
+    private Path directory;
+    private File file;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("discovery-cache");
+        file = directory.resolve("cache").resolve("discovery.json").toFile();
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void snapshotsSurviveARestart() {
+        DiscoverySnapshot snapshot = new DiscoverySnapshot(new byte[] { 0x0a, 0x0b }, links())
+                .withSelection(Collections.singletonMap("rt", "iot.sensor.temperature"), Collections.singletonList("ignored"));
+
+        new DiscoveryCache(file).put(SERVER, snapshot);
+
+        // The parent directory is created, and the temporary file is moved over the cache file
+        assertTrue(file.isFile());
+        assertFalse(new File(file.getAbsolutePath() + ".tmp").exists());
+
+        DiscoverySnapshot loaded = new DiscoveryCache(file).get(SERVER);
+        assertEquals(links(), loaded.getLinks());
+        assertArrayEquals(new byte[] { 0x0a, 0x0b }, loaded.getETagBytes());
+        assertTrue(loaded.matchesSelection(Collections.singletonMap("rt", "iot.sensor.temperature"), Collections.singletonList("ignored")));
+    }
+
+    @Test
+    public void updateReplacesTheSnapshotOfTheServerOnly() {
+        DiscoveryCache cache = new DiscoveryCache(file);
+        cache.put(SERVER, new DiscoverySnapshot(null, links()));
+        cache.put("coap://127.0.0.1:5690", new DiscoverySnapshot(null, links()));
+
+        List<ResourceLink> updatedLinks = Collections.singletonList(links().get(0));
+        cache.put(SERVER, new DiscoverySnapshot(new byte[] { 0x01 }, updatedLinks));
+
+        DiscoveryCache loaded = new DiscoveryCache(file);
+        assertEquals(updatedLinks, loaded.get(SERVER).getLinks());
+        assertEquals(links(), loaded.get("coap://127.0.0.1:5690").getLinks());
+    }
+
+    @Test
+    public void corruptFileIsIgnoredAndOverwritten() throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), "{ not json".getBytes(StandardCharsets.UTF_8));
+
+        DiscoveryCache cache = new DiscoveryCache(file);
+        assertNull(cache.get(SERVER));
+
+        cache.put(SERVER, new DiscoverySnapshot(null, links()));
+
+        assertEquals(links(), new DiscoveryCache(file).get(SERVER).getLinks());
+    }
+
+    @Test
+    public void unknownPropertiesAreIgnored() throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), ("{\"" + SERVER + "\": {\"etag\": null, \"links\": [], \"addedLater\": true}}").getBytes(StandardCharsets.UTF_8));
+
+        DiscoverySnapshot snapshot = new DiscoveryCache(file).get(SERVER);
+
+        assertTrue(snapshot.getLinks().isEmpty());
+        assertNull(snapshot.getETagBytes());
+    }
+
+    private static List<ResourceLink> links() {
+        return Arrays.asList(
+                new ResourceLink("/temperature-sensor", "iot.sensor.temperature", "core.s", Collections.singletonList("50"), true),
+                new ResourceLink("/temperature-actuator", "iot.actuator.temperature", "core.a", Collections.singletonList("0"), false));
+    }
+}
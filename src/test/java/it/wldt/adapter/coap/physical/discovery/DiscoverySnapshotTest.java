@@ -0,0 +1,59 @@
+package it.wldt.adapter.coap.physical.discovery;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a {@link DiscoverySnapshot} is reused only with the resource selection it was discovered with.
+ */
+public class DiscoverySnapshotTest {
+
+    @Test
+    public void sameSelectionMatchesInAnyOrder() {
+        Map<String, String> filters = new HashMap<>();
+        filters.put("rt", "iot.sensor.temperature");
+        filters.put("if", "core.s");
+
+        DiscoverySnapshot snapshot = new DiscoverySnapshot(null, Collections.emptyList())
+                .withSelection(filters, Arrays.asList("first", "second"));
+
+        Map<String, String> reordered = new HashMap<>();
+        reordered.put("if", "core.s");
+        reordered.put("rt", "iot.sensor.temperature");
+
+        assertTrue(snapshot.matchesSelection(reordered, Arrays.asList("second", "first")));
+    }
+
+    @Test
+    public void changedFiltersDoNotMatch() {
+        DiscoverySnapshot snapshot = new DiscoverySnapshot(null, Collections.emptyList())
+                .withSelection(Collections.singletonMap("rt", "iot.sensor.temperature"), Collections.emptyList());
+
+        assertFalse(snapshot.matchesSelection(Collections.singletonMap("rt", "iot.actuator.temperature"), Collections.emptyList()));
+        assertFalse(snapshot.matchesSelection(Collections.emptyMap(), Collections.emptyList()));
+    }
+
+    @Test
+    public void changedIgnoredResourcesDoNotMatch() {
+        DiscoverySnapshot snapshot = new DiscoverySnapshot(null, Collections.emptyList())
+                .withSelection(Collections.emptyMap(), Collections.singletonList("temperature-actuator"));
+
+        assertFalse(snapshot.matchesSelection(Collections.emptyMap(), Collections.emptyList()));
+        assertFalse(snapshot.matchesSelection(Collections.emptyMap(), Arrays.asList("temperature-actuator", "humidity-sensor")));
+    }
+
+    @Test
+    public void snapshotWithoutSelectionMatchesOnlyTheUnfilteredDiscovery() {
+        DiscoverySnapshot snapshot = new DiscoverySnapshot(null, Collections.emptyList());
+
+        assertTrue(snapshot.matchesSelection(Collections.emptyMap(), Collections.emptyList()));
+        assertFalse(snapshot.matchesSelection(Collections.singletonMap("rt", "iot.sensor.temperature"), Collections.emptyList()));
+    }
+}
@@ -0,0 +1,180 @@
+package it.wldt.adapter.coap.physical.discovery;
+
+import it.wldt.adapter.coap.physical.network.CoapEndpointManager;
+import it.wldt.adapter.coap.physical.polling.PollingScheduler;
+import it.wldt.adapter.coap.physical.server.CoapTestMulticastServers;
+import it.wldt.adapter.coap.physical.server.CoapTestServer;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.config.CoapConfig;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.elements.config.Configuration;
+import org.eclipse.californium.elements.config.UdpConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the {@link MulticastDiscovery} gathering against in-process {@link CoapTestServer}s.
+ * Most tests send the request to the loopback address rather than to a multicast group, so that a single server
+ * answers: they cover the gathering window, the parsing of the responses on the executor, the link filter and the
+ * unicast discovery of a server answering with the first block only. The group request itself is sent to the servers
+ * of {@link CoapTestMulticastServers}, which also receive the All-CoAP-Nodes group on the loopback interface.
+ */
+public class MulticastDiscoveryTest {
+    private static final String SERVER_ADDRESS = "127.0.0.1";
+    private static final int SERVER_PORT = 5697;
+    private static final int BLOCKWISE_SERVER_PORT = 5705;
+    private static final int MULTICAST_PORT = 5683;
+    private static final int BLOCK_SIZE = 64;
+    private static final long WINDOW = 1000;
+    private static final long TIMEOUT = 5000;
+
+    private CoapTestServer server;
+    private CoapEndpointManager manager;
+    private ExecutorService executor;
+    private PollingScheduler scheduler;
+
+    private final AtomicInteger unicastDiscoveries = new AtomicInteger();
+
+    @Before
+    public void start() throws Exception {
+        CoapConfig.register();
+        UdpConfig.register();
+
+        server = new CoapTestServer(SERVER_PORT);
+        server.start();
+
+        manager = new CoapEndpointManager(1, 1, Configuration.createStandardWithoutFile());
+        executor = Executors.newFixedThreadPool(2);
+        scheduler = new PollingScheduler(1);
+    }
+
+    @After
+    public void stop() {
+        scheduler.shutdown();
+        executor.shutdownNow();
+        manager.shutdown();
+        server.destroy();
+    }
+
+    @Test
+    public void responsesAreGatheredWithinWindow() throws Exception {
+        Map<String, List<ResourceLink>> links = discover(SERVER_ADDRESS, SERVER_PORT, link -> true, this::unexpectedUnicastDiscovery);
+
+        assertEquals(1, links.size());
+        assertTrue(getNames(links).contains("temperature-sensor"));
+        assertTrue(getNames(links).contains("temperature-actuator"));
+        assertEquals(0, unicastDiscoveries.get());
+    }
+
+    @Test
+    public void linkFilterIsApplied() throws Exception {
+        Map<String, List<ResourceLink>> links = discover(SERVER_ADDRESS, SERVER_PORT,
+                link -> !"temperature-actuator".equals(link.getName()), this::unexpectedUnicastDiscovery);
+
+        assertTrue(getNames(links).contains("temperature-sensor"));
+        assertFalse(getNames(links).contains("temperature-actuator"));
+    }
+
+    @Test
+    public void noResponseGivesNoServer() throws Exception {
+        server.stop();
+
+        assertTrue(discover(SERVER_ADDRESS, SERVER_PORT, link -> true, this::unexpectedUnicastDiscovery).isEmpty());
+    }
+
+    @Test
+    public void windowDoesNotHoldTheCallingThread() throws Exception {
+        long start = System.nanoTime();
+
+        MulticastDiscovery discovery = createDiscovery(SERVER_ADDRESS, SERVER_PORT, link -> true, this::unexpectedUnicastDiscovery);
+        CompletableFuture<Map<String, List<ResourceLink>>> links = discovery.discover();
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < WINDOW);
+        assertFalse(links.isDone());
+        assertEquals(1, links.get(TIMEOUT, TimeUnit.MILLISECONDS).size());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= WINDOW);
+    }
+
+    @Test
+    public void truncatedResponseIsDiscoveredAgainWithUnicast() throws Exception {
+        // The server splits its link-format document into blocks, so the group response holds the first one only
+        Configuration configuration = new Configuration(Configuration.createStandardWithoutFile())
+                .set(CoapConfig.MAX_MESSAGE_SIZE, BLOCK_SIZE)
+                .set(CoapConfig.PREFERRED_BLOCK_SIZE, BLOCK_SIZE);
+        CoapTestServer blockwiseServer = new CoapTestServer(new CoapEndpoint.Builder()
+                .setConfiguration(configuration)
+                .setInetSocketAddress(new InetSocketAddress(SERVER_ADDRESS, BLOCKWISE_SERVER_PORT))
+                .build());
+        blockwiseServer.start();
+
+        try {
+            Map<String, List<ResourceLink>> links = discover(SERVER_ADDRESS, BLOCKWISE_SERVER_PORT, link -> true, server -> {
+                unicastDiscoveries.incrementAndGet();
+                return new WellKnownCoreDiscovery(manager.createDiscoveryClient(server), Collections.emptyMap(), BLOCK_SIZE, link -> true);
+            });
+
+            assertEquals(1, unicastDiscoveries.get());
+            assertTrue(getNames(links).contains("temperature-sensor"));
+            assertTrue(getNames(links).contains("temperature-actuator"));
+        } finally {
+            blockwiseServer.destroy();
+        }
+    }
+
+    @Test
+    public void everyServerOfTheGroupIsDiscovered() throws Exception {
+        List<CoapTestServer> servers = CoapTestMulticastServers.start(2);
+
+        try {
+            Map<String, List<ResourceLink>> links = discover(CoAP.MULTICAST_IPV4.getHostAddress(), MULTICAST_PORT, link -> true, this::unexpectedUnicastDiscovery);
+
+            assertEquals(new HashSet<>(Arrays.asList("coap://127.0.0.1:5690", "coap://127.0.0.1:5691")), links.keySet());
+            links.values().forEach(serverLinks -> assertTrue(serverLinks.stream().anyMatch(link -> link.getName().equals("temperature-sensor"))));
+        } finally {
+            servers.forEach(CoapTestServer::destroy);
+        }
+    }
+
+    private Map<String, List<ResourceLink>> discover(String address, int port, Predicate<ResourceLink> linkFilter,
+                                                     Function<String, WellKnownCoreDiscovery> unicastDiscovery) throws Exception {
+        return createDiscovery(address, port, linkFilter, unicastDiscovery).discover().get(WINDOW + TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    private MulticastDiscovery createDiscovery(String address, int port, Predicate<ResourceLink> linkFilter,
+                                               Function<String, WellKnownCoreDiscovery> unicastDiscovery) {
+        return new MulticastDiscovery(manager.getDiscoveryEndpoint(), address, port, WINDOW, Collections.emptyMap(), linkFilter,
+                unicastDiscovery, executor, scheduler);
+    }
+
+    private WellKnownCoreDiscovery unexpectedUnicastDiscovery(String server) {
+        unicastDiscoveries.incrementAndGet();
+        throw new IllegalStateException("Unexpected unicast discovery of " + server);
+    }
+
+    private static List<String> getNames(Map<String, List<ResourceLink>> links) {
+        return links.values().stream()
+                .flatMap(List::stream)
+                .map(ResourceLink::getName)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,81 @@
+package it.wldt.adapter.coap.physical.discovery;
+
+import it.wldt.adapter.coap.physical.server.CoapTestResourceDirectory;
+import org.eclipse.californium.core.CoapClient;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Looks up the resources registered in an in-process {@link CoapTestResourceDirectory}, with and without paging
+ * support on the directory side.
+ */
+public class ResourceDirectoryDiscoveryTest {
+    private static final int DIRECTORY_PORT = 5784;
+    private static final String DEVICE_ADDRESS = "127.0.0.1";
+    private static final int FIRST_DEVICE_PORT = 5683;
+    private static final int DEVICES = 5;
+
+    private CoapTestResourceDirectory directory;
+    private CoapClient client;
+
+    @After
+    public void stopDirectory() {
+        if (client != null) {
+            client.shutdown();
+        }
+        if (directory != null) {
+            directory.destroy();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void pagedLookupReturnsEveryLink() throws Exception {
+        Map<String, List<ResourceLink>> links = lookup(true, 3, Collections.emptyMap());
+
+        assertEquals(DEVICES, links.size());
+        links.values().forEach(serverLinks -> assertEquals(2, serverLinks.size()));
+    }
+
+    @Test(timeout = 10000)
+    public void lookupEndsWithAnEmptyPage() throws Exception {
+        // 10 links in pages of 5: the third page is empty
+        Map<String, List<ResourceLink>> links = lookup(true, 5, Collections.emptyMap());
+
+        assertEquals(DEVICES, links.size());
+        links.values().forEach(serverLinks -> assertEquals(2, serverLinks.size()));
+    }
+
+    @Test(timeout = 10000)
+    public void lookupEndsWhenDirectoryIgnoresPaging() throws Exception {
+        Map<String, List<ResourceLink>> links = lookup(false, 3, Collections.emptyMap());
+
+        assertEquals(DEVICES, links.size());
+        links.values().forEach(serverLinks -> assertEquals(2, serverLinks.size()));
+    }
+
+    @Test(timeout = 10000)
+    public void filtersAreAppliedByDirectory() throws Exception {
+        Map<String, List<ResourceLink>> links = lookup(true, 3, Collections.singletonMap("rt", "iot.sensor.*"));
+
+        assertEquals(DEVICES, links.size());
+        links.values().forEach(serverLinks -> {
+            assertEquals(1, serverLinks.size());
+            assertEquals("iot.sensor.temperature", serverLinks.get(0).getResourceType());
+        });
+    }
+
+    private Map<String, List<ResourceLink>> lookup(boolean pagingSupport, int pageSize, Map<String, String> filters) throws Exception {
+        directory = new CoapTestResourceDirectory(DIRECTORY_PORT, DEVICE_ADDRESS, FIRST_DEVICE_PORT, DEVICES, pagingSupport);
+        directory.start();
+
+        client = new CoapClient(String.format("coap://127.0.0.1:%d/rd-lookup/res", DIRECTORY_PORT));
+
+        return new ResourceDirectoryDiscovery(client, pageSize, filters).lookup();
+    }
+}
@@ -0,0 +1,126 @@
+package it.wldt.adapter.coap.physical.discovery;
+
+import it.wldt.adapter.coap.physical.network.CoapEndpointManager;
+import org.eclipse.californium.core.CoapResource;
+import org.eclipse.californium.core.CoapServer;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.config.CoapConfig;
+import org.eclipse.californium.core.network.interceptors.MessageInterceptorAdapter;
+import org.eclipse.californium.elements.config.Configuration;
+import org.eclipse.californium.elements.config.UdpConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the {@link WellKnownCoreDiscovery} requests the link-format document of an in-process server block by
+ * block, parsing each block before requesting the next one, including the links split across two blocks.
+ */
+public class WellKnownCoreDiscoveryTest {
+    private static final int SERVER_PORT = 5704;
+    private static final int RESOURCES = 12;
+    private static final int BLOCK_SIZE = 32;
+
+    private final AtomicInteger discoveryRequests = new AtomicInteger();
+
+    private CoapServer server;
+    private CoapEndpointManager manager;
+
+    @Before
+    public void start() throws Exception {
+        CoapConfig.register();
+        UdpConfig.register();
+
+        server = new CoapServer(SERVER_PORT);
+        for (int i = 0; i < RESOURCES; i++) {
+            CoapResource resource = new CoapResource(resourceName(i));
+            resource.getAttributes().addResourceType(i % 2 == 0 ? "iot.sensor.temperature" : "iot.actuator.temperature");
+            resource.setObservable(i % 2 == 0);
+            server.add(resource);
+        }
+        server.start();
+        server.getEndpoints().get(0).addInterceptor(new MessageInterceptorAdapter() {
+            @Override
+            public void receiveRequest(Request request) {
+                if (request.getOptions().getUriPathString().equals(".well-known/core")) {
+                    discoveryRequests.incrementAndGet();
+                }
+            }
+        });
+
+        manager = new CoapEndpointManager(1, 1, Configuration.createStandardWithoutFile());
+    }
+
+    @After
+    public void stop() {
+        manager.shutdown();
+        server.destroy();
+    }
+
+    @Test
+    public void blocksAreParsedAsTheyArrive() throws Exception {
+        List<Integer> requestsAtFirstLink = new ArrayList<>();
+
+        DiscoverySnapshot snapshot = createDiscovery(Collections.emptyMap(), link -> {
+            if (requestsAtFirstLink.isEmpty()) {
+                requestsAtFirstLink.add(discoveryRequests.get());
+            }
+            return true;
+        }).discover(null);
+
+        List<String> expected = IntStream.range(0, RESOURCES).mapToObj(WellKnownCoreDiscoveryTest::resourceName).collect(Collectors.toList());
+        List<String> discovered = snapshot.getLinks().stream()
+                .map(ResourceLink::getName)
+                .filter(expected::contains)
+                .sorted()
+                .collect(Collectors.toList());
+
+        // Every link is longer than a block, so each of them is split across a block boundary
+        assertEquals(expected, discovered);
+        snapshot.getLinks().stream()
+                .filter(link -> expected.contains(link.getName()))
+                .forEach(link -> assertTrue(link.getResourceType().startsWith("iot.")));
+
+        // The first links are emitted before the rest of the document is requested
+        assertTrue(discoveryRequests.get() > 2);
+        assertTrue(requestsAtFirstLink.get(0) < discoveryRequests.get());
+    }
+
+    @Test
+    public void filtersAreAppliedByTheServerAndIgnoredLinksWhileStreaming() throws Exception {
+        DiscoverySnapshot snapshot = createDiscovery(Collections.singletonMap("rt", "iot.sensor.temperature"),
+                link -> !link.getName().equals(resourceName(0))).discover(null);
+
+        List<String> expected = IntStream.range(1, RESOURCES)
+                .filter(i -> i % 2 == 0)
+                .mapToObj(WellKnownCoreDiscoveryTest::resourceName)
+                .collect(Collectors.toList());
+
+        assertEquals(expected, snapshot.getLinks().stream().map(ResourceLink::getName).sorted().collect(Collectors.toList()));
+        snapshot.getLinks().forEach(link -> {
+            assertEquals("iot.sensor.temperature", link.getResourceType());
+            assertTrue(link.isObservable());
+        });
+    }
+
+    private WellKnownCoreDiscovery createDiscovery(Map<String, String> filters, Predicate<ResourceLink> linkFilter) {
+        return new WellKnownCoreDiscovery(
+                manager.createDiscoveryClient(String.format("coap://127.0.0.1:%d", SERVER_PORT)), filters, BLOCK_SIZE, linkFilter);
+    }
+
+    private static String resourceName(int index) {
+        return String.format("temperature-resource-with-a-long-name-%02d", index);
+    }
+}
@@ -0,0 +1,169 @@
+package it.wldt.adapter.coap.physical.dispatch;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the {@link NotificationDispatcher} runs the tasks of each key in order, one at a time,
+ * applies its drop policy when the queue of a key is full and discards the tasks of removed keys.
+ */
+public class NotificationDispatcherTest {
+    private static final long TIMEOUT = 5000;
+
+    private NotificationDispatcher dispatcher;
+
+    @After
+    public void shutdown() throws InterruptedException {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+            dispatcher.awaitTermination(TIMEOUT);
+        }
+    }
+
+    @Test
+    public void tasksOfEachKeyRunInOrder() throws InterruptedException {
+        dispatcher = new NotificationDispatcher(4, 1000, NotificationDropPolicy.DROP_NEWEST);
+        int keys = 8;
+        int tasks = 200;
+        List<List<Integer>> executions = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(keys * tasks);
+
+        for (int key = 0; key < keys; key++) {
+            executions.add(Collections.synchronizedList(new ArrayList<>()));
+        }
+        for (int task = 0; task < tasks; task++) {
+            for (int key = 0; key < keys; key++) {
+                List<Integer> execution = executions.get(key);
+                int index = task;
+                dispatcher.dispatch("key-" + key, () -> {
+                    execution.add(index);
+                    done.countDown();
+                });
+            }
+        }
+
+        assertTrue(done.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        List<Integer> expected = IntStream.range(0, tasks).boxed().collect(Collectors.toList());
+        executions.forEach(execution -> assertEquals(expected, execution));
+        assertEquals(0, dispatcher.getDroppedCount());
+    }
+
+    @Test
+    public void dropOldestDiscardsTheOldestQueuedTask() throws InterruptedException {
+        dispatcher = new NotificationDispatcher(1, 2, NotificationDropPolicy.DROP_OLDEST);
+
+        assertEquals(Arrays.asList("second", "third"), dispatchToBusyKey());
+        assertEquals(1, dispatcher.getDroppedCount());
+    }
+
+    @Test
+    public void dropNewestDiscardsTheNewTask() throws InterruptedException {
+        dispatcher = new NotificationDispatcher(1, 2, NotificationDropPolicy.DROP_NEWEST);
+
+        assertEquals(Arrays.asList("first", "second"), dispatchToBusyKey());
+        assertEquals(1, dispatcher.getDroppedCount());
+    }
+
+    @Test
+    public void failingTaskDoesNotStopTheQueue() throws InterruptedException {
+        dispatcher = new NotificationDispatcher(1, 10, NotificationDropPolicy.DROP_NEWEST);
+        CountDownLatch executed = new CountDownLatch(1);
+
+        dispatcher.dispatch("key", () -> {
+            throw new IllegalStateException("test failure");
+        });
+        dispatcher.dispatch("key", executed::countDown);
+
+        assertTrue(executed.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void tasksDispatchedAfterRemoveAreDiscarded() throws InterruptedException {
+        dispatcher = new NotificationDispatcher(1, 10, NotificationDropPolicy.DROP_NEWEST);
+        List<String> executions = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = blockKey("key");
+
+        dispatcher.dispatch("key", () -> executions.add("queued"));
+        dispatcher.remove("key");
+        dispatcher.dispatch("key", () -> executions.add("late"));
+        assertEquals(0, dispatcher.getQueueDepth("key"));
+
+        // The other keys are still served
+        CountDownLatch otherExecuted = new CountDownLatch(1);
+        dispatcher.dispatch("other", otherExecuted::countDown);
+        release.countDown();
+
+        assertTrue(otherExecuted.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals(Collections.emptyList(), executions);
+    }
+
+    @Test
+    public void tasksDispatchedAfterShutdownAreDiscarded() throws InterruptedException {
+        dispatcher = new NotificationDispatcher(1, 10, NotificationDropPolicy.DROP_NEWEST);
+        dispatcher.shutdown();
+
+        dispatcher.dispatch("key", () -> { });
+
+        assertTrue(dispatcher.isShutdown());
+        assertEquals(0, dispatcher.getQueueDepth());
+        assertEquals(0, dispatcher.getDroppedCount());
+    }
+
+    /**
+     * Dispatches three tasks to a key whose worker is busy, so that the third one overflows the queue of capacity 2.
+     * @return The names of the queued tasks executed once the worker is released.
+     */
+    private List<String> dispatchToBusyKey() throws InterruptedException {
+        List<String> executions = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = blockKey("key");
+        CountDownLatch done = new CountDownLatch(1);
+
+        dispatcher.dispatch("key", () -> executions.add("first"));
+        dispatcher.dispatch("key", () -> executions.add("second"));
+        dispatcher.dispatch("key", () -> executions.add("third"));
+        assertEquals(2, dispatcher.getQueueDepth("key"));
+        assertEquals(1, dispatcher.getDroppedCount());
+
+        release.countDown();
+        // Queued once the overflowing tasks have been drained, so that it is not dropped itself
+        while (dispatcher.getQueueDepth("key") > 0) {
+            Thread.sleep(10);
+        }
+        dispatcher.dispatch("key", done::countDown);
+        assertTrue(done.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+        return new ArrayList<>(executions);
+    }
+
+    /**
+     * Dispatches a task which holds the worker until the returned latch is released.
+     */
+    private CountDownLatch blockKey(String key) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        dispatcher.dispatch(key, () -> {
+            started.countDown();
+            try {
+                release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertTrue(started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        return release;
+    }
+}
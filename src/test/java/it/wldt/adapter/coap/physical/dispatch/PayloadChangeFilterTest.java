@@ -0,0 +1,66 @@
+package it.wldt.adapter.coap.physical.dispatch;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the {@link PayloadChangeFilter} suppresses only the payloads identical to the last delivered one,
+ * and that the heartbeat and the reset let a duplicate through.
+ */
+public class PayloadChangeFilterTest {
+
+    @Test
+    public void duplicatePayloadsAreSuppressed() {
+        PayloadChangeFilter filter = new PayloadChangeFilter(0);
+
+        assertTrue(filter.shouldDeliver(payload("21.5")));
+        assertFalse(filter.shouldDeliver(payload("21.5")));
+        assertFalse(filter.shouldDeliver(payload("21.5")));
+
+        assertEquals(2, filter.getSuppressedCount());
+    }
+
+    @Test
+    public void changedPayloadsAreDelivered() {
+        PayloadChangeFilter filter = new PayloadChangeFilter(0);
+
+        assertTrue(filter.shouldDeliver(payload("21.5")));
+        assertTrue(filter.shouldDeliver(payload("22.0")));
+        assertTrue(filter.shouldDeliver(payload("21.5")));
+        assertTrue(filter.shouldDeliver(new byte[0]));
+
+        assertEquals(0, filter.getSuppressedCount());
+    }
+
+    @Test
+    public void duplicateIsDeliveredAfterHeartbeat() throws InterruptedException {
+        PayloadChangeFilter filter = new PayloadChangeFilter(100);
+
+        assertTrue(filter.shouldDeliver(payload("21.5")));
+        assertFalse(filter.shouldDeliver(payload("21.5")));
+
+        Thread.sleep(150);
+
+        assertTrue(filter.shouldDeliver(payload("21.5")));
+        assertFalse(filter.shouldDeliver(payload("21.5")));
+    }
+
+    @Test
+    public void duplicateIsDeliveredAfterReset() {
+        PayloadChangeFilter filter = new PayloadChangeFilter(0);
+
+        assertTrue(filter.shouldDeliver(payload("21.5")));
+        filter.reset();
+
+        assertTrue(filter.shouldDeliver(payload("21.5")));
+    }
+
+    private static byte[] payload(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
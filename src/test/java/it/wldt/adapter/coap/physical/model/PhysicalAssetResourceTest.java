@@ -0,0 +1,298 @@
+package it.wldt.adapter.coap.physical.model;
+
+import it.wldt.adapter.coap.physical.configuration.CoapPhysicalAdapterConfiguration;
+import it.wldt.adapter.coap.physical.configuration.CoapPhysicalAdapterConfigurationBuilder;
+import it.wldt.adapter.coap.physical.configuration.CoapPhysicalAdapterConfigurationException;
+import it.wldt.adapter.coap.physical.polling.PollingPriority;
+import it.wldt.core.event.WldtEvent;
+import org.eclipse.californium.core.CoapResponse;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks how a {@link PhysicalAssetResource} sends its GET and action requests, using custom request functions which
+ * count the requests and hold them until the test releases their response.
+ */
+public class PhysicalAssetResourceTest {
+    private static final String SERVER_ADDRESS = "127.0.0.1";
+    private static final int SERVER_PORT = 5698;
+    private static final long TIMEOUT = 5000;
+
+    private final AtomicInteger sentRequests = new AtomicInteger();
+    private final AtomicInteger propertyNotifications = new AtomicInteger();
+    private volatile Request lastRequest;
+    private final CountDownLatch requestSent = new CountDownLatch(1);
+    private volatile CountDownLatch responseReleased = new CountDownLatch(0);
+    private volatile CoapResponse nextResponse;
+
+    private final List<String> actions = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger concurrentActions = new AtomicInteger();
+    private final AtomicInteger maxConcurrentActions = new AtomicInteger();
+    private volatile CountDownLatch actionReleased = new CountDownLatch(0);
+
+    private CoapPhysicalAdapterConfiguration configuration;
+    private PhysicalAssetResource resource;
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        if (configuration != null) {
+            configuration.shutdownSharedComponents(TIMEOUT);
+        }
+    }
+
+    @Test
+    public void concurrentReadsShareOneRequest() throws Exception {
+        createResource(createBuilder());
+        nextResponse = content("21.5", null);
+        responseReleased = new CountDownLatch(1);
+
+        Future<CoapResponse> first = executor.submit(() -> resource.readProperty());
+        assertTrue(requestSent.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+        Future<CoapResponse> second = executor.submit(() -> resource.readProperty());
+        assertTrue(awaitCondition(() -> resource.getDeduplicatedGetCount() == 1));
+
+        responseReleased.countDown();
+
+        assertSame(nextResponse, first.get(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertSame(nextResponse, second.get(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals(1, sentRequests.get());
+
+        // Once the response arrived, the next read sends a new request
+        resource.readProperty();
+        assertEquals(2, sentRequests.get());
+        assertEquals(1, resource.getDeduplicatedGetCount());
+    }
+
+    @Test
+    public void freshResponseIsServedFromCache() throws Exception {
+        createResource(createBuilder().enableResponseCache(true));
+        nextResponse = content("21.5", 60L);
+
+        CoapResponse response = resource.readProperty();
+
+        assertSame(response, resource.readProperty());
+        assertEquals(1, sentRequests.get());
+        assertEquals(1, configuration.getResponseCache().getHitCount());
+    }
+
+    @Test
+    public void requestWithOtherOptionsBypassesCache() throws Exception {
+        createResource(createBuilder().enableResponseCache(true));
+        nextResponse = content("21.5", 60L);
+
+        CoapResponse cachedResponse = resource.readProperty();
+
+        Request jsonRequest = new Request(CoAP.Code.GET);
+        jsonRequest.getOptions().setUriPath("temperature-sensor");
+        jsonRequest.getOptions().setAccept(MediaTypeRegistry.APPLICATION_JSON);
+        nextResponse = content("{\"value\":21.5}", 60L);
+
+        assertSame(nextResponse, resource.readProperty(jsonRequest));
+        assertEquals(2, sentRequests.get());
+
+        // The response to the custom request did not replace the cached one
+        assertSame(cachedResponse, resource.readProperty());
+        assertEquals(2, sentRequests.get());
+    }
+
+    @Test
+    public void conditionalPollSendsTheLastETag() throws Exception {
+        createResource(createBuilder().enableConditionalPolling(true));
+
+        nextResponse = content("21.5", null);
+        nextResponse.getOptions().addETag(new byte[] { 0x01 });
+        resource.updateProperty();
+
+        assertTrue(lastRequest.getOptions().getETags().isEmpty());
+        assertEquals(1, propertyNotifications.get());
+
+        nextResponse = new CoapResponse(new Response(CoAP.ResponseCode.VALID)) { };
+        resource.updateProperty();
+
+        assertEquals(1, lastRequest.getOptions().getETagCount());
+        assertArrayEquals(new byte[] { 0x01 }, lastRequest.getOptions().getETags().get(0));
+
+        // The 2.03 Valid answer confirms the value already notified
+        assertEquals(1, propertyNotifications.get());
+    }
+
+    @Test
+    public void actionTimesOutWhileThePollingThreadsAreBusy() throws Exception {
+        createActuator(createBuilder().setPollingSchedulerThreads(1).setActionTimeout(200));
+        actionReleased = new CountDownLatch(1);
+
+        CountDownLatch pollingReleased = new CountDownLatch(1);
+        configuration.getPollingScheduler().execute(() -> {
+            try {
+                pollingReleased.await(TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, PollingPriority.HIGH);
+
+        try {
+            resource.sendActionAsync(action(CoAP.Code.PUT, "22.0")).get(TIMEOUT, TimeUnit.MILLISECONDS);
+            fail("The action should have timed out");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        } finally {
+            pollingReleased.countDown();
+            actionReleased.countDown();
+        }
+
+        // The custom action function ran even though the only polling thread was busy
+        assertEquals(Collections.singletonList("22.0"), actions);
+    }
+
+    @Test
+    public void actionsInProgressAreBoundedPerResource() throws Exception {
+        createActuator(createBuilder().setMaxConcurrentActionsPerResource(2).setActionThreads(4));
+        actionReleased = new CountDownLatch(1);
+
+        List<CompletableFuture<CoapResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(resource.sendActionAsync(action(CoAP.Code.POST, Integer.toString(i))));
+        }
+
+        assertTrue(awaitCondition(() -> actions.size() == 2));
+        assertEquals(2, resource.getActionQueue().getInFlightActions());
+        assertEquals(2, resource.getActionQueue().getPendingActions());
+
+        actionReleased.countDown();
+        for (CompletableFuture<CoapResponse> future : futures) {
+            assertTrue(future.get(TIMEOUT, TimeUnit.MILLISECONDS).isSuccess());
+        }
+        assertEquals(2, maxConcurrentActions.get());
+    }
+
+    @Test
+    public void actionsAreSentInSubmissionOrder() throws Exception {
+        createActuator(createBuilder());
+
+        List<CompletableFuture<CoapResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(resource.sendActionAsync(action(CoAP.Code.POST, Integer.toString(i))));
+        }
+        for (CompletableFuture<CoapResponse> future : futures) {
+            future.get(TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+
+        assertEquals(Arrays.asList("0", "1", "2", "3", "4"), actions);
+        assertEquals(1, maxConcurrentActions.get());
+    }
+
+    private void createActuator(CoapPhysicalAdapterConfigurationBuilder builder) throws CoapPhysicalAdapterConfigurationException {
+        configuration = builder.setCustomActionRequestFunction(this::act).build();
+        resource = new PhysicalAssetResource(configuration, "temperature-actuator", "iot.actuator.temperature", MediaTypeRegistry.TEXT_PLAIN,
+                (key, payload) -> Collections.emptyList(), true, true,
+                (key, message) -> Collections.emptyList());
+    }
+
+    private void createResource(CoapPhysicalAdapterConfigurationBuilder builder) throws CoapPhysicalAdapterConfigurationException {
+        configuration = builder.setCustomPropertyRequestFunction(this::send).build();
+        resource = new PhysicalAssetResource(configuration, "temperature-sensor", "iot.sensor.temperature", MediaTypeRegistry.TEXT_PLAIN,
+                (key, payload) -> Collections.emptyList(),
+                (key, message) -> Collections.emptyList());
+        resource.addListener(new PhysicalAssetResourceListener() {
+            @Override
+            public void onPropertyChanged(PhysicalAssetResource resource, List<? extends WldtEvent<?>> properties) {
+                propertyNotifications.incrementAndGet();
+            }
+
+            @Override
+            public void onEvent(PhysicalAssetResource resource, List<? extends WldtEvent<?>> events) {
+            }
+        }, PhysicalAssetResourceListener.ListenerType.ALL);
+    }
+
+    private static CoapPhysicalAdapterConfigurationBuilder createBuilder() {
+        return CoapPhysicalAdapterConfiguration.builder(SERVER_ADDRESS, SERVER_PORT)
+                .enableResourceDiscoverySupport(true)
+                .setPreferredContentFormat(MediaTypeRegistry.TEXT_PLAIN)
+                .setDefaultPropertyBodyTranslator((key, payload) -> Collections.emptyList())
+                .setDefaultEventTranslator((key, message) -> Collections.emptyList())
+                .setDefaultActionEventTranslator(event -> new Request(CoAP.Code.PUT));
+    }
+
+    private CoapResponse send(Request request) {
+        lastRequest = request;
+        sentRequests.incrementAndGet();
+        requestSent.countDown();
+
+        try {
+            responseReleased.await(TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return nextResponse;
+    }
+
+    private CoapResponse act(Request request) {
+        int concurrent = concurrentActions.incrementAndGet();
+        maxConcurrentActions.accumulateAndGet(concurrent, Math::max);
+        actions.add(request.getPayloadString());
+
+        try {
+            actionReleased.await(TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            concurrentActions.decrementAndGet();
+        }
+        return new CoapResponse(new Response(CoAP.ResponseCode.CHANGED)) { };
+    }
+
+    private static Request action(CoAP.Code code, String payload) {
+        Request request = new Request(code);
+        request.setPayload(payload);
+        return request;
+    }
+
+    private static CoapResponse content(String payload, Long maxAge) {
+        Response response = new Response(CoAP.ResponseCode.CONTENT);
+        response.setPayload(payload);
+        if (maxAge != null) {
+            response.getOptions().setMaxAge(maxAge);
+        }
+        return new CoapResponse(response) { };
+    }
+
+    private static boolean awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,117 @@
+package it.wldt.adapter.coap.physical.network;
+
+import it.wldt.adapter.coap.physical.server.CoapTestServer;
+import org.eclipse.californium.core.CoapClient;
+import org.eclipse.californium.core.CoapResponse;
+import org.eclipse.californium.core.config.CoapConfig;
+import org.eclipse.californium.core.network.Endpoint;
+import org.eclipse.californium.elements.config.Configuration;
+import org.eclipse.californium.elements.config.UdpConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the {@link CoapEndpointManager} binds its endpoints, assigns them to the clients in round-robin order
+ * and destroys them on shutdown, sending the requests to an in-process {@link CoapTestServer}.
+ */
+public class CoapEndpointManagerTest {
+    private static final int SERVER_PORT = 5701;
+    private static final int ENDPOINT_COUNT = 3;
+
+    private CoapTestServer server;
+    private CoapEndpointManager manager;
+
+    @Before
+    public void start() throws Exception {
+        CoapConfig.register();
+        UdpConfig.register();
+
+        server = new CoapTestServer(SERVER_PORT);
+        server.start();
+
+        manager = new CoapEndpointManager(ENDPOINT_COUNT, 2, Configuration.createStandardWithoutFile());
+    }
+
+    @After
+    public void stop() {
+        manager.shutdown();
+        server.destroy();
+    }
+
+    @Test
+    public void everyEndpointIsBoundToItsOwnPort() {
+        List<Endpoint> endpoints = manager.getEndpoints();
+        Set<Integer> ports = new HashSet<>();
+
+        assertEquals(ENDPOINT_COUNT, endpoints.size());
+        endpoints.forEach(endpoint -> {
+            assertTrue(endpoint.isStarted());
+            ports.add(endpoint.getAddress().getPort());
+        });
+        assertEquals(ENDPOINT_COUNT, ports.size());
+    }
+
+    @Test
+    public void endpointsAreAssignedInRoundRobinOrder() {
+        List<Endpoint> endpoints = manager.getEndpoints();
+        Endpoint first = manager.getEndpoint();
+        int offset = endpoints.indexOf(first);
+
+        for (int i = 1; i <= 2 * ENDPOINT_COUNT; i++) {
+            assertSame(endpoints.get((offset + i) % ENDPOINT_COUNT), manager.getEndpoint());
+        }
+    }
+
+    @Test
+    public void clientsSendThroughThePooledEndpoints() throws Exception {
+        String uri = String.format("coap://127.0.0.1:%d/temperature-sensor", SERVER_PORT);
+
+        for (int i = 0; i < ENDPOINT_COUNT; i++) {
+            CoapClient client = manager.createClient(uri);
+            try {
+                assertTrue(manager.getEndpoints().contains(client.getEndpoint()));
+
+                CoapResponse response = client.get();
+                assertNotNull(response);
+                assertTrue(response.isSuccess());
+            } finally {
+                client.shutdown();
+            }
+        }
+
+        // Shutting down a client does not release the shared endpoint
+        manager.getEndpoints().forEach(endpoint -> assertTrue(endpoint.isStarted()));
+    }
+
+    @Test
+    public void discoveryClientsUseTheirOwnEndpoint() {
+        CoapClient client = manager.createDiscoveryClient(String.format("coap://127.0.0.1:%d", SERVER_PORT));
+        try {
+            assertSame(manager.getDiscoveryEndpoint(), client.getEndpoint());
+            assertTrue(manager.getDiscoveryEndpoint().isStarted());
+            assertFalse(manager.getEndpoints().contains(manager.getDiscoveryEndpoint()));
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void shutdownDestroysTheEndpoints() {
+        manager.shutdown();
+
+        assertTrue(manager.isShutdown());
+        manager.getEndpoints().forEach(endpoint -> assertFalse(endpoint.isStarted()));
+        assertFalse(manager.getDiscoveryEndpoint().isStarted());
+    }
+}
@@ -0,0 +1,127 @@
+package it.wldt.adapter.coap.physical.observation;
+
+import it.wldt.adapter.coap.physical.configuration.CoapPhysicalAdapterConfiguration;
+import it.wldt.adapter.coap.physical.configuration.CoapPhysicalAdapterConfigurationException;
+import it.wldt.adapter.coap.physical.model.PhysicalAssetResource;
+import it.wldt.adapter.coap.physical.server.CoapTestServer;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.coap.Request;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks how the {@link ObservationWatchdog} recovers the observe relations of an in-process {@link CoapTestServer},
+ * calling {@link ObservationWatchdog#check()} directly instead of waiting for the periodic checks.
+ */
+public class ObservationWatchdogTest {
+    private static final String SERVER_ADDRESS = "127.0.0.1";
+    private static final int SERVER_PORT = 5700;
+    private static final long DEADLINE = 300;
+    private static final long TIMEOUT = 5000;
+    // A registration sent while the server was down is answered only by a CON retransmission
+    private static final long RECOVERY_TIMEOUT = 15000;
+
+    private CoapTestServer server;
+    private CoapPhysicalAdapterConfiguration configuration;
+    private PhysicalAssetResource resource;
+    private ObservationWatchdog watchdog;
+
+    @Before
+    public void start() throws Exception {
+        server = new CoapTestServer(SERVER_PORT);
+        server.start();
+
+        configuration = createConfiguration();
+        resource = new PhysicalAssetResource(configuration, "temperature-sensor", "iot.sensor.temperature",
+                MediaTypeRegistry.APPLICATION_JSON, (key, payload) -> Collections.emptyList(), (key, message) -> Collections.emptyList(), true);
+        configuration.getResources().add(resource);
+        watchdog = new ObservationWatchdog(configuration);
+
+        resource.startObservation().get(TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void stop() throws InterruptedException {
+        resource.stop();
+        resource.close();
+        configuration.shutdownSharedComponents(TIMEOUT);
+        server.destroy();
+    }
+
+    @Test
+    public void healthyRelationIsLeftAlone() {
+        long lastNotificationTime = resource.getLastNotificationTime();
+
+        watchdog.check();
+
+        assertFalse(resource.isFallbackPollingActive());
+        assertEquals(lastNotificationTime, resource.getLastNotificationTime());
+    }
+
+    @Test
+    public void staleRelationIsRecoveredWithFallbackPolling() throws InterruptedException {
+        // The test sensor notifies every few seconds, so the relation goes silent past the deadline
+        server.stop();
+        Thread.sleep(DEADLINE + 100);
+
+        watchdog.check();
+
+        assertTrue(resource.isObservationActive());
+        assertTrue(resource.isFallbackPollingActive());
+        assertTrue(resource.isAutoUpdateActive());
+
+        // The first notification of the new relation stops the fallback polling
+        server.start();
+
+        assertTrue(awaitCondition(() -> !resource.isFallbackPollingActive()));
+        assertFalse(resource.isAutoUpdateActive());
+        assertTrue(resource.isObservationActive());
+    }
+
+    @Test
+    public void stoppedObservationIsNotRecovered() throws InterruptedException {
+        resource.stopObservation();
+        Thread.sleep(DEADLINE + 100);
+
+        watchdog.check();
+
+        assertFalse(resource.isObservationActive());
+        assertFalse(resource.isFallbackPollingActive());
+    }
+
+    private static CoapPhysicalAdapterConfiguration createConfiguration() throws CoapPhysicalAdapterConfigurationException {
+        return CoapPhysicalAdapterConfiguration.builder(SERVER_ADDRESS, SERVER_PORT)
+                .enableResourceDiscoverySupport(true)
+                .enableObservability(true)
+                .enableObservationWatchdog(true)
+                .setObservationWatchdogTiming(TIMEOUT, DEADLINE)
+                .enableObservationFallbackPolling(true)
+                .setAutoUpdateInterval(TIMEOUT)
+                .setPreferredContentFormat(MediaTypeRegistry.APPLICATION_JSON)
+                .setDefaultPropertyBodyTranslator((key, payload) -> Collections.emptyList())
+                .setDefaultEventTranslator((key, message) -> Collections.emptyList())
+                .setDefaultActionEventTranslator(event -> new Request(CoAP.Code.PUT))
+                .build();
+    }
+
+    private static boolean awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + RECOVERY_TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}
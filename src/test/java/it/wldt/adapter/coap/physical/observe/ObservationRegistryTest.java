@@ -0,0 +1,215 @@
+package it.wldt.adapter.coap.physical.observe;
+
+import it.wldt.adapter.coap.physical.server.CoapTestServer;
+import org.eclipse.californium.core.CoapClient;
+import org.eclipse.californium.core.CoapHandler;
+import org.eclipse.californium.core.CoapObserveRelation;
+import org.eclipse.californium.core.CoapResponse;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.Request;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the reference counting of the observe relations shared through the {@link ObservationRegistry},
+ * observing a resource of an in-process {@link CoapTestServer} from two clients, and that the subscribers are never
+ * notified while the registry lock is held.
+ */
+public class ObservationRegistryTest {
+    private static final int SERVER_PORT = 5699;
+    private static final String RESOURCE_URI = String.format("coap://127.0.0.1:%d/temperature-sensor", SERVER_PORT);
+    private static final String KEY = RESOURCE_URI + "|test";
+    private static final long TIMEOUT = 5000;
+
+    private final ObservationRegistry registry = ObservationRegistry.getInstance();
+
+    private CoapTestServer server;
+    private CoapClient firstClient;
+    private CoapClient secondClient;
+
+    @Before
+    public void start() {
+        server = new CoapTestServer(SERVER_PORT);
+        server.start();
+
+        firstClient = new CoapClient(RESOURCE_URI);
+        secondClient = new CoapClient(RESOURCE_URI);
+    }
+
+    @After
+    public void stop() {
+        firstClient.shutdown();
+        secondClient.shutdown();
+        server.destroy();
+    }
+
+    @Test
+    public void subscribersShareOneRelation() throws InterruptedException {
+        int initialObservations = registry.getObservationCount();
+        CountingHandler firstHandler = new CountingHandler();
+        CountingHandler secondHandler = new CountingHandler();
+
+        ObservationRegistry.Subscription first = registry.subscribe(KEY, firstClient, ObservationRegistryTest::createObserveRequest, firstHandler, false);
+        assertTrue(awaitCondition(() -> firstHandler.loads.get() > 0));
+
+        // The second subscriber gets the last notification without registering a new relation
+        ObservationRegistry.Subscription second = registry.subscribe(KEY, secondClient, ObservationRegistryTest::createObserveRequest, secondHandler, false);
+        assertTrue(secondHandler.loads.get() > 0);
+
+        assertEquals(initialObservations + 1, registry.getObservationCount());
+        assertEquals(2, registry.getSubscriberCount(KEY));
+
+        first.unsubscribe();
+        second.unsubscribe();
+
+        assertEquals(initialObservations, registry.getObservationCount());
+        assertEquals(0, registry.getSubscriberCount(KEY));
+    }
+
+    @Test
+    public void relationIsHandedOverWhenOwnerUnsubscribes() throws InterruptedException {
+        int initialObservations = registry.getObservationCount();
+        CountingHandler firstHandler = new CountingHandler();
+        CountingHandler secondHandler = new CountingHandler();
+
+        ObservationRegistry.Subscription owner = registry.subscribe(KEY, firstClient, ObservationRegistryTest::createObserveRequest, firstHandler, false);
+        assertTrue(awaitCondition(() -> firstHandler.loads.get() > 0));
+
+        ObservationRegistry.Subscription follower = registry.subscribe(KEY, secondClient, ObservationRegistryTest::createObserveRequest, secondHandler, false);
+        int followerLoads = secondHandler.loads.get();
+
+        owner.unsubscribe();
+
+        // The follower registers the relation again with its own client and keeps receiving the notifications
+        assertEquals(initialObservations + 1, registry.getObservationCount());
+        assertEquals(1, registry.getSubscriberCount(KEY));
+        assertTrue(awaitCondition(() -> secondHandler.loads.get() > followerLoads));
+        assertEquals(0, secondHandler.errors.get());
+
+        follower.unsubscribe();
+
+        assertEquals(initialObservations, registry.getObservationCount());
+    }
+
+    @Test
+    public void refreshRegistersTheRelationAgain() throws InterruptedException {
+        CountingHandler handler = new CountingHandler();
+
+        ObservationRegistry.Subscription subscription = registry.subscribe(KEY, firstClient, ObservationRegistryTest::createObserveRequest, handler, false);
+        assertTrue(awaitCondition(() -> handler.loads.get() > 0));
+
+        int loads = handler.loads.get();
+        ObservationRegistry.Subscription refreshed = registry.subscribe(KEY, firstClient, ObservationRegistryTest::createObserveRequest, handler, true);
+        subscription.unsubscribe();
+
+        assertTrue(awaitCondition(() -> handler.loads.get() > loads));
+        assertEquals(1, registry.getSubscriberCount(KEY));
+
+        refreshed.unsubscribe();
+        assertEquals(0, registry.getSubscriberCount(KEY));
+    }
+
+    @Test
+    public void synchronousErrorOfRefreshIsDeliveredOutsideTheLock() throws InterruptedException {
+        CountingHandler firstHandler = new CountingHandler();
+        CountingHandler secondHandler = new CountingHandler();
+        CoapClient failingClient = new CoapClient(RESOURCE_URI) {
+            @Override
+            public CoapObserveRelation observe(Request request, CoapHandler handler) {
+                // Like a client whose endpoint rejects the request before sending it
+                handler.onError();
+                return null;
+            }
+        };
+
+        ObservationRegistry.Subscription first = registry.subscribe(KEY, firstClient, ObservationRegistryTest::createObserveRequest, firstHandler, false);
+        assertTrue(awaitCondition(() -> firstHandler.loads.get() > 0));
+
+        ObservationRegistry.Subscription refreshed = registry.subscribe(KEY, failingClient, ObservationRegistryTest::createObserveRequest, secondHandler, true);
+
+        assertEquals(1, firstHandler.errors.get());
+        assertEquals(1, secondHandler.errors.get());
+        assertFalse(firstHandler.lockHeld.get());
+        assertFalse(secondHandler.lockHeld.get());
+
+        refreshed.unsubscribe();
+        first.unsubscribe();
+        failingClient.shutdown();
+        assertEquals(0, registry.getSubscriberCount(KEY));
+    }
+
+    @Test
+    public void failedHandOverIsNotifiedOutsideTheLock() throws InterruptedException {
+        CountingHandler firstHandler = new CountingHandler();
+        CountingHandler secondHandler = new CountingHandler();
+        CoapClient failingClient = new CoapClient(RESOURCE_URI) {
+            @Override
+            public CoapObserveRelation observe(Request request, CoapHandler handler) {
+                throw new IllegalStateException("test failure");
+            }
+        };
+
+        ObservationRegistry.Subscription owner = registry.subscribe(KEY, firstClient, ObservationRegistryTest::createObserveRequest, firstHandler, false);
+        assertTrue(awaitCondition(() -> firstHandler.loads.get() > 0));
+        ObservationRegistry.Subscription follower = registry.subscribe(KEY, failingClient, ObservationRegistryTest::createObserveRequest, secondHandler, false);
+
+        owner.unsubscribe();
+
+        assertEquals(1, secondHandler.errors.get());
+        assertFalse(secondHandler.lockHeld.get());
+
+        follower.unsubscribe();
+        failingClient.shutdown();
+        assertEquals(0, registry.getSubscriberCount(KEY));
+    }
+
+    private static Request createObserveRequest() {
+        Request request = new Request(CoAP.Code.GET);
+        request.setObserve();
+        return request;
+    }
+
+    private static boolean awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private static class CountingHandler implements CoapHandler {
+        private final AtomicInteger loads = new AtomicInteger();
+        private final AtomicInteger errors = new AtomicInteger();
+        private final AtomicBoolean lockHeld = new AtomicBoolean();
+
+        @Override
+        public void onLoad(CoapResponse coapResponse) {
+            checkLock();
+            loads.incrementAndGet();
+        }
+
+        @Override
+        public void onError() {
+            checkLock();
+            errors.incrementAndGet();
+        }
+
+        private void checkLock() {
+            if (Thread.holdsLock(ObservationRegistry.getInstance())) {
+                lockHeld.set(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package it.wldt.adapter.coap.physical.polling;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks how the {@link AdaptivePollingInterval} backs off on unchanged payloads, speeds up on changed ones and
+ * follows the Max-Age of the responses, always within its bounds.
+ */
+public class AdaptivePollingIntervalTest {
+
+    @Test
+    public void initialIntervalIsClamped() {
+        assertEquals(1000, new AdaptivePollingInterval(100, 1000, 8000, 2.0).getInterval());
+        assertEquals(8000, new AdaptivePollingInterval(60000, 1000, 8000, 2.0).getInterval());
+    }
+
+    @Test
+    public void unchangedPayloadsBackOffUpToTheMaximum() {
+        AdaptivePollingInterval interval = new AdaptivePollingInterval(1000, 500, 8000, 2.0);
+
+        interval.onPayload(payload("21.5"), null);
+        assertEquals(1000, interval.getInterval());
+
+        interval.onPayload(payload("21.5"), null);
+        assertEquals(2000, interval.getInterval());
+
+        interval.onUnchanged(null);
+        assertEquals(4000, interval.getInterval());
+
+        interval.onPayload(payload("21.5"), null);
+        interval.onPayload(payload("21.5"), null);
+        assertEquals(8000, interval.getInterval());
+    }
+
+    @Test
+    public void changedPayloadsSpeedUpDownToTheMinimum() {
+        AdaptivePollingInterval interval = new AdaptivePollingInterval(4000, 1000, 8000, 2.0);
+
+        interval.onPayload(payload("20"), null);
+        interval.onPayload(payload("21"), null);
+        assertEquals(2000, interval.getInterval());
+
+        interval.onPayload(payload("22"), null);
+        interval.onPayload(payload("23"), null);
+        assertEquals(1000, interval.getInterval());
+    }
+
+    @Test
+    public void maxAgeIsALowerBound() {
+        AdaptivePollingInterval interval = new AdaptivePollingInterval(1000, 500, 8000, 2.0);
+
+        interval.onPayload(payload("21.5"), 5L);
+        assertEquals(5000, interval.getInterval());
+
+        // A changed payload cannot bring the interval below the declared freshness
+        interval.onPayload(payload("22.0"), 5L);
+        assertEquals(5000, interval.getInterval());
+
+        // Without Max-Age the adapted interval applies again
+        interval.onPayload(payload("22.5"), null);
+        assertEquals(500, interval.getInterval());
+    }
+
+    @Test
+    public void maxAgeIsClampedToTheMaximum() {
+        AdaptivePollingInterval interval = new AdaptivePollingInterval(1000, 500, 8000, 2.0);
+
+        interval.onUnchanged(3600L);
+
+        assertEquals(8000, interval.getInterval());
+    }
+
+    private static byte[] payload(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
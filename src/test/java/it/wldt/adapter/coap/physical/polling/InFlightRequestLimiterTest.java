@@ -0,0 +1,65 @@
+package it.wldt.adapter.coap.physical.polling;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the global and per-server caps of the {@link InFlightRequestLimiter}.
+ */
+public class InFlightRequestLimiterTest {
+    private static final String FIRST_SERVER = "coap://127.0.0.1:5683";
+    private static final String SECOND_SERVER = "coap://127.0.0.1:5684";
+
+    @Test
+    public void slowServerOnlyExhaustsItsOwnPermits() {
+        InFlightRequestLimiter limiter = new InFlightRequestLimiter(10, 2);
+
+        assertTrue(limiter.tryAcquire(FIRST_SERVER));
+        assertTrue(limiter.tryAcquire(FIRST_SERVER));
+        assertFalse(limiter.tryAcquire(FIRST_SERVER));
+
+        assertTrue(limiter.tryAcquire(SECOND_SERVER));
+
+        assertEquals(2, limiter.getInFlightRequests(FIRST_SERVER));
+        assertEquals(1, limiter.getInFlightRequests(SECOND_SERVER));
+        assertEquals(3, limiter.getInFlightRequests());
+    }
+
+    @Test
+    public void globalCapIsSharedByEveryServer() {
+        InFlightRequestLimiter limiter = new InFlightRequestLimiter(3, 2);
+
+        assertTrue(limiter.tryAcquire(FIRST_SERVER));
+        assertTrue(limiter.tryAcquire(FIRST_SERVER));
+        assertTrue(limiter.tryAcquire(SECOND_SERVER));
+        assertFalse(limiter.tryAcquire(SECOND_SERVER));
+
+        // The rejected request did not keep a permit of its server
+        assertEquals(1, limiter.getInFlightRequests(SECOND_SERVER));
+        assertEquals(3, limiter.getInFlightRequests());
+    }
+
+    @Test
+    public void releasedPermitCanBeAcquiredAgain() {
+        InFlightRequestLimiter limiter = new InFlightRequestLimiter(10, 1);
+
+        assertTrue(limiter.tryAcquire(FIRST_SERVER));
+        assertFalse(limiter.tryAcquire(FIRST_SERVER));
+
+        limiter.release(FIRST_SERVER);
+
+        assertEquals(0, limiter.getInFlightRequests(FIRST_SERVER));
+        assertEquals(0, limiter.getInFlightRequests());
+        assertTrue(limiter.tryAcquire(FIRST_SERVER));
+    }
+
+    @Test
+    public void unknownServerHasNoRequestInFlight() {
+        InFlightRequestLimiter limiter = new InFlightRequestLimiter(10, 2);
+
+        assertEquals(0, limiter.getInFlightRequests(FIRST_SERVER));
+    }
+}
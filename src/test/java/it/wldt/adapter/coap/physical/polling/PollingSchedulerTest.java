@@ -0,0 +1,216 @@
+package it.wldt.adapter.coap.physical.polling;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks how the {@link PollingScheduler} hands the due tasks to its polling threads, using a single polling thread
+ * kept busy by the test so that the pending tasks queue up.
+ */
+public class PollingSchedulerTest {
+    private static final long TIMEOUT = 5000;
+
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    private final PollingScheduler scheduler = new PollingScheduler(1);
+
+    @After
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void pendingTasksRunByPriorityAndThenInOrder() throws InterruptedException {
+        CountDownLatch released = blockPollingThread();
+        CountDownLatch completed = new CountDownLatch(5);
+
+        scheduler.execute(record("low", completed), PollingPriority.LOW);
+        scheduler.execute(record("normal-1", completed), PollingPriority.NORMAL);
+        scheduler.execute(record("high-1", completed), PollingPriority.HIGH);
+        scheduler.execute(record("normal-2", completed), PollingPriority.NORMAL);
+        scheduler.execute(record("high-2", completed), PollingPriority.HIGH);
+
+        assertEquals(5, scheduler.getPendingTaskCount());
+
+        released.countDown();
+
+        assertTrue(completed.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals(Arrays.asList("high-1", "high-2", "normal-1", "normal-2", "low"), executed);
+    }
+
+    @Test
+    public void scheduledTaskRunsAfterItsDelay() throws InterruptedException {
+        CountDownLatch completed = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        scheduler.schedule(record("delayed", completed), 200, PollingPriority.HIGH);
+
+        assertTrue(completed.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 200);
+    }
+
+    @Test
+    public void failingTaskDoesNotStopThePollingThread() throws InterruptedException {
+        CountDownLatch completed = new CountDownLatch(1);
+
+        scheduler.execute(() -> {
+            throw new IllegalStateException("Polling failure");
+        }, PollingPriority.NORMAL);
+        scheduler.execute(record("next", completed), PollingPriority.NORMAL);
+
+        assertTrue(completed.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals(Collections.singletonList("next"), executed);
+    }
+
+    @Test
+    public void shutdownReleasesTheThreads() throws InterruptedException {
+        scheduler.schedule(() -> executed.add("cancelled"), 60000);
+        assertEquals(1, scheduler.getScheduledTaskCount());
+
+        scheduler.shutdown();
+
+        assertTrue(scheduler.isShutdown());
+        assertTrue(scheduler.awaitTermination(TIMEOUT));
+        assertTrue(executed.isEmpty());
+    }
+
+    @Test
+    public void periodicExecutionsNeverOverlap() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch completed = new CountDownLatch(3);
+
+        try {
+            PollingScheduler.PeriodicTask task = scheduler.scheduleWithFixedDelay(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                completed.countDown();
+            }, 0, 10, executor);
+
+            assertTrue(completed.await(TIMEOUT, TimeUnit.MILLISECONDS));
+            task.cancel();
+            assertEquals(1, maxRunning.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void periodicTaskDoesNotPileUpWhileThePollingThreadIsBusy() throws InterruptedException {
+        CountDownLatch released = blockPollingThread();
+        CountDownLatch completed = new CountDownLatch(1);
+
+        PollingScheduler.PeriodicTask task = scheduler.scheduleWithFixedDelay(record("periodic", completed), 0, 10);
+        Thread.sleep(200);
+
+        // A single execution waits for the polling thread, the next one is scheduled only when it ends
+        assertEquals(1, scheduler.getPendingTaskCount());
+        assertEquals(0, scheduler.getScheduledTaskCount());
+
+        released.countDown();
+        assertTrue(completed.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        task.cancel();
+    }
+
+    @Test
+    public void cancelledPeriodicTaskIsNotExecutedAgain() throws InterruptedException {
+        CountDownLatch completed = new CountDownLatch(1);
+        PollingScheduler.PeriodicTask task = scheduler.scheduleWithFixedDelay(record("periodic", completed), 0, 50);
+
+        assertTrue(completed.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        task.cancel();
+        Thread.sleep(200);
+
+        assertTrue(task.isCancelled());
+        assertEquals(Collections.singletonList("periodic"), executed);
+        assertEquals(0, scheduler.getScheduledTaskCount());
+    }
+
+    @Test
+    public void spreadPlacesTheFirstPollsAcrossTheInterval() {
+        long interval = 1000;
+        Set<Long> delays = new HashSet<>();
+
+        for (int i = 0; i < 10; i++) {
+            long delay = scheduler.getInitialDelay(PollingPhasePolicy.SPREAD, interval);
+            assertTrue(delay >= 0 && delay < interval);
+            delays.add(delay);
+        }
+
+        // The golden ratio sequence never places two of the first resources on the same phase
+        assertEquals(10, delays.size());
+        assertEquals(0, scheduler.getInitialDelay(PollingPhasePolicy.SPREAD, 0));
+    }
+
+    @Test
+    public void randomPhaseStaysWithinTheInterval() {
+        for (int i = 0; i < 100; i++) {
+            long delay = scheduler.getInitialDelay(PollingPhasePolicy.RANDOM, 500);
+            assertTrue(delay >= 0 && delay < 500);
+        }
+    }
+
+    @Test
+    public void jitterStaysWithinItsBounds() {
+        for (int i = 0; i < 1000; i++) {
+            long delay = PollingScheduler.applyJitter(1000, 250);
+            assertTrue(delay >= 750 && delay <= 1250);
+        }
+
+        assertEquals(1000, PollingScheduler.applyJitter(1000, 0));
+    }
+
+    @Test
+    public void jitteredDelayIsNeverNegative() {
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(PollingScheduler.applyJitter(100, 500) >= 0);
+        }
+    }
+
+    /**
+     * Occupies the only polling thread until the returned latch is released.
+     */
+    private CountDownLatch blockPollingThread() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+
+        scheduler.execute(() -> {
+            started.countDown();
+            try {
+                released.await(TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, PollingPriority.LOW);
+
+        assertTrue(started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        return released;
+    }
+
+    private Runnable record(String name, CountDownLatch completed) {
+        return () -> {
+            executed.add(name);
+            completed.countDown();
+        };
+    }
+}
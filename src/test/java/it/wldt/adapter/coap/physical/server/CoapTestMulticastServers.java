@@ -0,0 +1,60 @@
+package it.wldt.adapter.coap.physical.server;
+
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.config.CoapConfig;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.elements.UDPConnector;
+import org.eclipse.californium.elements.UdpMulticastConnector;
+import org.eclipse.californium.elements.config.Configuration;
+import org.eclipse.californium.elements.config.UdpConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts several in-process {@link CoapTestServer}s on consecutive loopback ports, each of them also receiving the
+ * requests sent to the All-CoAP-Nodes group, to exercise the multicast discovery without real devices.
+ */
+public class CoapTestMulticastServers {
+    private static Logger logger = LoggerFactory.getLogger(CoapTestMulticastServers.class);
+
+    private static final int MULTICAST_PORT = 5683;
+    private static final int FIRST_SERVER_PORT = 5690;
+
+    public static List<CoapTestServer> start(int servers) {
+        CoapConfig.register();
+        UdpConfig.register();
+        Configuration configuration = Configuration.getStandard();
+
+        List<CoapTestServer> started = new ArrayList<>();
+        for (int i = 0; i < servers; i++) {
+            UdpMulticastConnector multicastReceiver = new UdpMulticastConnector.Builder()
+                    .setLocalAddress(CoAP.MULTICAST_IPV4, MULTICAST_PORT)
+                    .addMulticastGroup(CoAP.MULTICAST_IPV4)
+                    .setMulticastReceiver(true)
+                    .setConfiguration(configuration)
+                    .build();
+
+            UDPConnector connector = new UDPConnector(new InetSocketAddress("127.0.0.1", FIRST_SERVER_PORT + i), configuration);
+            connector.setReuseAddress(true);
+            connector.addMulticastReceiver(multicastReceiver);
+
+            CoapTestServer server = new CoapTestServer(new CoapEndpoint.Builder()
+                    .setConfiguration(configuration)
+                    .setConnector(connector)
+                    .build());
+            server.start();
+            started.add(server);
+
+            logger.info("Multicast test server listening on 127.0.0.1:{}", FIRST_SERVER_PORT + i);
+        }
+        return started;
+    }
+
+    public static void main(String[] args) {
+        start(args.length > 0 ? Integer.parseInt(args[0]) : 3);
+    }
+}
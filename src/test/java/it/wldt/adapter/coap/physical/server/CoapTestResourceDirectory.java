@@ -0,0 +1,71 @@
+package it.wldt.adapter.coap.physical.server;
+
+import org.eclipse.californium.core.CoapResource;
+import org.eclipse.californium.core.CoapServer;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.server.resources.CoapExchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Minimal stand-in of a CoRE Resource Directory, exposing a paged {@code /rd-lookup/res} lookup of the resources
+ * of {@link CoapTestServer} as if they were registered by a number of identical devices.
+ * The paging can be disabled, to emulate a directory which ignores the {@code page} and {@code count} parameters.
+ */
+public class CoapTestResourceDirectory extends CoapServer {
+    private static Logger logger = LoggerFactory.getLogger(CoapTestResourceDirectory.class);
+
+    private static final int SERVER_PORT = 5783;
+
+    private final List<String> links = new ArrayList<>();
+
+    public CoapTestResourceDirectory(String deviceAddress, int firstDevicePort, int devices) {
+        this(SERVER_PORT, deviceAddress, firstDevicePort, devices, true);
+    }
+
+    public CoapTestResourceDirectory(int port, String deviceAddress, int firstDevicePort, int devices, boolean pagingSupport) {
+        super(port);
+
+        for (int i = 0; i < devices; i++) {
+            String base = String.format("coap://%s:%d", deviceAddress, firstDevicePort + i);
+            links.add(String.format("<%s/temperature-sensor>;rt=\"iot.sensor.temperature\";if=\"core.s\";ct=\"50 110\";obs;anchor=\"%s\"", base, base));
+            links.add(String.format("<%s/temperature-actuator>;rt=\"iot.actuator.temperature\";if=\"core.a\";ct=\"50 110\";obs;anchor=\"%s\"", base, base));
+        }
+
+        CoapResource lookup = new CoapResource("rd-lookup");
+        lookup.add(new CoapResource("res") {
+            @Override
+            public void handleGET(CoapExchange exchange) {
+                String rt = exchange.getQueryParameter("rt");
+                int page = pagingSupport ? parse(exchange.getQueryParameter("page"), 0) : 0;
+                int count = pagingSupport ? parse(exchange.getQueryParameter("count"), links.size()) : links.size();
+
+                String payload = links.stream()
+                        .filter(link -> rt == null || link.contains("rt=\"" + rt.replace("*", "")))
+                        .skip((long) page * count)
+                        .limit(count)
+                        .collect(Collectors.joining(","));
+
+                exchange.respond(CoAP.ResponseCode.CONTENT, payload, MediaTypeRegistry.APPLICATION_LINK_FORMAT);
+            }
+        });
+        this.add(lookup);
+    }
+
+    private static int parse(String value, int defaultValue) {
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    public static void main(String[] args) {
+        CoapTestResourceDirectory resourceDirectory = new CoapTestResourceDirectory("127.0.0.1", 5683, 1);
+
+        resourceDirectory.start();
+
+        logger.info("Resource directory started with {} links", resourceDirectory.links.size());
+    }
+}
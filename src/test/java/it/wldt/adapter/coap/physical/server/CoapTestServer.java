@@ -5,6 +5,7 @@ import it.wldt.adapter.coap.physical.server.model.TemperatureSensor;
 import it.wldt.adapter.coap.physical.server.resource.TemperatureActuatorResource;
 import it.wldt.adapter.coap.physical.server.resource.TemperatureSensorResource;
 import org.eclipse.californium.core.CoapServer;
+import org.eclipse.californium.core.network.Endpoint;
 import org.eclipse.californium.core.server.resources.Resource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,8 +18,26 @@ public class CoapTestServer extends CoapServer {
     private static final String DEVICE_ID = "wldt:coap:test";
 
     public CoapTestServer() {
-        super(SERVER_PORT);
+        this(SERVER_PORT);
+    }
+
+    public CoapTestServer(int port) {
+        super(port);
+
+        addResources();
+    }
+
+    /**
+     * Creates a server listening on the given unicast endpoint, e.g. one also receiving multicast requests.
+     */
+    public CoapTestServer(Endpoint endpoint) {
+        super();
+
+        this.addEndpoint(endpoint);
+        addResources();
+    }
 
+    private void addResources() {
         this.add(new TemperatureSensorResource(DEVICE_ID, "temperature-sensor", new TemperatureSensor()));
         this.add(new TemperatureActuatorResource(DEVICE_ID, "temperature-actuator", new TemperatureActuator()));
     }